@@ -0,0 +1,216 @@
+package uex;
+
+import uex.algoritmos.AEstrella;
+import uex.algoritmos.EjecutorExpansor;
+import uex.algoritmos.Visitadas;
+import uex.heuristicas.Heuristica;
+import uex.heuristicas.HeuristicaCacheada;
+import uex.movimiento.Posicion;
+import uex.movimiento.TablaVecinos;
+import uex.parsers.CasillaParserBinario;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntSupplier;
+
+/**
+ * Banco de pruebas de rendimiento. Ejecuta repetidamente A* sobre cada laberinto de una carpeta y mide el número de
+ * nodos expandidos por segundo. La salida de los algoritmos se descarta durante las mediciones.
+ * <p>
+ * En modo {@value COMPARAR} mide sobre un laberinto aleatorio de gran tamaño la lista de nodos abiertos anterior, que
+ * se reordenaba entera tras cada inserción o mejora de coste, frente al montículo indexado de {@link AEstrella}
+ *
+ * @author Juan Pablo García Plaza Pérez
+ * @author José Ángel Concha Carrasco
+ * @author Sergio Barrantes de la Osa
+ */
+public class BancoPruebas {
+
+    private static final String DEF_RUTA_FCH_LABERINTOS = "res/laberintos";
+    private static final int DEF_REPETICIONES = 200;            // Repeticiones medidas por laberinto
+    private static final int DEF_CALENTAMIENTO = 50;            // Repeticiones previas sin medir para calentar la JVM
+    private static final String HEURISTICA_CACHEADA = "cacheada";   // Argumento para guardar los resultados heurísticos
+    private static final String COMPARAR = "comparar";          // Argumento para comparar las listas de nodos abiertos
+    private static final int DEF_LADO_COMPARACION = 256;        // Lado del laberinto aleatorio de la comparación
+    private static final int DEF_REPETICIONES_COMPARACION = 5;  // Repeticiones medidas en la comparación
+    private static final long SEMILLA_COMPARACION = 1;          // Semilla del laberinto aleatorio de la comparación
+
+    /**
+     * Punto de entrada
+     *
+     * @param args Argumentos opcionales : carpeta de laberintos, número de repeticiones por laberinto y
+     *             {@value HEURISTICA_CACHEADA} para medir la heurística con sus resultados guardados por laberinto
+     *             ({@link HeuristicaCacheada}). Con {@value COMPARAR} como primer argumento, lado del laberinto
+     *             aleatorio y número de repeticiones de la comparación
+     */
+    public static void main(String[] args) throws FileNotFoundException {
+        if (args.length > 0 && COMPARAR.equalsIgnoreCase(args[0])) {
+            comparar(args.length > 1 ? Integer.parseInt(args[1]) : DEF_LADO_COMPARACION,
+                    args.length > 2 ? Integer.parseInt(args[2]) : DEF_REPETICIONES_COMPARACION);
+            return;
+        }
+
+        File carpeta = new File(args.length > 0 ? args[0] : DEF_RUTA_FCH_LABERINTOS);
+        int repeticiones = args.length > 1 ? Integer.parseInt(args[1]) : DEF_REPETICIONES;
+        CargadorLaberinto cargador = new CargadorLaberinto(carpeta, new CasillaParserBinario());
+        Heuristica heuristica = EjecutorExpansor.heuristicaPorDefecto();
+        AEstrella expansor;
+        IntSupplier resolucion;
+        int idx = 1;
+
+        if (args.length > 2 && HEURISTICA_CACHEADA.equalsIgnoreCase(args[2]))
+            heuristica = HeuristicaCacheada.de(heuristica);
+        expansor = new AEstrella(heuristica);
+        resolucion = resolucion(expansor);
+
+        System.out.println("ALGORITMO : " + expansor.getClass().getSimpleName() + "\tHEURÍSTICA : " + heuristica);
+        do {
+            medir(resolucion, DEF_CALENTAMIENTO);
+            System.out.println("Laberinto " + idx++ + " : " + medir(resolucion, repeticiones) + " nodos expandidos/s");
+        } while (cargador.cargarSiguienteLaberinto());
+    }
+
+    /**
+     * Compara la lista de nodos abiertos anterior con el montículo indexado de {@link AEstrella} sobre un laberinto
+     * aleatorio, con la heurística por defecto. Ambas búsquedas expanden los mismos nodos salvo en el desempate
+     *
+     * @param lado         Lado del laberinto aleatorio
+     * @param repeticiones Número de ejecuciones medidas de cada búsqueda
+     */
+    private static void comparar(int lado, int repeticiones) {
+        Laberinto laberinto = laberintoAleatorio(lado, SEMILLA_COMPARACION);
+        Heuristica heuristica = EjecutorExpansor.heuristicaPorDefecto();
+        IntSupplier listaOrdenada;
+        IntSupplier monticulo;
+        long antes;
+        long despues;
+
+        heuristica.preparar(laberinto);
+        listaOrdenada = () -> resolverListaOrdenada(laberinto, heuristica);
+        monticulo = resolucion(new AEstrella(laberinto, heuristica));
+        System.out.println("COMPARACIÓN : laberinto aleatorio de " + lado + " x " + lado + "\tHEURÍSTICA : " + heuristica);
+
+        medir(listaOrdenada, 1);
+        antes = medir(listaOrdenada, repeticiones);
+        System.out.println("Lista reordenada (anterior) : " + listaOrdenada.getAsInt() + " nodos expandidos, " + antes +
+                " nodos expandidos/s");
+
+        medir(monticulo, 1);
+        despues = medir(monticulo, repeticiones);
+        System.out.println("Montículo indexado (actual) : " + monticulo.getAsInt() + " nodos expandidos, " + despues +
+                " nodos expandidos/s");
+
+        System.out.printf("Mejora : x%.1f%n", despues / (double) Math.max(antes, 1));
+    }
+
+    /**
+     * @param expansor Algoritmo a medir
+     * @return Resolución del laberinto cargado con la salida del algoritmo descartada, que devuelve el número de
+     * nodos expandidos
+     */
+    private static IntSupplier resolucion(AEstrella expansor) {
+        // Descarta la salida del algoritmo mientras se mide
+        expansor.setSalida(new PrintStream(new OutputStream() {
+            @Override
+            public void write(int b) {
+            }
+        }));
+
+        return () -> {
+            expansor.resolver();
+            return expansor.getContNodosExp();
+        };
+    }
+
+    /**
+     * Ejecuta una resolución las veces indicadas
+     *
+     * @param resolucion   Resolución a medir, que devuelve el número de nodos expandidos
+     * @param repeticiones Número de ejecuciones
+     * @return Nodos expandidos por segundo
+     */
+    private static long medir(IntSupplier resolucion, int repeticiones) {
+        long nodosExpandidos = 0;
+        long inicio = System.nanoTime();
+        long transcurrido;
+
+        for (int i = 0; i < repeticiones; i++)
+            nodosExpandidos += resolucion.getAsInt();
+        transcurrido = System.nanoTime() - inicio;
+
+        return nodosExpandidos * TimeUnit.SECONDS.toNanos(1) / Math.max(transcurrido, 1);
+    }
+
+    /**
+     * A* con la lista de nodos abiertos anterior a {@link uex.algoritmos.MonticuloPrimitivo}: una lista que se
+     * reordena entera por ponderación tras cada inserción o mejora de coste, y de la que se extrae el primer nodo.
+     * Sólo sirve de referencia para la comparación y no construye el camino
+     *
+     * @param laberinto  Laberinto a resolver
+     * @param heuristica Función heurística, ya preparada para el laberinto
+     * @return Número de nodos expandidos
+     */
+    private static int resolverListaOrdenada(Laberinto laberinto, Heuristica heuristica) {
+        TablaVecinos tablaVecinos = laberinto.getTablaVecinos();
+        int numCasillas = laberinto.getNumCasillas();
+        int[] costes = new int[numCasillas];
+        int[] ponderaciones = new int[numCasillas];
+        Visitadas cerradas = new Visitadas(numCasillas);
+        List<Integer> abiertos = new ArrayList<>();
+        Comparator<Integer> porPonderacion = Comparator.comparingInt(casilla -> ponderaciones[casilla]);
+        int casillaInicial = laberinto.indice(new Jugador(laberinto).ctrlMovimiento().posicion());
+        int contNodosExp = 0;
+
+        Arrays.fill(costes, Integer.MAX_VALUE);
+        costes[casillaInicial] = 0;
+        ponderaciones[casillaInicial] = (int) heuristica.aplicar(laberinto, casillaInicial);
+        abiertos.add(casillaInicial);
+
+        while (!abiertos.isEmpty()) {
+            int casilla = abiertos.remove(0);
+
+            if (laberinto.esObjetivo(casilla) || costes[casilla] > laberinto.getUmbral()) break;
+            cerradas.marcar(casilla);
+            contNodosExp++;
+
+            for (int m = tablaVecinos.mascara(casilla); m != 0; m &= m - 1) {
+                int vecino = tablaVecinos.vecino(casilla, Integer.numberOfTrailingZeros(m));
+                int coste = costes[casilla] + laberinto.coste(vecino);
+
+                if (cerradas.contiene(vecino) || coste >= costes[vecino]) continue;
+
+                if (costes[vecino] == Integer.MAX_VALUE) abiertos.add(vecino);
+                costes[vecino] = coste;
+                ponderaciones[vecino] = coste + (int) heuristica.aplicar(laberinto, vecino);
+                abiertos.sort(porPonderacion);
+            }
+        }
+
+        return contNodosExp;
+    }
+
+    /**
+     * @param lado    Lado del laberinto
+     * @param semilla Semilla de los costes
+     * @return Laberinto cuadrado con costes aleatorios entre 1 y 9, que parte de la esquina superior izquierda hacia
+     * la casilla objetivo en la esquina inferior derecha, sin límite de umbral
+     */
+    private static Laberinto laberintoAleatorio(int lado, long semilla) {
+        SplittableRandom aleatorio = new SplittableRandom(semilla);
+        int[] costes = new int[lado * lado];
+
+        for (int i = 0; i < costes.length; i++)
+            costes[i] = aleatorio.nextInt(1, 10);
+        costes[costes.length - 1] = 0;
+
+        return new Laberinto(costes, lado, lado, Integer.MAX_VALUE, Posicion.de(lado - 1, lado - 1));
+    }
+}
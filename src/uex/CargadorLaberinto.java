@@ -9,8 +9,10 @@ import java.util.Iterator;
 import java.util.Objects;
 
 /**
- * Clase encargada de cargar los laberintos en la instancia Singleton de la clase {@link Laberinto}.
- * Los ficheros de laberinto deben estar contenidos en una carpeta y deben tener la extensión {@code .lab}
+ * Clase encargada de cargar los laberintos en una instancia de la clase {@link Laberinto}, por defecto en la instancia
+ * Singleton.
+ * Los ficheros de laberinto deben estar contenidos en una carpeta y deben tener la extensión {@code .lab},
+ * {@code .txt} o, si se emplea {@link uex.parsers.CasillaParserBinario}, {@code .labb}
  *
  * @author Juan Pablo García Plaza Pérez
  * @author José Ángel Concha Carrasco
@@ -21,6 +23,7 @@ public class CargadorLaberinto {
     private File carpetaLaberintos;             // Ruta a la carpeta donde están los ficheros de laberintos
     private Iterator<File> itFichLaberintos;    // Iterador de archivos de laberintos leídos de la carpeta suministrada
     private CasillaParser parser;               // Parser de casillas para procesar cada fichero de laberinto
+    private final Laberinto laberinto;          // Laberinto en el que se cargan los ficheros
 
     /**
      * Construye y configura un cargador de laberintos si los parámetros son válidos. Carga el primer laberinto
@@ -31,8 +34,23 @@ public class CargadorLaberinto {
      * @throws FileNotFoundException Si la ruta suministrada no es una carpeta
      */
     public CargadorLaberinto(File carpetaLaberintos, CasillaParser parser) throws FileNotFoundException {
+        this(carpetaLaberintos, parser, Laberinto.instancia());
+    }
+
+    /**
+     * Construye y configura un cargador de laberintos que carga cada fichero en el laberinto suministrado. Carga el
+     * primer laberinto automáticamente
+     *
+     * @param carpetaLaberintos Ruta a la carpeta donde están los ficheros de laberintos
+     * @param parser            Parser de casillas para procesar cada fichero de laberinto
+     * @param laberinto         Laberinto en el que cargar los ficheros
+     * @throws FileNotFoundException Si la ruta suministrada no es una carpeta
+     */
+    public CargadorLaberinto(File carpetaLaberintos, CasillaParser parser, Laberinto laberinto)
+            throws FileNotFoundException {
         this.carpetaLaberintos = carpetaLaberintos;
         this.parser = parser;
+        this.laberinto = laberinto;
 
         abrirCarpeta();
         cargarSiguienteLaberinto();
@@ -46,7 +64,7 @@ public class CargadorLaberinto {
      * @return Si es un fichero de laberinto válido
      */
     private static boolean ficheroValido(File dir, String name) {
-        return name.matches("\\w+(.lab|.txt)$");
+        return name.matches("\\w+(.lab|.labb|.txt)$");
     }
 
     /**
@@ -61,31 +79,63 @@ public class CargadorLaberinto {
             // Parsea el siguiente fichero
             parser.parsearFichero(itFichLaberintos.next());
             // Carga el laberinto parseado
-            Laberinto.instancia().cargarLaberinto(parser.getLaberinto());
-            Laberinto.instancia().setUmbral(parser.getUmbral());
-            Laberinto.instancia().setPosObjetivc(parser.getPosObjetivo());
+            laberinto.cargarLaberinto(parser.getCostes(), parser.getAncho(), parser.getAlto());
+            laberinto.setUmbral(parser.getUmbral());
+            laberinto.setPosObjetivc(parser.getPosObjetivo());
         }
 
         return hayMasFicheros;
     }
 
+    /**
+     * Parsea el siguiente fichero de laberinto en una nueva instancia de {@link Laberinto}, sin modificar el laberinto
+     * en el que carga este cargador. Permite mantener varios laberintos cargados a la vez
+     *
+     * @return Nuevo laberinto, o {@code null} si no quedan ficheros de laberinto por cargar
+     */
+    public Laberinto siguienteLaberinto() {
+        if (!itFichLaberintos.hasNext()) return null;
+
+        parser.parsearFichero(itFichLaberintos.next());
+        return parser.crearLaberinto();
+    }
+
     /**
      * Inicializa el iterador de ficheros de laberinto
      *
      * @throws FileNotFoundException Si la ruta suministrada no es una carpeta
      */
     private void abrirCarpeta() throws FileNotFoundException {
+        itFichLaberintos = Arrays.asList(listarFicheros(carpetaLaberintos)).iterator();
+    }
+
+    /**
+     * @param carpetaLaberintos Ruta a la carpeta donde están los ficheros de laberintos
+     * @return Ficheros de laberinto válidos de la carpeta
+     * @throws FileNotFoundException Si la ruta suministrada no es una carpeta
+     * @throws IllegalStateException Si la carpeta no contiene ningún fichero de laberinto válido
+     */
+    static File[] listarFicheros(File carpetaLaberintos) throws FileNotFoundException {
+        File[] ficheros;
+
         if (carpetaLaberintos.isDirectory()) {
-            itFichLaberintos = Arrays.asList(Objects
-                    .requireNonNull(carpetaLaberintos
-                            .listFiles(CargadorLaberinto::ficheroValido)))
-                    .iterator();                // Filtra los ficheros '.lab'
+            ficheros = Objects.requireNonNull(carpetaLaberintos
+                    .listFiles(CargadorLaberinto::ficheroValido));      // Filtra los ficheros '.lab'
 
-            if (!itFichLaberintos.hasNext())
+            if (ficheros.length == 0)
                 throw new IllegalStateException("No se ha podido leer ningún fichero válido de laberinto");
         } else {
             throw new FileNotFoundException("La ruta: \"" + carpetaLaberintos + "\" no es un directorio");
         }
+
+        return ficheros;
+    }
+
+    /**
+     * @return Laberinto en el que se cargan los ficheros
+     */
+    public Laberinto getLaberinto() {
+        return laberinto;
     }
 
     /**
@@ -0,0 +1,155 @@
+package uex;
+
+import uex.parsers.CasillaParser;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Cargador de laberintos que parsea los ficheros de una carpeta en un hilo en segundo plano, adelantándose a su
+ * consumo. Los laberintos ya parseados esperan en una cola acotada: cuando se llena, el hilo de carga se detiene hasta
+ * que se consume alguno, por lo que la memoria retenida queda limitada por la profundidad de precarga.
+ * <p>
+ * Cada fichero se carga en una nueva instancia de {@link Laberinto}, de modo que pueden resolverse laberintos mientras
+ * se cargan los siguientes. Los ficheros que no se pueden parsear se notifican por la salida de error y se omiten, sin
+ * detener la carga del resto
+ *
+ * @author Juan Pablo García Plaza Pérez
+ * @author José Ángel Concha Carrasco
+ * @author Sergio Barrantes de la Osa
+ */
+public class CargadorLaberintoAsincrono implements AutoCloseable {
+
+    public static final int DEF_PROFUNDIDAD = 4;                    // Laberintos precargados por defecto
+    private static final Laberinto FIN = new Laberinto(1, 1);       // Marca el final de los ficheros de la carpeta
+
+    private final File[] ficheros;                  // Ficheros de laberinto de la carpeta
+    private final CasillaParser parser;             // Parser de casillas, de uso exclusivo del hilo de carga
+    private final BlockingQueue<Laberinto> precargados;             // Laberintos parseados pendientes de consumir
+    private final AtomicInteger contErroneos;       // Número de ficheros omitidos por no poder parsearse
+    private volatile boolean cerrado;               // Si se ha detenido la carga
+    private boolean terminado;                      // Si ya se ha consumido la marca de fin
+
+    /**
+     * Construye un cargador con la profundidad de precarga por defecto {@value DEF_PROFUNDIDAD} y comienza a cargar
+     *
+     * @param carpetaLaberintos Ruta a la carpeta donde están los ficheros de laberintos
+     * @param parser            Parser de casillas para procesar cada fichero de laberinto. No debe usarse desde otros
+     *                          hilos mientras el cargador esté abierto
+     * @throws FileNotFoundException Si la ruta suministrada no es una carpeta
+     */
+    public CargadorLaberintoAsincrono(File carpetaLaberintos, CasillaParser parser) throws FileNotFoundException {
+        this(carpetaLaberintos, parser, DEF_PROFUNDIDAD);
+    }
+
+    /**
+     * Construye un cargador y comienza a cargar en segundo plano
+     *
+     * @param carpetaLaberintos Ruta a la carpeta donde están los ficheros de laberintos
+     * @param parser            Parser de casillas para procesar cada fichero de laberinto. No debe usarse desde otros
+     *                          hilos mientras el cargador esté abierto
+     * @param profundidad       Número máximo de laberintos parseados a la espera de ser consumidos
+     * @throws FileNotFoundException Si la ruta suministrada no es una carpeta
+     */
+    public CargadorLaberintoAsincrono(File carpetaLaberintos, CasillaParser parser, int profundidad)
+            throws FileNotFoundException {
+        if (profundidad < 1)
+            throw new IllegalArgumentException("La profundidad de precarga debe ser positiva : " + profundidad);
+
+        this.ficheros = CargadorLaberinto.listarFicheros(carpetaLaberintos);
+        this.parser = parser;
+        precargados = new ArrayBlockingQueue<>(profundidad);
+        contErroneos = new AtomicInteger();
+        terminado = false;
+        cerrado = false;
+
+        Thread hiloCarga = new Thread(this::cargar, "cargador-laberintos");
+        hiloCarga.setDaemon(true);
+        hiloCarga.start();
+    }
+
+    /**
+     * Bucle del hilo de carga. Parsea cada fichero y lo encola, esperando mientras la cola esté llena
+     */
+    private void cargar() {
+        try {
+            for (int i = 0; i < ficheros.length && !cerrado; i++) {
+                Laberinto laberinto;
+
+                try {
+                    parser.parsearFichero(ficheros[i]);
+                    laberinto = parser.crearLaberinto();
+                } catch (RuntimeException e) {
+                    // Un fichero erróneo no impide resolver el resto
+                    contErroneos.incrementAndGet();
+                    System.err.println("No se ha podido cargar el fichero \"" + ficheros[i] + "\" : " + e);
+                    continue;
+                }
+                precargados.put(laberinto);
+            }
+        } catch (InterruptedException e) {
+            return;
+        }
+
+        // Al cerrar se vacía la cola, por lo que la marca de fin sólo puede bloquearse si el cargador sigue abierto
+        try {
+            if (!cerrado) precargados.put(FIN);
+        } catch (InterruptedException ignored) {
+            // El hilo de carga termina igualmente
+        }
+    }
+
+    /**
+     * Devuelve el siguiente laberinto, esperando a que termine de cargarse si aún no está disponible
+     *
+     * @return Siguiente laberinto, o {@code null} si no quedan ficheros de laberinto por cargar. Se omiten los ficheros
+     * que no se han podido parsear
+     * @throws InterruptedException Si se interrumpe la espera
+     */
+    public Laberinto siguienteLaberinto() throws InterruptedException {
+        Laberinto laberinto;
+
+        if (terminado) return null;
+
+        laberinto = precargados.take();
+        if (laberinto == FIN) {
+            terminado = true;
+            return null;
+        }
+
+        return laberinto;
+    }
+
+    /**
+     * @return Número de laberintos ya parseados a la espera de ser consumidos
+     */
+    public int getNumPrecargados() {
+        return precargados.size();
+    }
+
+    /**
+     * @return Número de ficheros omitidos hasta el momento por no poder parsearse
+     */
+    public int getNumErroneos() {
+        return contErroneos.get();
+    }
+
+    /**
+     * @return Número total de ficheros de laberinto de la carpeta
+     */
+    public int getNumFicheros() {
+        return ficheros.length;
+    }
+
+    /**
+     * Detiene la carga en segundo plano y descarta los laberintos precargados
+     */
+    @Override
+    public void close() {
+        cerrado = true;
+        precargados.clear();                        // Desbloquea al hilo de carga si esperaba por espacio en la cola
+    }
+}
@@ -2,7 +2,8 @@ package uex;
 
 /**
  * Clase encargada de modelar la casilla de un laberinto.
- * Cada casilla almacena un valor que indica qué tipo de casllla es
+ * Cada casilla almacena un valor que indica qué tipo de casllla es. Las casillas son inmutables, por lo que las de
+ * valores pequeños se comparten mediante {@link Casilla#de(int)}
  *
  * @author Juan Pablo García Plaza Pérez
  * @author José Ángel Concha Carrasco
@@ -11,6 +12,14 @@ package uex;
 public class Casilla {
 
     private static final int VALOR_OBJETIVO = 0;    // Valor de la casilla objetivo
+    private static final int NUM_COMPARTIDAS = 256; // Número de casillas compartidas, de valores [0, NUM_COMPARTIDAS)
+    private static final Casilla[] compartidas;     // Casillas compartidas indexadas por su valor
+
+    static {
+        compartidas = new Casilla[NUM_COMPARTIDAS];
+        for (int valor = 0; valor < NUM_COMPARTIDAS; valor++)
+            compartidas[valor] = new Casilla(valor);
+    }
 
     private final int valor;                        // Valor numérico de la casilla
 
@@ -21,11 +30,27 @@ public class Casilla {
         this.valor = valor;
     }
 
+    /**
+     * @param valor Valor de la casilla
+     * @return Casilla con el valor suministrado. Si el valor es pequeño se devuelve una casilla compartida
+     */
+    public static Casilla de(int valor) {
+        return valor >= 0 && valor < NUM_COMPARTIDAS ? compartidas[valor] : new Casilla(valor);
+    }
+
+    /**
+     * @param valor Valor de una casilla
+     * @return Si el valor corresponde a una celda objetivo
+     */
+    public static boolean esValorObjetivo(int valor) {
+        return valor == VALOR_OBJETIVO;
+    }
+
     /**
      * @return Si es una celda objetivo
      */
     public boolean esObjetivo() {
-        return valor() == VALOR_OBJETIVO;
+        return esValorObjetivo(valor());
     }
 
     /**
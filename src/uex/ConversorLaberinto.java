@@ -0,0 +1,60 @@
+package uex;
+
+import uex.parsers.CasillaParser;
+import uex.parsers.CasillaParserBinario;
+import uex.parsers.CasillaParserMapeado;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.util.Objects;
+
+/**
+ * Convierte los ficheros de laberinto de texto ({@code .lab} y {@code .txt}) de una carpeta al formato binario
+ * {@value CasillaParserBinario#EXTENSION}, que se carga sin necesidad de interpretar texto
+ *
+ * @author Juan Pablo García Plaza Pérez
+ * @author José Ángel Concha Carrasco
+ * @author Sergio Barrantes de la Osa
+ */
+public class ConversorLaberinto {
+
+    /**
+     * Punto de entrada
+     *
+     * @param args Carpeta de origen con los ficheros de texto y carpeta de destino de los ficheros binarios. La carpeta
+     *             de destino se crea si no existe
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2)
+            throw new IllegalArgumentException("Uso : ConversorLaberinto <carpeta origen> <carpeta destino>");
+
+        File origen = new File(args[0]);
+        File destino = new File(args[1]);
+        CasillaParser parser = new CasillaParserMapeado();
+
+        if (!origen.isDirectory())
+            throw new FileNotFoundException("La ruta: \"" + origen + "\" no es un directorio");
+        if (!destino.isDirectory() && !destino.mkdirs())
+            throw new IOException("No se ha podido crear la carpeta \"" + destino + "\"");
+
+        for (File fichero : Objects.requireNonNull(origen.listFiles(ConversorLaberinto::ficheroTexto))) {
+            String nombre = fichero.getName();
+            File binario = new File(destino, nombre.substring(0, nombre.lastIndexOf('.')) +
+                    CasillaParserBinario.EXTENSION);
+
+            parser.parsearFichero(fichero);
+            CasillaParserBinario.guardar(parser.crearLaberinto(), binario);
+            System.out.println(fichero + " -> " + binario + " (" + binario.length() + " bytes)");
+        }
+    }
+
+    /**
+     * @param dir  Carpeta que contiene el fichero
+     * @param name Nombre del fichero
+     * @return Si es un fichero de laberinto en formato de texto
+     */
+    private static boolean ficheroTexto(File dir, String name) {
+        return name.matches("\\w+(.lab|.txt)$");
+    }
+}
@@ -13,12 +13,28 @@ public class Jugador implements Cloneable {
 
     private ControladorMovimiento movimiento;       // Encapsula el movimiento sobre el laberinto
 
+    /**
+     * Instancia un jugador en la posición inicial del laberinto por defecto
+     */
     public Jugador() {
-        movimiento = new ControladorMovimiento();
+        this(Laberinto.instancia());
+    }
+
+    /**
+     * Instancia un jugador en la posición inicial del laberinto suministrado
+     *
+     * @param laberinto Laberinto sobre el que juega el jugador
+     */
+    public Jugador(Laberinto laberinto) {
+        movimiento = new ControladorMovimiento(laberinto);
     }
 
+    /**
+     * @param jugador Jugador a copiar. La copia juega en el mismo laberinto y en la misma posición
+     */
     public Jugador(Jugador jugador) {
-        movimiento = new ControladorMovimiento(jugador.ctrlMovimiento().posicion());
+        movimiento = new ControladorMovimiento(jugador.ctrlMovimiento().getLaberinto(),
+                jugador.ctrlMovimiento().posicion());
     }
 
     /**
@@ -1,12 +1,20 @@
 package uex;
 
 import uex.movimiento.Posicion;
+import uex.movimiento.TablaVecinos;
 
+import java.util.Arrays;
 import java.util.List;
 
 /**
  * Clase que modela el comportamiento del Laberinto (encargado de gestionar las casillas
- * asociadas a este mismo). Dimensión establecida : 10
+ * asociadas a este mismo). Las dimensiones (ancho x alto) las establece cada laberinto cargado; por defecto 10 x 10
+ * <p>
+ * Pueden existir varios laberintos a la vez, cada uno es el contexto de los algoritmos que lo resuelven. La instancia
+ * Singleton {@link Laberinto#instancia()} se mantiene como laberinto por defecto para el código que no indica uno
+ * <p>
+ * Las casillas se almacenan como sus valores en un único array de enteros en orden de filas, de forma que la casilla
+ * {@code (x, y)} ocupa el índice {@code y * ancho + x}
  *
  * @author Juan Pablo García Plaza Pérez
  * @author José Ángel Concha Carrasco
@@ -14,49 +22,168 @@ import java.util.List;
  */
 public class Laberinto {
 
-    private static final int DEF_DIEMNSION = 10;        // Dimensión por defecto del laberinto
+    private static final int DEF_DIMENSION = 10;        // Dimensión por defecto del laberinto (ancho y alto)
     private static final int DEF_UMBRAL = 40;           // Umbral por defecto del laberinto
+    private static final int CASILLA_VACIA = -1;        // Valor de las casillas no ocupadas
 
     private static Laberinto instancia;                 // Instancia Singleton del laberinto
-    private final int dimension;                        // Dimensión del laberinto
-    private Casilla[][] laberinto;                      // Matriz de casillas que representa un tablero
+    private int ancho;                                  // Número de columnas del laberinto
+    private int alto;                                   // Número de filas del laberinto
+    private int[] costes;                               // Valores de las casillas del tablero en orden de filas
     private Posicion posObjetivc;                       // Posición de la casilla objetivo
     private int umbral;                                 // Umbral asociado al laberinto
+    private volatile TablaVecinos tablaVecinos;         // Vecinos de cada casilla, se calcula al consultarse
+    private volatile int version;                       // Cambia al cargar otro laberinto u objetivo o cambiar un valor
 
     /**
-     * @param dimension Dimensión del laberinto a crear
+     * Crea un laberinto con todas sus casillas sin ocupar
+     *
+     * @param ancho Número de columnas del laberinto a crear
+     * @param alto  Número de filas del laberinto a crear
      */
-    private Laberinto(int dimension) {
-        laberinto = new Casilla[dimension][dimension];
-        this.dimension = dimension;
+    public Laberinto(int ancho, int alto) {
+        costes = new int[ancho * alto];
+        this.ancho = ancho;
+        this.alto = alto;
+
+        Arrays.fill(costes, CASILLA_VACIA);
     }
 
     /**
-     * @return Instancia Singleton del laberinto
+     * @param costes      Valores de las casillas que conforman el laberinto en orden de filas. No se copia
+     * @param ancho       Número de columnas del laberinto
+     * @param alto        Número de filas del laberinto
+     * @param umbral      Umbral asociado al laberinto
+     * @param posObjetivc Posición de la casilla objetivo
      */
-    public static Laberinto instancia() {
+    public Laberinto(int[] costes, int ancho, int alto, int umbral, Posicion posObjetivc) {
+        cargarLaberinto(costes, ancho, alto);
+        setUmbral(umbral);
+        setPosObjetivc(posObjetivc);
+    }
+
+    /**
+     * @return Instancia Singleton del laberinto, laberinto por defecto de los algoritmos
+     */
+    public static synchronized Laberinto instancia() {
         if (instancia == null)
-            instancia = new Laberinto(DEF_DIEMNSION);
+            instancia = new Laberinto(DEF_DIMENSION, DEF_DIMENSION);
 
         return instancia;
     }
 
     /**
      * @param posicion Posición de la casilla a consultar
-     * @return Casilla del laberinto localizada en la posición suministrada
+     * @return Casilla del laberinto localizada en la posición suministrada, o {@code null} si no está ocupada
      */
     public Casilla casilla(Posicion posicion) {
-        return laberinto[posicion.getY()][posicion.getX()];
+        int valor = costes[indice(posicion)];
+
+        return valor != CASILLA_VACIA ? Casilla.de(valor) : null;
+    }
+
+    /**
+     * @param x Columna de la casilla
+     * @param y Fila de la casilla
+     * @return Valor (coste) de la casilla
+     */
+    public int coste(int x, int y) {
+        return costes[y * ancho + x];
+    }
+
+    /**
+     * @param indice Índice de la casilla en orden de filas, ver {@link Laberinto#indice(Posicion)}
+     * @return Valor (coste) de la casilla
+     */
+    public int coste(int indice) {
+        return costes[indice];
+    }
+
+    /**
+     * Cambia el valor de una casilla sin volver a cargar el laberinto
+     *
+     * @param indice Índice de la casilla en orden de filas, ver {@link Laberinto#indice(Posicion)}
+     * @param valor  Nuevo valor (coste) de la casilla
+     */
+    public void setCoste(int indice, int valor) {
+        costes[indice] = valor;
+        version++;
+    }
+
+    /**
+     * @param indice Índice de la casilla en orden de filas, ver {@link Laberinto#indice(Posicion)}
+     * @return Si la casilla es la casilla objetivo
+     */
+    public boolean esObjetivo(int indice) {
+        return Casilla.esValorObjetivo(costes[indice]);
+    }
+
+    /**
+     * @param posicion Posición de una casilla del laberinto
+     * @return Índice de la casilla en orden de filas ({@code y * ancho + x}). Identifica de forma única cada
+     * casilla del laberinto
+     */
+    public int indice(Posicion posicion) {
+        return posicion.indice(ancho);
+    }
+
+    /**
+     * @return Tabla precalculada de las casillas vecinas de cada casilla del laberinto
+     */
+    public TablaVecinos getTablaVecinos() {
+        TablaVecinos tabla = tablaVecinos;
+
+        // Sólo depende de las dimensiones. Varios hilos pueden calcularla a la vez, todos obtienen una tabla equivalente
+        if (tabla == null || tabla.getAncho() != ancho || tabla.getAlto() != alto)
+            tablaVecinos = tabla = new TablaVecinos(ancho, alto);
+
+        return tabla;
     }
 
     /**
-     * Carga un laberinto a partir de una matriz de casillas que lo conforman.
-     * Pensado para cargar rápidamente un laberinto en el proceso de carga
+     * @return Número total de casillas del laberinto
+     */
+    public int getNumCasillas() {
+        return ancho * alto;
+    }
+
+    /**
+     * Carga un laberinto a partir de una matriz de casillas que lo conforman, indexada por [fila][columna]. Las
+     * dimensiones del laberinto pasan a ser las de la matriz
      *
      * @param laberinto Matriz de casillas que conforman el laberinto
      */
     public void cargarLaberinto(Casilla[][] laberinto) {
-        this.laberinto = laberinto;
+        int alto = laberinto.length;
+        int ancho = alto != 0 ? laberinto[0].length : 0;
+        int[] costes = new int[ancho * alto];
+
+        for (int y = 0; y < alto; y++)
+            for (int x = 0; x < ancho; x++)
+                costes[y * ancho + x] = laberinto[y][x] != null ? laberinto[y][x].valor() : CASILLA_VACIA;
+
+        cargarLaberinto(costes, ancho, alto);
+    }
+
+    /**
+     * Carga un laberinto a partir de los valores de sus casillas en orden de filas. Las dimensiones del laberinto
+     * pasan a ser las suministradas.
+     * Pensado para cargar rápidamente un laberinto en el proceso de carga. No copia el array suministrado
+     *
+     * @param costes Valores de las casillas que conforman el laberinto en orden de filas
+     * @param ancho  Número de columnas del laberinto
+     * @param alto   Número de filas del laberinto
+     * @throws IllegalArgumentException Si el número de valores no coincide con el número de casillas
+     */
+    public void cargarLaberinto(int[] costes, int ancho, int alto) {
+        if (ancho <= 0 || alto <= 0 || costes.length != ancho * alto)
+            throw new IllegalArgumentException("Un laberinto de " + ancho + " x " + alto + " no puede tener "
+                    + costes.length + " casillas");
+
+        this.costes = costes;
+        this.ancho = ancho;
+        this.alto = alto;
+        version++;
     }
 
     /**
@@ -66,7 +193,7 @@ public class Laberinto {
      * @param posicion Posición del Laberinto en la que insertar la nueva casilla
      */
     private void insertarCasilla(Casilla casilla, Posicion posicion) {
-        laberinto[posicion.getY()][posicion.getX()] = casilla;
+        costes[indice(posicion)] = casilla.valor();
     }
 
     /**
@@ -81,13 +208,30 @@ public class Laberinto {
      */
     public void setPosObjetivc(Posicion posObjetivc) {
         this.posObjetivc = posObjetivc;
+        version++;
+    }
+
+    /**
+     * @return Versión del contenido del laberinto. Cambia cada vez que se cargan otras casillas, se cambia el valor de
+     * una casilla o se establece otra casilla objetivo, por lo que permite detectar si siguen siendo válidos los datos
+     * calculados a partir de él
+     */
+    public int getVersion() {
+        return version;
+    }
+
+    /**
+     * @return Número de columnas del laberinto
+     */
+    public int getAncho() {
+        return ancho;
     }
 
     /**
-     * @return Dimensión del laberinto
+     * @return Número de filas del laberinto
      */
-    public int getDimension() {
-        return dimension;
+    public int getAlto() {
+        return alto;
     }
 
     /**
@@ -112,8 +256,8 @@ public class Laberinto {
         StringBuilder stringBuilder = new StringBuilder();
         int currNumDig = 1;
 
-        for (int i = 0; i < getDimension() && i < 1000; i++) {
-            if (currNumDig >= digitosDe(i + 1) || getDimension() <= (i + 1)) {
+        for (int i = 0; i < getAncho() && i < 1000; i++) {
+            if (currNumDig >= digitosDe(i + 1) || getAncho() <= (i + 1)) {
                 stringBuilder.append("   ".substring(digitosDe(i) - 1)).append(i);
             } else {
                 stringBuilder.append("    ".substring(currNumDig)).append(i).append("\u2004");
@@ -133,23 +277,34 @@ public class Laberinto {
         else return 1;
     }
 
+    /**
+     * @param num Número de espacios
+     * @return Cadena formada por el número de espacios indicado
+     */
+    private String relleno(int num) {
+        char[] espacios = new char[Math.max(num, 0)];
+
+        Arrays.fill(espacios, ' ');
+        return new String(espacios);
+    }
+
     @Override
     public String toString() {
         StringBuilder stringBuilder = new StringBuilder();
-        final String buffer = "   ".substring(3 - digitosDe(getDimension() - 1));
+        final int digitosFila = digitosDe(getAlto() - 1);      // Ancho de la columna de índices de fila
 
         stringBuilder.append("Umbral : ").append(getUmbral())
                 .append("\nPosición del objetivo : ").append(getPosObjetivc()).append("\n\n")
-                .append(buffer.substring(1)).append(cabecera()).append("\n");
-        for (int y = 0; y < getDimension(); y++) {
-            stringBuilder.append(y).append(buffer.substring(digitosDe(y) - 1));
-            for (int x = 0; x < getDimension(); x++) {
+                .append(relleno(digitosFila - 1)).append(cabecera()).append("\n");
+        for (int y = 0; y < getAlto(); y++) {
+            stringBuilder.append(y).append(relleno(digitosFila - digitosDe(y) + 1));
+            for (int x = 0; x < getAncho(); x++) {
                 if (y == 0 && x == 0) stringBuilder.append(" >  ");
-                else stringBuilder.append(laberinto[y][x] != null ? laberinto[y][x] : "   ").append(" ");
+                else stringBuilder.append(coste(x, y) != CASILLA_VACIA ? Casilla.de(coste(x, y)) : "   ").append(" ");
             }
             stringBuilder.append(y).append("\n");
         }
-        stringBuilder.append(buffer.substring(1)).append(cabecera()).append("\n");
+        stringBuilder.append(relleno(digitosFila - 1)).append(cabecera()).append("\n");
 
         return stringBuilder.toString();
     }
@@ -162,16 +317,26 @@ public class Laberinto {
         /**
          * Inicializa un laberinto con las posiciones que conforman la solución al problema
          *
+         * @param laberinto      Laberinto resuelto
          * @param posiciones     Colección de posiciones que conforman la solución al problema
          * @param umbralRestante Umbral restante de la solución
          */
-        public Solucionado(List<Posicion> posiciones, int umbralRestante) {
-            super(Laberinto.instancia().getDimension());
+        public Solucionado(Laberinto laberinto, List<Posicion> posiciones, int umbralRestante) {
+            super(laberinto.getAncho(), laberinto.getAlto());
 
             setUmbral(umbralRestante);
-            setPosObjetivc(Laberinto.instancia().getPosObjetivc());
-            posiciones.forEach(posicion -> super.insertarCasilla
-                    (Laberinto.instancia().casilla(posicion), posicion));
+            setPosObjetivc(laberinto.getPosObjetivc());
+            posiciones.forEach(posicion -> super.insertarCasilla(laberinto.casilla(posicion), posicion));
+        }
+
+        /**
+         * Inicializa una solución al laberinto por defecto {@link Laberinto#instancia()}
+         *
+         * @param posiciones     Colección de posiciones que conforman la solución al problema
+         * @param umbralRestante Umbral restante de la solución
+         */
+        public Solucionado(List<Posicion> posiciones, int umbralRestante) {
+            this(Laberinto.instancia(), posiciones, umbralRestante);
         }
 
     }
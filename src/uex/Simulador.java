@@ -1,14 +1,24 @@
 package uex;
 
+import com.google.common.base.Stopwatch;
 import uex.algoritmos.*;
-import uex.parsers.CasillaParser;
+import uex.heuristicas.Heuristica;
+import uex.parsers.CasillaParserBinario;
 
 import java.io.File;
 import java.io.FileNotFoundException;
+import java.util.Arrays;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiFunction;
 
 /**
  * Punto de entrada al programa. Carga cada laberinto especificado por la ruta de recursos y ejecuta cada
- * algoritmo implementado con cada heurística implementada sobre cada laberinto
+ * algoritmo implementado con cada heurística implementada sobre cada laberinto.
+ * <p>
+ * Si se indica un número de hilos se ejecuta en modo por lotes: todas las combinaciones de laberinto, algoritmo y
+ * heurística se resuelven en paralelo y los resultados se muestran en el mismo orden que en el modo secuencial
  *
  * @author Juan Pablo García Plaza Pérez
  * @author José Ángel Concha Carrasco
@@ -17,20 +27,32 @@ import java.io.FileNotFoundException;
 public class Simulador {
 
     private static final String DEF_RUTA_FCH_LABERINTOS = "res/laberintos";
+    private static final String HILOS_VIRTUALES = "virtual";    // Argumento para ejecutar cada trabajo en un hilo virtual
 
     /**
      * Punto de entrada
      *
-     * @param args Un primer argumento opcional indica una carpeta externa de la que cargar archivos de laberinto
+     * @param args Un primer argumento opcional indica una carpeta externa de la que cargar archivos de laberinto. Un
+     *             segundo argumento opcional activa el modo por lotes e indica el número de hilos ({@code 0} para usar
+     *             todos los núcleos) o {@value HILOS_VIRTUALES} para emplear un hilo virtual por trabajo. En el modo por
+     *             lotes, un tercer argumento opcional indica cuántos laberintos se precargan mientras se resuelven los
+     *             anteriores, y cuántos se resuelven a la vez
      */
     public static void main(String[] args) {
         boolean hayRutaLabAlt = args.length != 0;                   // Si se ha indicado una carpeta externa
+        File carpeta = new File(hayRutaLabAlt ? args[0] : DEF_RUTA_FCH_LABERINTOS);
         CargadorLaberinto cargador = null;
         int idx = 1;
 
+        if (args.length > 1) {
+            ejecutarLotes(carpeta, crearEjecutor(args[1]),
+                    args.length > 2 ? Integer.parseInt(args[2]) : CargadorLaberintoAsincrono.DEF_PROFUNDIDAD);
+            return;
+        }
+
+        // Los ficheros grandes se proyectan en memoria y se admite el formato binario
         try {
-            cargador = new CargadorLaberinto(new File(hayRutaLabAlt ? args[0] : DEF_RUTA_FCH_LABERINTOS),
-                    new CasillaParser());
+            cargador = new CargadorLaberinto(carpeta, new CasillaParserBinario());
         } catch (FileNotFoundException e) {
             e.printStackTrace();
         }
@@ -39,8 +61,13 @@ public class Simulador {
         EjecutorExpansor genYPrueba = new EjecutorExpansor(new GeneracionYPrueba(EjecutorExpansor.heuristicaPorDefecto()));
         EjecutorExpansor escSimple = new EjecutorExpansor(new EscaladaSimple(EjecutorExpansor.heuristicaPorDefecto()));
         EjecutorExpansor escMaxPen = new EjecutorExpansor(new EscaladaMaximaPendiente(EjecutorExpansor.heuristicaPorDefecto()));
+        EjecutorExpansor busqHaz = new EjecutorExpansor(new BusquedaHaz(EjecutorExpansor.heuristicaPorDefecto()));
         EjecutorExpansor primeroMejor = new EjecutorExpansor(new PrimeroMejor(EjecutorExpansor.heuristicaPorDefecto()));
         EjecutorExpansor aEstrella = new EjecutorExpansor(new AEstrella(EjecutorExpansor.heuristicaPorDefecto()));
+        EjecutorExpansor puntosSalto = new EjecutorExpansor(new BusquedaPuntosSalto(EjecutorExpansor.heuristicaPorDefecto()));
+        EjecutorExpansor aEstrellaBi = new EjecutorExpansor(new AEstrellaBidireccional(EjecutorExpansor.heuristicaPorDefecto()));
+        EjecutorExpansor aEstrellaAnytime = new EjecutorExpansor(new AEstrellaAnytime(EjecutorExpansor.heuristicaPorDefecto()));
+        EjecutorExpansor aEstrellaIncremental = new EjecutorExpansor(new AEstrellaIncremental(EjecutorExpansor.heuristicaPorDefecto()));
 
         // Ejecuta cada algoritmo implementado con cada heurística implementada
         //noinspection ConstantConditions
@@ -50,9 +77,82 @@ public class Simulador {
             genYPrueba.ejecutar();
             escSimple.ejecutar();
             escMaxPen.ejecutar();
+            busqHaz.ejecutar();
             primeroMejor.ejecutar();
             aEstrella.ejecutar();
+            puntosSalto.ejecutar();
+            aEstrellaBi.ejecutar();
+            aEstrellaAnytime.ejecutar();
+            aEstrellaIncremental.ejecutar();
         } while (cargador.cargarSiguienteLaberinto());
     }
 
+    /**
+     * Resuelve en paralelo cada laberinto de la carpeta con cada algoritmo y heurística implementados, y muestra el
+     * rendimiento obtenido en resoluciones por segundo. Los laberintos se cargan en segundo plano mientras se
+     * resuelven los anteriores
+     *
+     * @param carpeta     Carpeta de ficheros de laberinto
+     * @param ejecutor    Hilos en los que se ejecutan los trabajos. Se cierra al terminar
+     * @param profundidad Número de laberintos que se precargan, y de laberintos que se resuelven a la vez
+     */
+    private static void ejecutarLotes(File carpeta, ExecutorService ejecutor, int profundidad) {
+        EjecutorLotes lotes = new EjecutorLotes(ejecutor,
+                Arrays.<BiFunction<Laberinto, Heuristica, ExpansorArbol>>asList(GeneracionYPrueba::new,
+                        EscaladaSimple::new, EscaladaMaximaPendiente::new, BusquedaHaz::new, PrimeroMejor::new,
+                        AEstrella::new, BusquedaPuntosSalto::new, AEstrellaBidireccional::new,
+                        AEstrellaAnytime::new, AEstrellaIncremental::new),
+                System.out, profundidad);
+        Stopwatch reloj = Stopwatch.createStarted();
+        Laberinto laberinto;
+
+        // Los ficheros grandes se proyectan en memoria y se admite el formato binario
+        try (CargadorLaberintoAsincrono cargador = new CargadorLaberintoAsincrono(carpeta, new CasillaParserBinario(),
+                profundidad)) {
+            // Cada laberinto se carga en una nueva instancia para no modificar los que siguen resolviéndose
+            while ((laberinto = cargador.siguienteLaberinto()) != null)
+                lotes.encolar(laberinto);
+        } catch (FileNotFoundException e) {
+            e.printStackTrace();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            // Muestra los resultados de los laberintos ya encolados aunque la carga se haya detenido
+            try {
+                lotes.finalizar();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                ejecutor.shutdownNow();
+            }
+        }
+
+        System.out.println("\n" + lotes.getContTrabajos() + " resoluciones de " + lotes.getContLaberintos() +
+                " laberintos en " + reloj + " : " + lotes.getContTrabajos() * TimeUnit.SECONDS.toNanos(1) /
+                Math.max(reloj.elapsed(TimeUnit.NANOSECONDS), 1) + " resoluciones/s");
+    }
+
+    /**
+     * Crea el ejecutor del modo por lotes. Los hilos virtuales sólo están disponibles a partir de Java 21, en versiones
+     * anteriores se emplea un grupo fijo con un hilo por núcleo
+     *
+     * @param hilos Número de hilos, {@code 0} para usar todos los núcleos, o {@value HILOS_VIRTUALES}
+     * @return Ejecutor de los trabajos
+     */
+    private static ExecutorService crearEjecutor(String hilos) {
+        int numHilos = 0;
+
+        if (HILOS_VIRTUALES.equalsIgnoreCase(hilos)) {
+            try {
+                return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+            } catch (ReflectiveOperationException e) {
+                System.err.println("Hilos virtuales no disponibles, se emplea un hilo por núcleo");
+            }
+        } else {
+            numHilos = Integer.parseInt(hilos);
+        }
+
+        return Executors.newFixedThreadPool(numHilos > 0 ? numHilos : Runtime.getRuntime().availableProcessors());
+    }
+
 }
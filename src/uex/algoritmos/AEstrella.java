@@ -4,14 +4,18 @@ import uex.Jugador;
 import uex.Laberinto;
 import uex.durian.TreeNode;
 import uex.heuristicas.Heuristica;
-import uex.movimiento.ControladorMovimiento;
 import uex.movimiento.Posicion;
+import uex.movimiento.TablaVecinos;
 
 import java.util.*;
-import java.util.stream.Collectors;
+
+import static uex.algoritmos.ArenaNodos.NINGUNO;
 
 /**
  * Clase que implementa el algoritmo de la A Estrella (A*)
+ * <p>
+ * Los nodos del árbol de decisión se guardan en la arena del expansor ({@link ArenaNodos}) con su coste y su
+ * ponderación, sin crear estados ni nodos {@link TreeNode}; éstos sólo se construyen para mostrar la solución
  *
  * @author Juan Pablo García Plaza Pérez
  * @author José Ángel Concha Carrasco
@@ -19,14 +23,27 @@ import java.util.stream.Collectors;
  */
 public class AEstrella extends ExpansorArbol {
 
-    private ArrayList<TreeNode<EstadoLaberinto>> nodosAbiertos;     // Colección de nodos en exploración
-    private Set<TreeNode<EstadoLaberinto>> nodosCerrados;           // Colección de nodos explorados
+    private MonticuloPrimitivo nodosAbiertos;       // Cola indexada de nodos en exploración, por ponderación
+    private int[] nodosPorCasilla;                  // Nodo expandido (abierto o cerrado) de cada casilla
+    private int[] origenes;                         // Casilla del nodo que generó el nodo de cada casilla
+    private int[] pila;                             // Nodos pendientes al actualizar los costes de un subárbol
+    private int contNodosExp;                       // Número de nodos expandidos (cerrados)
 
     /**
      * @param heuristica Función heurística a aplicar a los nodos del árbol
      */
     public AEstrella(Heuristica heuristica) {
-        super(heuristica);
+        this(Laberinto.instancia(), heuristica);
+    }
+
+    /**
+     * @param laberinto  Laberinto a resolver
+     * @param heuristica Función heurística a aplicar a los nodos del árbol
+     */
+    public AEstrella(Laberinto laberinto, Heuristica heuristica) {
+        super(laberinto, heuristica);
+        nodosAbiertos = MonticuloPrimitivo.indexado();
+        pila = new int[TablaVecinos.NUM_DIRECCIONES];
         resetExpansor();
     }
 
@@ -35,13 +52,20 @@ public class AEstrella extends ExpansorArbol {
      */
     @Override
     protected void resetExpansor() {
-        // Actualiza el estado inicial a un estado ponderado inicial
-        setArbolDecision(new TreeNode<>(null, EstadoLaberintoPonderado.estadoInicial(getHeuristica())));
-        nodosAbiertos = new ArrayList<>();
-        nodosCerrados = new HashSet<>();
-        nodosAbiertos.add(getArbolDecision());                      // Añade el primer nodo, el estado inicial
+        int numCasillas = getLaberinto().getNumCasillas();
+        int casillaInicial = getLaberinto().indice(new Jugador(getLaberinto()).ctrlMovimiento().posicion());
+
+        getArena().vaciar();
+        nodosAbiertos.vaciar();
+        nodosPorCasilla = new int[numCasillas];
+        origenes = new int[numCasillas];
+        Arrays.fill(nodosPorCasilla, NINGUNO);
+
+        // Añade el primer nodo, el estado inicial
+        agregarNodoAbierto(getArena().crear(NINGUNO, casillaInicial, 0, ponderacion(casillaInicial, 0)), NINGUNO);
 
         setContNodosGen(0);                                         // Reinicia el número de nodos generados
+        contNodosExp = 0;                                           // Reinicia el número de nodos expandidos
         getReloj().reset();                                         // Reinicia el cronómetro
     }
 
@@ -54,75 +78,95 @@ public class AEstrella extends ExpansorArbol {
         resetExpansor();
 
         // Extracción de variables locales
-        Laberinto laberinto = Laberinto.instancia();
-        TreeNode<EstadoLaberinto> mejorNodo = nodosAbiertos.get(0); // Nodo más prometedor
-        Posicion operando;
-        Jugador clon;
-        ArrayList<Posicion> visitadas;
+        Laberinto laberinto = getLaberinto();
+        ArenaNodos arena = getArena();
+        int[] operandos = new int[TablaVecinos.NUM_DIRECCIONES];    // Casillas a las que moverse desde el nodo
+        int mejorNodo = mejorNodoAbierto();                         // Nodo más prometedor
+        int numOperandos;
 
         getReloj().start();
 
         // Comprueba si es la casilla objetivo o si hay suficiente umbral para continuar el algoritmo
-        while (!laberinto.casilla(mejorNodo.getContent().getJugador().ctrlMovimiento().posicion()).esObjetivo() &&
-                mejorNodo.getContent().getUmbral() <= laberinto.getUmbral()) {
+        while (mejorNodo != NINGUNO && !laberinto.esObjetivo(arena.casilla(mejorNodo)) &&
+                arena.coste(mejorNodo) <= laberinto.getUmbral()) {
             // Cerrar el nodo más prometedor
             agregarNodoCerrado(mejorNodo);
             // Expande todos sus estados
-            do {
-                clon = (Jugador) mejorNodo.getContent().getJugador().clone();
-                visitadas = new ArrayList<>();
-                operando = seleccionarOperando(mejorNodo);
-
-                // Comprueba que el operador sea válido
-                if (operando != null) {
-                    // Aplica el operando
-                    clon.ctrlMovimiento().setPosicionAbsoluta(operando);
-                    visitadas.add(mejorNodo.getContent().getJugador().ctrlMovimiento().posicion());
-
-                    // Genera el nuevo estado
-                    EstadoLaberintoPonderado estadoExpandido =
-                            new EstadoLaberintoPonderado(clon, visitadas, mejorNodo.getContent().getUmbral() +
-                                    costeAsociado(operando), getHeuristica());
-                    setContNodosGen(getContNodosGen() + 1);
-
-                    // Comprueba si el nuevo estado ya ha sido expandido
-                    if (enNodos(estadoExpandido)) {
-                        TreeNode<EstadoLaberinto> nodoEquivalente = recNodoEquiv(estadoExpandido);
-                        EstadoLaberinto estadoEquivalente = nodoEquivalente.getContent();
-                        // Si ha sido expandido comprueba si supone una alternativa mejor
-                        if (estadoExpandido.getUmbral() < estadoEquivalente.getUmbral()) {
-                            // Cambia el padre al nodo más prometedor y actualiza su coste y el de sus hijos
-                            nodoEquivalente.changeParent(mejorNodo);
-                            estadoEquivalente.setUmbral(estadoExpandido.getUmbral());
-                            actualizarHijos(nodoEquivalente);
-                            ordenarNodosAbiertos();
-                        } // Si no supone una alternativa mejor se descarta
-                    } else {
-                        // Si no ha sido expandido se añade al árbol de decisión y a la colección de nodos abiertos
-                        TreeNode<EstadoLaberinto> nodoExpandido = new TreeNode<>(mejorNodo, estadoExpandido);
-                        agregarNodoAbierto(nodoExpandido);
-                    }
+            numOperandos = seleccionarOperandos(mejorNodo, operandos);
+            for (int i = 0; i < numOperandos; i++) {
+                int operando = operandos[i];
+                int coste = arena.coste(mejorNodo) + laberinto.coste(operando);
+                int nodoEquivalente = nodosPorCasilla[operando];
+
+                setContNodosGen(getContNodosGen() + 1);
+
+                // Comprueba si el nuevo estado ya ha sido expandido
+                if (nodoEquivalente != NINGUNO) {
+                    // Si ha sido expandido comprueba si supone una alternativa mejor
+                    if (coste < arena.coste(nodoEquivalente)) {
+                        // Cambia el padre al nodo más prometedor y actualiza su coste y el de sus hijos
+                        arena.cambiarPadre(nodoEquivalente, mejorNodo);
+                        actualizarCoste(nodoEquivalente, coste);
+                        actualizarHijos(nodoEquivalente);
+                    } // Si no supone una alternativa mejor se descarta
+                } else {
+                    // Si no ha sido expandido se añade al árbol de decisión y a la colección de nodos abiertos
+                    agregarNodoAbierto(arena.crear(mejorNodo, operando, coste, ponderacion(operando, coste)),
+                            arena.casilla(mejorNodo));
                 }
-            } while (operando != null);
+            }
 
-            mejorNodo = nodosAbiertos.get(0);
+            mejorNodo = mejorNodoAbierto();
         }
 
         getReloj().stop();
 
         // Se encontró una solución si el umbral está por debajo del establecido, sino no tiene solución
-        if (mejorNodo.getContent().getUmbral() <= laberinto.getUmbral()) {
-            System.out.println("SOLUCIÓN ENCONTRADA");
-            mostrarSolucion(mejorNodo);
+        if (mejorNodo != NINGUNO && arena.coste(mejorNodo) <= laberinto.getUmbral()) {
+            getSalida().println("SOLUCIÓN ENCONTRADA");
+            mostrarSolucion(arena.camino(mejorNodo, this::estado));
         } else {
-            System.out.println("NO TIENE SOLUCIÓN");
+            getSalida().println("NO TIENE SOLUCIÓN");
+        }
+    }
+
+    /**
+     * Obtiene las casillas a las que es posible moverse desde un nodo, ordenadas por su coste. Sigue el mismo criterio
+     * que {@link AEstrella#seleccionarOperando(TreeNode)}: se descarta la casilla del nodo que generó el nodo
+     * suministrado, para no volver hacia atrás
+     *
+     * @param nodo      Nodo a expandir
+     * @param operandos Array en el que guardar las casillas de destino
+     * @return Número de casillas de destino
+     */
+    private int seleccionarOperandos(int nodo, int[] operandos) {
+        Laberinto laberinto = getLaberinto();
+        TablaVecinos tablaVecinos = laberinto.getTablaVecinos();
+        int casilla = getArena().casilla(nodo);
+        int numOperandos = 0;
+
+        for (int m = tablaVecinos.mascara(casilla); m != 0; m &= m - 1) {
+            int vecino = tablaVecinos.vecino(casilla, Integer.numberOfTrailingZeros(m));
+
+            if (vecino != origenes[casilla]) {
+                int i = numOperandos++;
+
+                // Inserción ordenada por coste. Los empates mantienen el orden de las direcciones
+                while (i > 0 && laberinto.coste(operandos[i - 1]) > laberinto.coste(vecino)) {
+                    operandos[i] = operandos[i - 1];
+                    i--;
+                }
+                operandos[i] = vecino;
+            }
         }
+
+        return numOperandos;
     }
 
     /**
-     * Selecciona un operando aplicable a un nodo. La lista de posiciones visitadas en primer lugar contiene la posicion
-     * del nodo que creó el nodo actual, y tras sucesivas llamadas a este método, contendrá cada posicion expandida
-     * hasta que no queden posiciones posibles. Evita que se vuelva hacia atrás por el nodo padre
+     * Selecciona un operando aplicable a un nodo. El conjunto de casillas visitadas en primer lugar contiene la
+     * posicion del nodo que creó el nodo actual, y tras sucesivas llamadas a este método, contendrá cada posicion
+     * expandida hasta que no queden posiciones posibles. Evita que se vuelva hacia atrás por el nodo padre
      *
      * @param nodo Nodo con el estado laberinto para el que seleccionar un operando
      * @return En cada llamada un operando disponible no visitado. Cuando se agoten devolverá nulo
@@ -132,26 +176,20 @@ public class AEstrella extends ExpansorArbol {
         // Variables del estado del laberinto actual
         EstadoLaberinto estadoLaberinto = nodo.getContent();
         /*
-        La lista de posiciones visitadas en primer lugar contiene la posicion del nodo que creó el nodo actual, y tras
+        El conjunto de casillas visitadas en primer lugar contiene la posicion del nodo que creó el nodo actual, y tras
         sucesivas llamadas a este método, contendrá cada posicion expandida hasta que no queden posiciones posibles.
         Evita que se vuelva hacia atrás por el nodo padre
          */
-        List<Posicion> posVisitadas = estadoLaberinto.getPosVisitadas();
-        ControladorMovimiento cMov = estadoLaberinto.getJugador().ctrlMovimiento();
 
         /*
-         Obtiene los movimientos posibles a partir de la posición actual y filtra aquellas que no resulten
-         en una posición ya expandida. Después ordena los movimientos por costes
+         Obtiene las posiciones vecinas a la posición actual que no estén ya expandidas. Después las ordena por
+         costes
          */
-        List<Posicion> posPosibles = cMov.movimientosPosibles()
-                .stream()
-                .map(cMov::aplicarMovimiento)
-                .filter(posicion -> !posVisitadas.contains(posicion))
-                .sorted(Comparator.comparingInt(this::costeAsociado))
-                .collect(Collectors.toList());
+        List<Posicion> posPosibles = posicionesNoVisitadas(estadoLaberinto);
+        posPosibles.sort(Comparator.comparingInt(this::costeAsociado));
 
         // Si queda alguna posición posible la añade a las expandidas
-        if (posPosibles.size() != 0) posVisitadas.add(posPosibles.get(0));
+        if (posPosibles.size() != 0) estadoLaberinto.marcarVisitada(posPosibles.get(0));
         else return null;
 
         // Siguente posición posible elegida
@@ -167,14 +205,14 @@ public class AEstrella extends ExpansorArbol {
     @Override
     protected void mostrarSolucion(TreeNode<EstadoLaberinto> arbolDecision) {
         // Imprime tiempo empleado
-        System.out.println("Tiempo empleado : " + getReloj());
+        getSalida().println("Tiempo empleado : " + getReloj());
         // Imprime el número de nodos generados en memoria
-        System.out.println("Número de nodos generados : " + getContNodosGen());
+        getSalida().println("Número de nodos generados : " + getContNodosGen());
 
         ArrayList<Posicion> camino = new ArrayList<>();
         recuperarCamino(arbolDecision, camino);
-        System.out.println(new Laberinto.Solucionado(camino, arbolDecision.getContent().getUmbral()));
-        System.out.println(arbolDecision.getPath(EstadoLaberinto::toString, ""));
+        getSalida().println(new Laberinto.Solucionado(getLaberinto(), camino, arbolDecision.getContent().getUmbral()));
+        getSalida().println(arbolDecision.getPath(EstadoLaberinto::toString, ""));
     }
 
     /**
@@ -182,93 +220,104 @@ public class AEstrella extends ExpansorArbol {
      * @param camino Camino hasta la solución por el nodo suministrado
      */
     private void recuperarCamino(TreeNode<EstadoLaberinto> nodo, List<Posicion> camino) {
-        camino.add(nodo.getContent().getJugador().ctrlMovimiento().posicion());
-        if (nodo.getParent() != null)
-            recuperarCamino(nodo.getParent(), camino);
+        for (TreeNode<EstadoLaberinto> actual = nodo; actual != null; actual = actual.getParent())
+            camino.add(actual.getContent().getJugador().ctrlMovimiento().posicion());
     }
 
     /**
-     * Añade un nodo a la lista ordenada de nodos abiertos
-     *
-     * @param nodo Nodo a añadir
+     * @param nodo Nodo de la arena
+     * @return Estado ponderado equivalente al nodo, para mostrarlo
      */
-    private void agregarNodoAbierto(TreeNode<EstadoLaberinto> nodo) {
-        nodosAbiertos.add(nodo);
-        ordenarNodosAbiertos();
+    private EstadoLaberinto estado(int nodo) {
+        return new EstadoLaberintoPonderado(jugadorEn(getArena().casilla(nodo)),
+                new Visitadas(getLaberinto().getNumCasillas()), getArena().coste(nodo), getHeuristica());
     }
 
     /**
-     * Añade un nodo a la colección de nodos cerrados y lo elimina de los nodos abiertos
-     *
-     * @param nodo Nodo abierto a añadir
+     * @param casilla Casilla del nodo
+     * @param coste   Coste acumulado del nodo
+     * @return Ponderación del nodo : puntuación heurística de la casilla más el coste acumulado
      */
-    private void agregarNodoCerrado(TreeNode<EstadoLaberinto> nodo) {
-        nodosAbiertos.remove(nodo);
-        nodosCerrados.add(nodo);
+    private int ponderacion(int casilla, int coste) {
+        return (int) getHeuristica().aplicar(getLaberinto(), casilla) + coste;
     }
 
     /**
-     * Ordena los nodos abiertos por ponderación ascendentemente
+     * Añade un nodo a la cola con prioridad de nodos abiertos y lo indexa por la casilla que ocupa
+     *
+     * @param nodo   Nodo a añadir
+     * @param origen Casilla del nodo que lo ha generado, o {@link ArenaNodos#NINGUNO} si es el nodo inicial
      */
-    private void ordenarNodosAbiertos() {
-        nodosAbiertos.sort(Comparator.comparing(TreeNode::getContent));
+    private void agregarNodoAbierto(int nodo, int origen) {
+        int casilla = getArena().casilla(nodo);
+
+        nodosAbiertos.insertar(getArena().ponderacion(nodo), nodo);
+        nodosPorCasilla[casilla] = nodo;
+        origenes[casilla] = origen;
     }
 
     /**
-     * @return Todos los nodos expandidos hasta ahora
+     * Cierra el nodo más prometedor, extrayéndolo de los nodos abiertos. Sigue indexado por su casilla como nodo
+     * expandido
+     *
+     * @param nodo Nodo abierto a cerrar, obtenido de {@link AEstrella#mejorNodoAbierto()}
      */
-    private Collection<TreeNode<EstadoLaberinto>> nodosExpandidos() {
-        Set<TreeNode<EstadoLaberinto>> nodos = new HashSet<>(new HashSet<>(nodosAbiertos));
-        nodos.addAll(nodosCerrados);
-
-        return nodos;
+    private void agregarNodoCerrado(int nodo) {
+        nodosAbiertos.extraerMinimo();
+        contNodosExp++;
     }
 
     /**
-     * @param estadoLaberintoPonderado Estado a comprobar si ya existe
-     * @return Si el estado suministrado ya ha sido expandido
+     * @return Nodo abierto más prometedor, o {@link ArenaNodos#NINGUNO} si no queda ninguno
      */
-    private boolean enNodos(EstadoLaberinto estadoLaberintoPonderado) {
-        return nodosExpandidos()
-                .stream()
-                .map(TreeNode::getContent)
-                .filter(estadoLaberinto -> estadoLaberinto.equals(estadoLaberintoPonderado))
-                .collect(Collectors.toSet()).size() != 0;
+    private int mejorNodoAbierto() {
+        return nodosAbiertos.estaVacio() ? NINGUNO : nodosAbiertos.verMinimo();
     }
 
     /**
-     * @param estadoLaberintoPonderado Clave con la que recuperar el estado equivalente
-     * @return Nodo con el estado equivalente al pasado por parámetro
+     * Actualiza el coste y la ponderación de un nodo, y rebaja su prioridad en la cola si sigue en exploración
+     *
+     * @param nodo  Nodo a actualizar
+     * @param coste Nuevo coste del nodo, menor que el anterior
      */
-    private TreeNode<EstadoLaberinto> recNodoEquiv(EstadoLaberinto estadoLaberintoPonderado) {
-        return nodosExpandidos()
-                .stream()
-                .filter(nodo -> nodo.getContent().equals(estadoLaberintoPonderado))
-                .collect(Collectors.toList()).get(0);
+    private void actualizarCoste(int nodo, int coste) {
+        ArenaNodos arena = getArena();
+
+        // La puntuación heurística de la casilla no cambia
+        arena.setPonderacion(nodo, arena.ponderacion(nodo) - arena.coste(nodo) + coste);
+        arena.setCoste(nodo, coste);
+        if (nodosAbiertos.contiene(nodo)) nodosAbiertos.rebajarPrioridad(arena.ponderacion(nodo), nodo);
     }
 
     /**
-     * Actualiza el coste y la ponderación de los hijos del padre {@code nodo} a partir de su nuevo coste
+     * Actualiza el coste y la ponderación de todos los descendientes de {@code nodo} a partir de su nuevo coste
      *
      * @param nodo Nodo padre con coste modificado
      */
-    private void actualizarHijos(TreeNode<EstadoLaberinto> nodo) {
-        int costeMovHijo;
-
-        // Si tiene hijos los actualiza
-        if (nodo.getChildren().size() != 0) {
-            // Para cada hijo actualiza su coste y ponderación
-            for (TreeNode<EstadoLaberinto> hijo : nodo.getChildren()) {
-                EstadoLaberinto estadoHijo = hijo.getContent();
-                // Coste del movimiento que representa el hijo
-                costeMovHijo = costeAsociado(estadoHijo.getJugador().ctrlMovimiento().posicion());
-                // Actualiza el coste del hijo con el nuevo coste del padre más el coste de su movimiento asociado
-                estadoHijo.setUmbral(nodo.getContent().getUmbral() + costeMovHijo);
+    private void actualizarHijos(int nodo) {
+        ArenaNodos arena = getArena();
+        int numPendientes = 0;
+
+        pila[numPendientes++] = nodo;
+        while (numPendientes != 0) {
+            int padre = pila[--numPendientes];
+
+            // Para cada hijo actualiza su coste con el nuevo coste del padre más el coste de su movimiento asociado
+            for (int hijo = arena.primerHijo(padre); hijo != NINGUNO; hijo = arena.siguienteHermano(hijo)) {
+                actualizarCoste(hijo, arena.coste(padre) + getLaberinto().coste(arena.casilla(hijo)));
                 // Si el hijo tiene más descendientes los actualiza también
-                if (hijo.getChildren().size() != 0)
-                    actualizarHijos(hijo);
+                if (arena.primerHijo(hijo) != NINGUNO) {
+                    if (numPendientes == pila.length) pila = Arrays.copyOf(pila, pila.length * 2);
+                    pila[numPendientes++] = hijo;
+                }
             }
         }
     }
 
+    /**
+     * @return Número de nodos expandidos en la última resolución
+     */
+    public int getContNodosExp() {
+        return contNodosExp;
+    }
 }
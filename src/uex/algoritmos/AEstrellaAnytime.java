@@ -0,0 +1,475 @@
+package uex.algoritmos;
+
+import uex.Jugador;
+import uex.Laberinto;
+import uex.durian.TreeNode;
+import uex.heuristicas.Heuristica;
+import uex.movimiento.Posicion;
+import uex.movimiento.TablaVecinos;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import static uex.algoritmos.ArenaNodos.NINGUNO;
+
+/**
+ * Clase que implementa el algoritmo A* anytime de peso decreciente (ARA*)
+ * <p>
+ * Realiza búsquedas A* sucesivas con la puntuación inflada f = g + w·h', donde g es el coste acumulado y h' la
+ * estimación heurística. Las heurísticas cuentan la entrada en la casilla objetivo como un movimiento, aunque no cuesta
+ * nada, por lo que se emplea {@code h' = max(0, h - 1)}, que no sobreestima. La primera búsqueda emplea un peso w alto
+ * y obtiene pronto una solución cuyo coste no supera w veces el óptimo; cada búsqueda siguiente reduce el peso hasta
+ * llegar a 1, en la que la solución es la de {@link AEstrella}. Cada búsqueda reutiliza los costes de la anterior: sólo vuelve a expandir las casillas abiertas y
+ * las cerradas cuyo coste mejoró después de expandirlas (inconsistentes), que se reabren al cambiar el peso.
+ * <p>
+ * Cada solución mejorada se comunica al {@link Oyente} junto con su cota de suboptimalidad, la menor entre el peso y
+ * el cociente entre su coste y la menor puntuación g + h' de las casillas pendientes. La casilla objetivo no se
+ * expande, y cada búsqueda continúa mientras alguna casilla abierta empate con ella, de modo que la última obtiene el
+ * mismo coste que {@link AEstrella}. Con un tiempo máximo se muestra la mejor solución obtenida al agotarlo
+ *
+ * @author Juan Pablo García Plaza Pérez
+ * @author José Ángel Concha Carrasco
+ * @author Sergio Barrantes de la Osa
+ */
+public class AEstrellaAnytime extends ExpansorArbol {
+
+    public static final double DEF_PESO_INICIAL = 3;                // Peso de la heurística en la primera búsqueda
+    public static final double DEF_DECREMENTO_PESO = 0.5;           // Reducción del peso entre búsquedas
+
+    private static final int SIN_COSTE = Integer.MAX_VALUE;         // Coste de las casillas no alcanzadas
+    private static final int ESCALA_PESO = 100;                     // Resolución del peso en las prioridades de la cola
+    private static final int PASOS_PLAZO = 1024;                    // Expansiones entre comprobaciones del plazo
+
+    private double pesoInicial;                                     // Peso de la heurística en la primera búsqueda
+    private double decrementoPeso;                                  // Reducción del peso entre búsquedas
+    private long nanosMaximos;                                      // Tiempo máximo de resolución, 0 si no hay límite
+    private Oyente oyente;                                          // Destinatario de las soluciones mejoradas
+
+    private final MonticuloPrimitivo abiertos;                      // Casillas en exploración, por puntuación inflada
+    private int[] costes;                                           // Coste desde la casilla inicial
+    private int[] padres;                                           // Casilla anterior en el camino desde la inicial
+    private Visitadas enAbiertos;                                   // Casillas en exploración en la búsqueda actual
+    private Visitadas cerradas;                                     // Casillas expandidas en la búsqueda actual
+    private Visitadas inconsistentes;                               // Casillas cerradas cuyo coste ha mejorado
+    private int casillaObjetivo;                                    // Casilla objetivo, o NINGUNO si no existe
+    private int pesoEscalado;                                       // Peso de la búsqueda actual por ESCALA_PESO
+    private int mejorCoste;                                         // Coste de la mejor solución encontrada
+    private double cota;                                            // Cota de suboptimalidad de la mejor solución
+    private int numIteraciones;                                     // Número de búsquedas realizadas
+    private int contNodosExp;                                       // Número de nodos expandidos
+
+    /**
+     * @param heuristica Función heurística a aplicar a los nodos del árbol
+     */
+    public AEstrellaAnytime(Heuristica heuristica) {
+        this(Laberinto.instancia(), heuristica);
+    }
+
+    /**
+     * @param laberinto  Laberinto a resolver
+     * @param heuristica Función heurística a aplicar a los nodos del árbol
+     */
+    public AEstrellaAnytime(Laberinto laberinto, Heuristica heuristica) {
+        this(laberinto, heuristica, DEF_PESO_INICIAL, DEF_DECREMENTO_PESO);
+    }
+
+    /**
+     * @param laberinto      Laberinto a resolver
+     * @param heuristica     Función heurística a aplicar a los nodos del árbol
+     * @param pesoInicial    Peso de la heurística en la primera búsqueda
+     * @param decrementoPeso Reducción del peso entre búsquedas
+     * @throws IllegalArgumentException Si el peso inicial es menor que 1 o el decremento no es positivo
+     */
+    public AEstrellaAnytime(Laberinto laberinto, Heuristica heuristica, double pesoInicial, double decrementoPeso) {
+        super(laberinto, heuristica);
+        abiertos = new MonticuloPrimitivo();
+        setPesos(pesoInicial, decrementoPeso);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected void resetExpansor() {
+        Laberinto laberinto = getLaberinto();
+        int numCasillas = laberinto.getNumCasillas();
+        int casillaInicial = laberinto.indice(new Jugador(laberinto).ctrlMovimiento().posicion());
+
+        setArbolDecision(new TreeNode<>(null, EstadoLaberinto.estadoInicial(laberinto)));
+        if (costes == null || costes.length != numCasillas) {
+            costes = new int[numCasillas];
+            padres = new int[numCasillas];
+        }
+        Arrays.fill(costes, SIN_COSTE);
+        enAbiertos = new Visitadas(numCasillas);
+        cerradas = new Visitadas(numCasillas);
+        inconsistentes = new Visitadas(numCasillas);
+        abiertos.vaciar();
+        casillaObjetivo = laberinto.getPosObjetivc() != null ? laberinto.indice(laberinto.getPosObjetivc()) : NINGUNO;
+        pesoEscalado = (int) Math.round(pesoInicial * ESCALA_PESO);
+        mejorCoste = SIN_COSTE;
+        cota = Double.POSITIVE_INFINITY;
+        numIteraciones = 0;
+
+        // La casilla inicial es la primera abierta
+        costes[casillaInicial] = 0;
+        padres[casillaInicial] = NINGUNO;
+        enAbiertos.marcar(casillaInicial);
+        abiertos.insertar(clave(casillaInicial), casillaInicial);
+
+        setContNodosGen(0);                                         // Reinicia el número de nodos generados
+        contNodosExp = 0;                                           // Reinicia el número de nodos expandidos
+        getReloj().reset();                                         // Reinicia el cronómetro
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void resolver() {
+        BooleanSupplier plazoVencido;
+        boolean completa = true;                                    // Si la última búsqueda terminó dentro del plazo
+
+        // REINICIO DE VARIABLES ENTRE RESOLUCIONES DE LABERINTOS
+        resetExpansor();
+        getReloj().start();
+        plazoVencido = plazoVencido(System.nanoTime());
+
+        /*
+         Repite la búsqueda reduciendo el peso mientras la solución pueda no ser óptima. Aunque una búsqueda no alcance
+         la casilla objetivo se continúa si quedan casillas pendientes: las inconsistentes no se han vuelto a expandir, y
+         el umbral pudo descartar caminos a través de ellas que sí lo cumplen
+         */
+        do {
+            if (numIteraciones != 0) reducirPeso();
+            numIteraciones++;
+            completa = mejorarCamino(plazoVencido);
+            if (completa) publicarSolucion();
+        } while (completa && pesoEscalado > ESCALA_PESO && (mejorCoste != SIN_COSTE || hayPendientes()));
+
+        getReloj().stop();
+
+        if (mejorCoste != SIN_COSTE) {
+            Visitadas enCamino = new Visitadas(getLaberinto().getNumCasillas());
+            ArenaNodos camino = caminoEnArena(enCamino);
+
+            getSalida().println("SOLUCIÓN ENCONTRADA en " + numIteraciones + " iteraciones" +
+                    (completa ? "" : ", plazo agotado"));
+            getSalida().printf("Peso final : %.2f, cota de suboptimalidad : %.3f%n", peso(), cota);
+            getSalida().println("Número de nodos expandidos : " + contNodosExp);
+            mostrarSolucion(vistaCamino(camino, camino.tamanio() - 1, enCamino));
+        } else {
+            getSalida().println(completa ? "NO TIENE SOLUCIÓN" : "NO ENCONTRÓ SOLUCIÓN\nSe agotó el plazo\n");
+        }
+    }
+
+    /**
+     * Búsqueda A* con el peso actual que no vuelve a expandir las casillas cerradas en ella: si su coste mejora se
+     * anotan como inconsistentes. Termina cuando todas las casillas abiertas tienen una puntuación inflada mayor que la
+     * objetivo. Los caminos que superan el umbral se descartan
+     *
+     * @param plazoVencido Indica si se ha agotado el tiempo de resolución
+     * @return Si la búsqueda ha terminado antes de agotarse el plazo
+     */
+    private boolean mejorarCamino(BooleanSupplier plazoVencido) {
+        Laberinto laberinto = getLaberinto();
+        TablaVecinos tablaVecinos = laberinto.getTablaVecinos();
+        int casilla;
+
+        while ((casilla = mejorAbierta()) != NINGUNO && claveObjetivo() >= abiertos.verPrioridadMinima()) {
+            if (contNodosExp % PASOS_PLAZO == 0 && plazoVencido.getAsBoolean()) return false;
+
+            abiertos.extraerMinimo();
+            enAbiertos.desmarcar(casilla);
+            cerradas.marcar(casilla);
+            contNodosExp++;
+            for (int m = tablaVecinos.mascara(casilla); m != 0; m &= m - 1) {
+                int vecino = tablaVecinos.vecino(casilla, Integer.numberOfTrailingZeros(m));
+                int coste = costes[casilla] + laberinto.coste(vecino);
+
+                setContNodosGen(getContNodosGen() + 1);             // Incrementa en 1 el número de nodos generados
+                if (coste >= costes[vecino] || coste > laberinto.getUmbral()) continue;
+
+                costes[vecino] = coste;
+                padres[vecino] = casilla;
+                if (vecino == casillaObjetivo) continue;
+                if (cerradas.contiene(vecino)) {
+                    inconsistentes.marcar(vecino);
+                } else {
+                    enAbiertos.marcar(vecino);
+                    abiertos.insertar(clave(vecino), vecino);
+                }
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Reduce el peso para la siguiente búsqueda, reabre las casillas inconsistentes y recalcula la prioridad de todas
+     * las abiertas con el nuevo peso
+     */
+    private void reducirPeso() {
+        int numCasillas = getLaberinto().getNumCasillas();
+
+        pesoEscalado = Math.max(ESCALA_PESO, pesoEscalado - (int) Math.round(decrementoPeso * ESCALA_PESO));
+        for (int c = inconsistentes.siguiente(0); c >= 0; c = inconsistentes.siguiente(c + 1))
+            enAbiertos.marcar(c);
+
+        abiertos.vaciar();
+        for (int c = enAbiertos.siguiente(0); c >= 0; c = enAbiertos.siguiente(c + 1))
+            abiertos.insertar(clave(c), c);
+        inconsistentes = new Visitadas(numCasillas);
+        cerradas = new Visitadas(numCasillas);
+    }
+
+    /**
+     * @return Si queda alguna casilla abierta o inconsistente por expandir
+     */
+    private boolean hayPendientes() {
+        return enAbiertos.tamanio() != 0 || inconsistentes.tamanio() != 0;
+    }
+
+    /**
+     * Actualiza la cota de suboptimalidad de la solución y la comunica al oyente si la solución o su cota han mejorado
+     */
+    private void publicarSolucion() {
+        int coste = casillaObjetivo != NINGUNO ? costes[casillaObjetivo] : SIN_COSTE;
+        long minimo = Long.MAX_VALUE;                               // Menor puntuación g + h' de las pendientes
+        double nuevaCota;
+
+        if (coste == SIN_COSTE) return;
+
+        for (int c = enAbiertos.siguiente(0); c >= 0; c = enAbiertos.siguiente(c + 1))
+            minimo = Math.min(minimo, (long) costes[c] + estimacion(c));
+        for (int c = inconsistentes.siguiente(0); c >= 0; c = inconsistentes.siguiente(c + 1))
+            minimo = Math.min(minimo, (long) costes[c] + estimacion(c));
+
+        if (minimo >= coste) nuevaCota = 1;
+        else if (minimo == 0) nuevaCota = peso();
+        else nuevaCota = Math.min(peso(), coste / (double) minimo);
+
+        if (coste < mejorCoste || nuevaCota < cota) {
+            mejorCoste = coste;
+            cota = Math.min(cota, nuevaCota);
+            if (oyente != null) oyente.solucionMejorada(caminoEnPosiciones(), mejorCoste, cota);
+        }
+    }
+
+    /**
+     * Las entradas obsoletas de la cola, de casillas cerradas o cuya prioridad ha cambiado, se descartan aquí al
+     * llegar a la cabeza
+     *
+     * @return Casilla abierta de menor puntuación inflada, o {@link ArenaNodos#NINGUNO} si no queda ninguna
+     */
+    private int mejorAbierta() {
+        while (!abiertos.estaVacio()) {
+            int casilla = abiertos.verMinimo();
+
+            if (enAbiertos.contiene(casilla) && abiertos.verPrioridadMinima() == clave(casilla)) return casilla;
+            abiertos.extraerMinimo();
+        }
+
+        return NINGUNO;
+    }
+
+    /**
+     * @param casilla Casilla alcanzada por la búsqueda
+     * @return Puntuación inflada g + w·h' de la casilla por {@value ESCALA_PESO}, limitada al mayor entero
+     */
+    private int clave(int casilla) {
+        long clave = (long) costes[casilla] * ESCALA_PESO + (long) pesoEscalado * estimacion(casilla);
+
+        return (int) Math.min(Integer.MAX_VALUE, clave);
+    }
+
+    /**
+     * @param casilla Casilla del laberinto
+     * @return Estimación h' del coste desde la casilla hasta la objetivo. Las heurísticas cuentan como un movimiento la
+     * entrada en la casilla objetivo, que no cuesta nada
+     */
+    private int estimacion(int casilla) {
+        return Math.max(0, (int) aplicarHeuristica(casilla) - 1);
+    }
+
+    /**
+     * @return Puntuación inflada de la casilla objetivo, o el mayor entero si aún no se ha alcanzado
+     */
+    private int claveObjetivo() {
+        return casillaObjetivo != NINGUNO && costes[casillaObjetivo] != SIN_COSTE ? clave(casillaObjetivo) :
+                Integer.MAX_VALUE;
+    }
+
+    /**
+     * @return Casillas del camino hasta la objetivo, desde la inicial
+     */
+    private int[] caminoEnCasillas() {
+        int[] casillas = new int[TablaVecinos.NUM_DIRECCIONES];
+        int numCasillas = 0;
+
+        for (int c = casillaObjetivo; c != NINGUNO; c = padres[c]) {
+            if (numCasillas == casillas.length) casillas = Arrays.copyOf(casillas, casillas.length * 2);
+            casillas[numCasillas++] = c;
+        }
+
+        casillas = Arrays.copyOf(casillas, numCasillas);
+        for (int i = 0, j = numCasillas - 1; i < j; i++, j--) {
+            int casilla = casillas[i];
+
+            casillas[i] = casillas[j];
+            casillas[j] = casilla;
+        }
+
+        return casillas;
+    }
+
+    /**
+     * @return Posiciones del camino hasta la objetivo, desde la inicial
+     */
+    private List<Posicion> caminoEnPosiciones() {
+        TablaVecinos tablaVecinos = getLaberinto().getTablaVecinos();
+        List<Posicion> camino = new ArrayList<>();
+
+        for (int casilla : caminoEnCasillas())
+            camino.add(tablaVecinos.posicion(casilla));
+
+        return camino;
+    }
+
+    /**
+     * Copia el camino hasta la casilla objetivo a una arena para mostrarlo
+     *
+     * @param enCamino Casillas visitadas en las que se marcan las del camino
+     * @return Arena con el camino, un nodo por casilla. Su último nodo es el del objetivo
+     */
+    private ArenaNodos caminoEnArena(Visitadas enCamino) {
+        ArenaNodos arena = getArena();
+        int anterior = NINGUNO;
+
+        arena.vaciar();
+        for (int casilla : caminoEnCasillas()) {
+            anterior = arena.crear(anterior, casilla, costes[casilla], 0);
+            enCamino.marcar(casilla);
+        }
+
+        return arena;
+    }
+
+    /**
+     * @param inicio Instante de comienzo de la resolución según {@link System#nanoTime()}
+     * @return Función que indica si se ha agotado el tiempo de resolución desde el instante de comienzo
+     */
+    private BooleanSupplier plazoVencido(long inicio) {
+        long nanos = nanosMaximos;
+
+        return nanos > 0 ? () -> System.nanoTime() - inicio >= nanos : () -> false;
+    }
+
+    /**
+     * @param nodo Nodo Árbol de decisión a evaluar
+     * @return Imposible
+     * @throws UnsupportedOperationException La selección de operandos se realiza mediante otro método
+     */
+    @Override
+    protected Posicion seleccionarOperando(TreeNode<EstadoLaberinto> nodo) {
+        throw new UnsupportedOperationException("La selección de operando se lleva a cabo de otra manera");
+    }
+
+    /**
+     * Muestra la solución al laberinto
+     *
+     * @param arbolDecision Árbol de decicisón que contiene la solución
+     */
+    @Override
+    protected void mostrarSolucion(TreeNode<EstadoLaberinto> arbolDecision) {
+        mostrarSolucionUnaHoja(arbolDecision);
+    }
+
+    /**
+     * @return Peso de la heurística en la última búsqueda
+     */
+    public double peso() {
+        return pesoEscalado / (double) ESCALA_PESO;
+    }
+
+    /**
+     * @return Peso de la heurística en la primera búsqueda
+     */
+    public double getPesoInicial() {
+        return pesoInicial;
+    }
+
+    /**
+     * @return Reducción del peso entre búsquedas
+     */
+    public double getDecrementoPeso() {
+        return decrementoPeso;
+    }
+
+    /**
+     * @param pesoInicial    Nuevo peso de la heurística en la primera búsqueda. Con peso 1 sólo se realiza una
+     *                       búsqueda, equivalente a {@link AEstrella}
+     * @param decrementoPeso Nueva reducción del peso entre búsquedas
+     * @throws IllegalArgumentException Si el peso inicial es menor que 1 o el decremento no es positivo
+     */
+    public void setPesos(double pesoInicial, double decrementoPeso) {
+        if (!(pesoInicial >= 1)) throw new IllegalArgumentException("El peso inicial no puede ser menor que 1");
+        if (!(decrementoPeso > 0)) throw new IllegalArgumentException("El decremento del peso debe ser positivo");
+
+        this.pesoInicial = pesoInicial;
+        this.decrementoPeso = decrementoPeso;
+    }
+
+    /**
+     * Limita el tiempo de cada resolución. Al agotarse se detiene la búsqueda en curso y se muestra la mejor solución
+     * obtenida hasta entonces. Con límite de tiempo el resultado depende de la velocidad de ejecución
+     *
+     * @param tiempo Tiempo máximo, {@code 0} para no limitarlo
+     * @param unidad Unidad del tiempo máximo
+     * @throws IllegalArgumentException Si el tiempo es negativo
+     */
+    public void setTiempoMaximo(long tiempo, TimeUnit unidad) {
+        if (tiempo < 0) throw new IllegalArgumentException("El tiempo máximo no puede ser negativo");
+
+        nanosMaximos = unidad.toNanos(tiempo);
+    }
+
+    /**
+     * @param oyente Destinatario de cada solución mejorada, o {@code null} para no comunicarlas
+     */
+    public void setOyente(Oyente oyente) {
+        this.oyente = oyente;
+    }
+
+    /**
+     * @return Número de búsquedas realizadas en la última resolución
+     */
+    public int getNumIteraciones() {
+        return numIteraciones;
+    }
+
+    /**
+     * @return Número de nodos expandidos en la última resolución, en todas sus búsquedas
+     */
+    public int getContNodosExp() {
+        return contNodosExp;
+    }
+
+    /**
+     * Destinatario de las soluciones que obtiene el algoritmo durante la resolución, de peor a mejor
+     */
+    @FunctionalInterface
+    public interface Oyente {
+
+        /**
+         * @param camino Posiciones de la solución, desde la inicial hasta la objetivo
+         * @param coste  Coste de la solución
+         * @param cota   Cota de suboptimalidad: el coste no supera el óptimo multiplicado por ella, si la heurística
+         *               no sobreestima
+         */
+        void solucionMejorada(List<Posicion> camino, int coste, double cota);
+    }
+}
@@ -0,0 +1,335 @@
+package uex.algoritmos;
+
+import uex.Jugador;
+import uex.Laberinto;
+import uex.durian.TreeNode;
+import uex.heuristicas.Heuristica;
+import uex.movimiento.Posicion;
+import uex.movimiento.TablaVecinos;
+
+import java.util.Arrays;
+
+import static uex.algoritmos.ArenaNodos.NINGUNO;
+
+/**
+ * Clase que implementa el algoritmo A* bidireccional
+ * <p>
+ * Realiza dos búsquedas A* simultáneas: una desde la casilla inicial hacia la objetivo y otra desde la objetivo hacia
+ * la inicial. Moverse a una casilla cuesta el valor de la casilla de destino, por lo que la búsqueda hacia atrás suma
+ * el valor de la casilla que abandona, como {@link uex.heuristicas.CosteAlObjetivo}. Las heurísticas cuentan la
+ * entrada en la casilla objetivo como un movimiento, aunque no cuesta nada, por lo que hacia delante se emplea
+ * {@code h' = max(0, h - 1)}, que no sobreestima. Las heurísticas sólo estiman la distancia a la casilla objetivo; hacia
+ * atrás se emplea la mayor entre {@code h'(inicial) - h'(casilla)} y la distancia Manhattan a la casilla inicial por
+ * el menor valor de las casillas, que no sobreestiman la distancia desde la inicial.
+ * <p>
+ * Cada búsqueda guarda el coste y el padre de cada casilla en arrays indexados por casilla y tiene su propia cola con
+ * prioridad {@code max(g + h', 2g)}. Al mejorar el coste de una casilla se comprueba en el array de la otra búsqueda si
+ * ya la ha alcanzado; si es así, la casilla es un punto de encuentro y la suma de ambos costes es un camino completo.
+ * En cada paso se expande la búsqueda de menor prioridad mínima, y termina cuando el mejor camino encontrado no supera
+ * esa prioridad: cualquier camino más barato tendría en alguna de las colas un nodo de prioridad menor. Así ninguna
+ * búsqueda expande casillas más allá de la mitad del camino óptimo, y en laberintos abiertos de coste uniforme se
+ * expanden en torno a la mitad de nodos que con {@link AEstrella}. Con costes muy variables o heurísticas precisas
+ * A* suele expandir menos
+ *
+ * @author Juan Pablo García Plaza Pérez
+ * @author José Ángel Concha Carrasco
+ * @author Sergio Barrantes de la Osa
+ */
+public class AEstrellaBidireccional extends ExpansorArbol {
+
+    private static final int SIN_COSTE = Integer.MAX_VALUE;         // Coste de las casillas no alcanzadas
+
+    private final Frente haciaObjetivo;                             // Búsqueda desde la casilla inicial
+    private final Frente haciaInicio;                               // Búsqueda desde la casilla objetivo
+    private int casillaInicial;                                     // Casilla de partida
+    private int estimacionInicial;                                  // Estimación h' de la casilla inicial
+    private int costeMinimo;                                        // Menor valor de las casillas que no son objetivo
+    private int mejorCoste;                                         // Coste del mejor camino encontrado
+    private int encuentro;                                          // Casilla en la que se unen ambas búsquedas
+
+    /**
+     * @param heuristica Función heurística a aplicar a los nodos del árbol
+     */
+    public AEstrellaBidireccional(Heuristica heuristica) {
+        this(Laberinto.instancia(), heuristica);
+    }
+
+    /**
+     * @param laberinto  Laberinto a resolver
+     * @param heuristica Función heurística a aplicar a los nodos del árbol
+     */
+    public AEstrellaBidireccional(Laberinto laberinto, Heuristica heuristica) {
+        super(laberinto, heuristica);
+        haciaObjetivo = new Frente(false);
+        haciaInicio = new Frente(true);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected void resetExpansor() {
+        Laberinto laberinto = getLaberinto();
+
+        setArbolDecision(new TreeNode<>(null, EstadoLaberinto.estadoInicial(laberinto)));
+        casillaInicial = laberinto.indice(new Jugador(laberinto).ctrlMovimiento().posicion());
+        estimacionInicial = estimacionObjetivo(casillaInicial);
+        costeMinimo = Integer.MAX_VALUE;
+        for (int c = 0; c < laberinto.getNumCasillas(); c++)
+            if (!laberinto.esObjetivo(c)) costeMinimo = Math.min(costeMinimo, laberinto.coste(c));
+        mejorCoste = SIN_COSTE;
+        encuentro = NINGUNO;
+
+        haciaObjetivo.reiniciar(casillaInicial);
+        haciaInicio.reiniciar(laberinto.getPosObjetivc() != null ? laberinto.indice(laberinto.getPosObjetivc()) :
+                NINGUNO);
+        if (laberinto.esObjetivo(casillaInicial)) {
+            mejorCoste = 0;
+            encuentro = casillaInicial;
+        }
+
+        setContNodosGen(0);                                         // Reinicia el número de nodos generados
+        getReloj().reset();                                         // Reinicia el cronómetro
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void resolver() {
+        // REINICIO DE VARIABLES ENTRE RESOLUCIONES DE LABERINTOS
+        resetExpansor();
+        getReloj().start();
+
+        // Expande la búsqueda de menor prioridad mientras pueda existir un camino mejor que el encontrado
+        while (haciaObjetivo.mejorAbierto() != NINGUNO && haciaInicio.mejorAbierto() != NINGUNO &&
+                mejorCoste > Math.min(haciaObjetivo.prioridadMinima(), haciaInicio.prioridadMinima())) {
+            if (haciaObjetivo.prioridadMinima() <= haciaInicio.prioridadMinima()) haciaObjetivo.expandir(haciaInicio);
+            else haciaInicio.expandir(haciaObjetivo);
+        }
+
+        getReloj().stop();
+
+        if (mejorCoste <= getLaberinto().getUmbral()) {
+            Visitadas enCamino = new Visitadas(getLaberinto().getNumCasillas());
+            ArenaNodos camino = caminoCompleto(enCamino);
+
+            getSalida().println("SOLUCIÓN ENCONTRADA");
+            mostrarExpansiones();
+            mostrarSolucion(vistaCamino(camino, camino.tamanio() - 1, enCamino));
+        } else {
+            getSalida().println("NO TIENE SOLUCIÓN");
+            mostrarExpansiones();
+        }
+    }
+
+    /**
+     * Une los caminos de ambas búsquedas por el punto de encuentro: el de la búsqueda hacia el objetivo se recorre
+     * desde el encuentro hacia atrás y el de la búsqueda hacia el inicio, desde el encuentro hacia delante
+     *
+     * @param enCamino Casillas visitadas en las que se marcan las del camino
+     * @return Arena con el camino completo, un nodo por casilla. Su último nodo es el del objetivo
+     */
+    private ArenaNodos caminoCompleto(Visitadas enCamino) {
+        Laberinto laberinto = getLaberinto();
+        ArenaNodos camino = new ArenaNodos();
+        int[] casillas = new int[TablaVecinos.NUM_DIRECCIONES];
+        int numCasillas = 0;
+        int anterior = NINGUNO;
+
+        // Casillas desde el encuentro hasta la inicial
+        for (int c = encuentro; c != NINGUNO; c = haciaObjetivo.padres[c]) {
+            if (numCasillas == casillas.length) casillas = Arrays.copyOf(casillas, casillas.length * 2);
+            casillas[numCasillas++] = c;
+        }
+
+        for (int i = numCasillas - 1; i >= 0; i--) {
+            anterior = camino.crear(anterior, casillas[i], anterior == NINGUNO ? 0 :
+                    camino.coste(anterior) + laberinto.coste(casillas[i]), 0);
+            enCamino.marcar(casillas[i]);
+        }
+        for (int c = haciaInicio.padres[encuentro]; c != NINGUNO; c = haciaInicio.padres[c]) {
+            anterior = camino.crear(anterior, c, camino.coste(anterior) + laberinto.coste(c), 0);
+            enCamino.marcar(c);
+        }
+
+        return camino;
+    }
+
+    /**
+     * Muestra los nodos expandidos por cada búsqueda y el punto de encuentro
+     */
+    private void mostrarExpansiones() {
+        getSalida().println("Número de nodos expandidos : " + getContNodosExp() + " (" +
+                haciaObjetivo.contNodosExp + " hacia el objetivo, " + haciaInicio.contNodosExp + " hacia el inicio)");
+        if (encuentro != NINGUNO)
+            getSalida().println("Punto de encuentro : " + getLaberinto().getTablaVecinos().posicion(encuentro));
+    }
+
+    /**
+     * @param nodo Nodo Árbol de decisión a evaluar
+     * @return Imposible
+     * @throws UnsupportedOperationException La selección de operandos se realiza mediante otro método
+     */
+    @Override
+    protected Posicion seleccionarOperando(TreeNode<EstadoLaberinto> nodo) {
+        throw new UnsupportedOperationException("La selección de operando se lleva a cabo de otra manera");
+    }
+
+    /**
+     * Muestra la solución al laberinto
+     *
+     * @param arbolDecision Árbol de decicisón que contiene la solución
+     */
+    @Override
+    protected void mostrarSolucion(TreeNode<EstadoLaberinto> arbolDecision) {
+        mostrarSolucionUnaHoja(arbolDecision);
+    }
+
+    /**
+     * @return Número de nodos expandidos en la última resolución por ambas búsquedas
+     */
+    public int getContNodosExp() {
+        return haciaObjetivo.contNodosExp + haciaInicio.contNodosExp;
+    }
+
+    /**
+     * @param casilla Casilla del laberinto
+     * @return Estimación h' del coste desde la casilla hasta la objetivo. Las heurísticas cuentan como un movimiento la
+     * entrada en la casilla objetivo, que no cuesta nada
+     */
+    private int estimacionObjetivo(int casilla) {
+        return Math.max(0, (int) aplicarHeuristica(casilla) - 1);
+    }
+
+    /**
+     * Una de las dos búsquedas A*. Los nodos son las propias casillas: su coste y su padre se guardan en arrays
+     * indexados por casilla, y la cola con prioridad guarda el índice de la casilla
+     */
+    private final class Frente {
+
+        private final boolean atras;                                // Si parte de la casilla objetivo
+        private final MonticuloPrimitivo abiertos;                  // Casillas en exploración, por prioridad
+        private int[] costes;                                       // Coste desde el origen de la búsqueda
+        private int[] padres;                                       // Casilla anterior en el camino desde el origen
+        private Visitadas cerradas;                                 // Casillas ya expandidas
+        private int contNodosExp;                                   // Número de nodos expandidos
+
+        /**
+         * @param atras Si la búsqueda parte de la casilla objetivo hacia la inicial
+         */
+        private Frente(boolean atras) {
+            this.atras = atras;
+            abiertos = new MonticuloPrimitivo();
+        }
+
+        /**
+         * @param origen Casilla de la que parte la búsqueda, o {@link ArenaNodos#NINGUNO} si no existe
+         */
+        private void reiniciar(int origen) {
+            int numCasillas = getLaberinto().getNumCasillas();
+
+            if (costes == null || costes.length != numCasillas) {
+                costes = new int[numCasillas];
+                padres = new int[numCasillas];
+            }
+            Arrays.fill(costes, SIN_COSTE);
+            cerradas = new Visitadas(numCasillas);
+            abiertos.vaciar();
+            contNodosExp = 0;
+
+            if (origen != NINGUNO) {
+                costes[origen] = 0;
+                padres[origen] = NINGUNO;
+                abiertos.insertar(prioridad(origen), origen);
+            }
+        }
+
+        /**
+         * Expande la casilla abierta más prometedora. Moverse a una casilla vecina cuesta, hacia delante, el valor
+         * de la vecina y, hacia atrás, el de la casilla expandida
+         *
+         * @param otro Búsqueda en sentido contrario, en la que se comprueban los puntos de encuentro
+         */
+        private void expandir(Frente otro) {
+            Laberinto laberinto = getLaberinto();
+            TablaVecinos tablaVecinos = laberinto.getTablaVecinos();
+            int casilla = abiertos.extraerMinimo();
+
+            cerradas.marcar(casilla);
+            contNodosExp++;
+            for (int m = tablaVecinos.mascara(casilla); m != 0; m &= m - 1) {
+                int vecino = tablaVecinos.vecino(casilla, Integer.numberOfTrailingZeros(m));
+                int coste = costes[casilla] + laberinto.coste(atras ? casilla : vecino);
+
+                setContNodosGen(getContNodosGen() + 1);             // Incrementa en 1 el número de nodos generados
+                if (coste >= costes[vecino] || coste + estimacion(vecino) > laberinto.getUmbral()) continue;
+
+                costes[vecino] = coste;
+                padres[vecino] = casilla;
+
+                // Punto de encuentro con la otra búsqueda
+                if (otro.costes[vecino] != SIN_COSTE && coste + otro.costes[vecino] < mejorCoste) {
+                    mejorCoste = coste + otro.costes[vecino];
+                    encuentro = vecino;
+                }
+
+                // Alternativa mejor: si la casilla ya estaba cerrada se vuelve a abrir, salvo que no pueda mejorar el
+                // camino encontrado
+                cerradas.desmarcar(vecino);
+                if (coste + estimacion(vecino) < mejorCoste) abiertos.insertar(prioridad(vecino), vecino);
+            }
+        }
+
+        /**
+         * Las entradas obsoletas de la cola, de casillas cerradas o cuyo coste ha mejorado, se descartan aquí al
+         * llegar a la cabeza
+         *
+         * @return Casilla abierta más prometedora, o {@link ArenaNodos#NINGUNO} si no queda ninguna
+         */
+        private int mejorAbierto() {
+            while (!abiertos.estaVacio()) {
+                int casilla = abiertos.verMinimo();
+
+                if (!cerradas.contiene(casilla) && abiertos.verPrioridadMinima() == prioridad(casilla))
+                    return casilla;
+                abiertos.extraerMinimo();
+            }
+
+            return NINGUNO;
+        }
+
+        /**
+         * @return Prioridad de la casilla abierta más prometedora. Requiere que la cabeza de la cola sea válida, ver
+         * {@link Frente#mejorAbierto()}
+         */
+        private int prioridadMinima() {
+            return abiertos.verPrioridadMinima();
+        }
+
+        /**
+         * @param casilla Casilla alcanzada por la búsqueda
+         * @return Prioridad de la casilla : la mayor entre su puntuación ponderada y el doble de su coste desde el
+         * origen, de modo que ninguna búsqueda expande casillas más allá de la mitad del camino óptimo
+         */
+        private int prioridad(int casilla) {
+            return Math.max(costes[casilla] + estimacion(casilla), 2 * costes[casilla]);
+        }
+
+        /**
+         * @param casilla Casilla alcanzada por la búsqueda
+         * @return Estimación del coste desde la casilla hasta el destino de la búsqueda
+         */
+        private int estimacion(int casilla) {
+            int ancho;
+
+            if (!atras) return estimacionObjetivo(casilla);
+
+            // Cada casilla que se recorre desde la inicial cuesta al menos el coste mínimo, salvo la objetivo
+            ancho = getLaberinto().getAncho();
+            return Math.max(Math.max(0, estimacionInicial - estimacionObjetivo(casilla)), costeMinimo *
+                    (Math.abs(casilla % ancho - casillaInicial % ancho) + Math.abs(casilla / ancho -
+                            casillaInicial / ancho) - 1));
+        }
+    }
+}
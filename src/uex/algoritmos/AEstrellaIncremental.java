@@ -0,0 +1,368 @@
+package uex.algoritmos;
+
+import uex.Jugador;
+import uex.Laberinto;
+import uex.durian.TreeNode;
+import uex.heuristicas.Heuristica;
+import uex.movimiento.Posicion;
+import uex.movimiento.TablaVecinos;
+
+import java.util.Arrays;
+import java.util.Map;
+
+import static uex.algoritmos.ArenaNodos.NINGUNO;
+
+/**
+ * Clase que implementa el algoritmo A* incremental (Lifelong Planning A*, LPA*)
+ * <p>
+ * Conserva el estado de la búsqueda entre resoluciones del mismo laberinto. Cuando cambia el valor de algunas casillas
+ * mediante {@link AEstrellaIncremental#actualizarCostes(Map)}, la siguiente resolución sólo repara la parte de la
+ * búsqueda afectada por los cambios, en lugar de repetirla desde el principio. La casilla inicial es siempre la misma,
+ * por lo que no es necesaria la variante D* Lite para una casilla inicial que se desplaza.
+ * <p>
+ * Para cada casilla se guardan en arrays indexados por casilla su coste g y su coste previsto rhs, el menor coste de
+ * llegar a ella desde una vecina. Las casillas en las que ambos difieren están pendientes en una cola con prioridad por
+ * {@code min(g, rhs) + h'}. Moverse a una casilla cuesta su valor, así que al cambiar el valor de una casilla sólo
+ * cambia su coste previsto: la reparación parte de las casillas cambiadas y sólo alcanza a las que dependen de ellas.
+ * La búsqueda termina cuando la casilla objetivo no tiene diferencias y ninguna casilla pendiente tiene menor o igual
+ * prioridad. El camino se reconstruye desde la casilla objetivo pasando por la vecina de menor coste.
+ * <p>
+ * La reparación sólo es correcta con una heurística consistente. Las heurísticas cuentan la entrada en la casilla
+ * objetivo como un movimiento, aunque no cuesta nada, por lo que se emplea {@code h' = max(0, h - 1)}, que sí lo es.
+ * <p>
+ * La búsqueda no descarta caminos por el umbral; la solución es válida si su coste no lo supera. Los resultados de la
+ * heurística se guardan por casilla mientras se conserva el estado, así que con las heurísticas que dependen de los
+ * valores de las casillas ({@link Heuristica#dependeDeLosCostes()}) cada cambio obliga a repetir la búsqueda. También
+ * se repite si cambia el laberinto por otros medios, la heurística o la casilla inicial
+ *
+ * @author Juan Pablo García Plaza Pérez
+ * @author José Ángel Concha Carrasco
+ * @author Sergio Barrantes de la Osa
+ */
+public class AEstrellaIncremental extends ExpansorArbol {
+
+    private static final int SIN_COSTE = Integer.MAX_VALUE;         // Coste de las casillas no alcanzadas
+    private static final int SIN_ESTIMACION = -1;                   // Estimación de las casillas aún no evaluadas
+
+    private final MonticuloPrimitivo pendientes;                    // Casillas con g distinto de rhs, por prioridad
+    private int[] costes;                                           // Coste g de cada casilla desde la inicial
+    private int[] costesPrevistos;                                  // Coste rhs de cada casilla desde sus vecinas
+    private int[] estimaciones;                                     // Puntuación heurística de cada casilla evaluada
+    private Laberinto laberintoBuscado;                             // Laberinto al que corresponde el estado
+    private int versionBuscada;                                     // Versión del laberinto a la que corresponde
+    private Heuristica heuristicaBuscada;                           // Heurística con la que se ha calculado
+    private int casillaInicial;                                     // Casilla de partida
+    private int casillaObjetivo;                                    // Casilla objetivo, o NINGUNO si no existe
+    private int numCambios;                                         // Casillas cambiadas desde la última resolución
+    private int contNodosExp;                                       // Número de nodos expandidos
+
+    /**
+     * @param heuristica Función heurística a aplicar a los nodos del árbol
+     */
+    public AEstrellaIncremental(Heuristica heuristica) {
+        this(Laberinto.instancia(), heuristica);
+    }
+
+    /**
+     * @param laberinto  Laberinto a resolver
+     * @param heuristica Función heurística a aplicar a los nodos del árbol
+     */
+    public AEstrellaIncremental(Laberinto laberinto, Heuristica heuristica) {
+        super(laberinto, heuristica);
+        pendientes = new MonticuloPrimitivo();
+    }
+
+    /**
+     * Descarta el estado de la búsqueda: la siguiente resolución parte de cero
+     */
+    @Override
+    protected void resetExpansor() {
+        Laberinto laberinto = getLaberinto();
+        int numCasillas = laberinto.getNumCasillas();
+
+        if (costes == null || costes.length != numCasillas) {
+            costes = new int[numCasillas];
+            costesPrevistos = new int[numCasillas];
+            estimaciones = new int[numCasillas];
+        }
+        Arrays.fill(costes, SIN_COSTE);
+        Arrays.fill(costesPrevistos, SIN_COSTE);
+        Arrays.fill(estimaciones, SIN_ESTIMACION);
+        pendientes.vaciar();
+        laberintoBuscado = laberinto;
+        versionBuscada = laberinto.getVersion();
+        heuristicaBuscada = getHeuristica();
+        casillaInicial = laberinto.indice(new Jugador(laberinto).ctrlMovimiento().posicion());
+        casillaObjetivo = laberinto.getPosObjetivc() != null ? laberinto.indice(laberinto.getPosObjetivc()) : NINGUNO;
+        numCambios = 0;
+
+        // La casilla inicial es la única con coste previsto
+        costesPrevistos[casillaInicial] = 0;
+        encolar(casillaInicial);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void resolver() {
+        boolean incremental = estadoVigente();
+
+        // Sólo se parte de cero si el estado conservado no corresponde al laberinto actual
+        if (!incremental) resetExpansor();
+        setArbolDecision(new TreeNode<>(null, EstadoLaberinto.estadoInicial(getLaberinto())));
+        setContNodosGen(0);                                         // Reinicia el número de nodos generados
+        contNodosExp = 0;                                           // Reinicia el número de nodos expandidos
+        getReloj().reset();                                         // Reinicia el cronómetro
+        getReloj().start();
+
+        if (casillaObjetivo != NINGUNO) calcularCaminoMinimo();
+
+        getReloj().stop();
+
+        if (casillaObjetivo != NINGUNO && costes[casillaObjetivo] <= getLaberinto().getUmbral()) {
+            Visitadas enCamino = new Visitadas(getLaberinto().getNumCasillas());
+            ArenaNodos camino = caminoEnArena(enCamino);
+
+            getSalida().println("SOLUCIÓN ENCONTRADA");
+            mostrarReplanificacion(incremental);
+            mostrarSolucion(vistaCamino(camino, camino.tamanio() - 1, enCamino));
+        } else {
+            getSalida().println("NO TIENE SOLUCIÓN");
+            mostrarReplanificacion(incremental);
+        }
+        numCambios = 0;
+    }
+
+    /**
+     * Cambia el valor de varias casillas del laberinto y anota las casillas afectadas para que la siguiente resolución
+     * sólo repare la búsqueda a partir de ellas. Si el estado de la búsqueda no se puede conservar, la siguiente
+     * resolución parte de cero. Los cambios se comprueban todos antes de aplicar ninguno
+     *
+     * @param cambios Nuevo valor (coste) de cada posición a cambiar
+     * @throws IllegalArgumentException Si alguna posición está fuera del laberinto o es la casilla objetivo, o algún
+     *                                  valor no es positivo
+     */
+    public void actualizarCostes(Map<Posicion, Integer> cambios) {
+        Laberinto laberinto = getLaberinto();
+        boolean vigente = estadoVigente() && !getHeuristica().dependeDeLosCostes();
+
+        for (Map.Entry<Posicion, Integer> cambio : cambios.entrySet()) {
+            Posicion posicion = cambio.getKey();
+
+            if (posicion == null || posicion.getX() < 0 || posicion.getX() >= laberinto.getAncho() ||
+                    posicion.getY() < 0 || posicion.getY() >= laberinto.getAlto())
+                throw new IllegalArgumentException("La posición " + posicion + " no pertenece al laberinto");
+            if (posicion.equals(laberinto.getPosObjetivc()))
+                throw new IllegalArgumentException("No se puede cambiar el valor de la casilla objetivo");
+            if (cambio.getValue() == null || cambio.getValue() <= 0)
+                throw new IllegalArgumentException("El nuevo valor de la casilla " + posicion + " debe ser positivo");
+        }
+
+        for (Map.Entry<Posicion, Integer> cambio : cambios.entrySet()) {
+            int casilla = laberinto.indice(cambio.getKey());
+
+            if (laberinto.coste(casilla) == cambio.getValue()) continue;
+
+            laberinto.setCoste(casilla, cambio.getValue());
+            if (vigente) {
+                actualizarCasilla(casilla);
+                numCambios++;
+            }
+        }
+
+        if (vigente) versionBuscada = laberinto.getVersion();
+    }
+
+    /**
+     * @return Si el estado conservado corresponde al laberinto, su versión, la heurística y la casilla inicial actuales
+     */
+    private boolean estadoVigente() {
+        Laberinto laberinto = getLaberinto();
+
+        return laberintoBuscado == laberinto && versionBuscada == laberinto.getVersion() &&
+                heuristicaBuscada == getHeuristica() && costes.length == laberinto.getNumCasillas() &&
+                casillaInicial == laberinto.indice(new Jugador(laberinto).ctrlMovimiento().posicion());
+    }
+
+    /**
+     * Procesa las casillas pendientes hasta que el coste de la casilla objetivo sea el mínimo. Una casilla cuyo coste
+     * previsto es menor que su coste lo adopta y lo propaga a sus vecinas; si es mayor, su coste se descarta y ella y
+     * las vecinas que dependían de él vuelven a calcular su coste previsto
+     */
+    private void calcularCaminoMinimo() {
+        Laberinto laberinto = getLaberinto();
+        TablaVecinos tablaVecinos = laberinto.getTablaVecinos();
+        int casilla;
+
+        while ((casilla = mejorPendiente()) != NINGUNO && (pendientes.verPrioridadMinima() <= prioridad(casillaObjetivo)
+                || costes[casillaObjetivo] != costesPrevistos[casillaObjetivo])) {
+            pendientes.extraerMinimo();
+            contNodosExp++;
+
+            if (costes[casilla] > costesPrevistos[casilla]) {
+                costes[casilla] = costesPrevistos[casilla];
+                for (int m = tablaVecinos.mascara(casilla); m != 0; m &= m - 1) {
+                    int vecino = tablaVecinos.vecino(casilla, Integer.numberOfTrailingZeros(m));
+                    int coste = costes[casilla] + laberinto.coste(vecino);
+
+                    setContNodosGen(getContNodosGen() + 1);         // Incrementa en 1 el número de nodos generados
+                    if (vecino != casillaInicial && coste < costesPrevistos[vecino]) {
+                        costesPrevistos[vecino] = coste;
+                        encolar(vecino);
+                    }
+                }
+            } else {
+                int costeAnterior = costes[casilla];
+
+                costes[casilla] = SIN_COSTE;
+                actualizarCasilla(casilla);
+                for (int m = tablaVecinos.mascara(casilla); m != 0; m &= m - 1) {
+                    int vecino = tablaVecinos.vecino(casilla, Integer.numberOfTrailingZeros(m));
+
+                    setContNodosGen(getContNodosGen() + 1);         // Incrementa en 1 el número de nodos generados
+                    if (costesPrevistos[vecino] == costeAnterior + laberinto.coste(vecino)) actualizarCasilla(vecino);
+                }
+            }
+        }
+    }
+
+    /**
+     * Recalcula el coste previsto de una casilla, su valor más el menor coste de sus vecinas, y la encola si difiere de
+     * su coste
+     *
+     * @param casilla Casilla a actualizar
+     */
+    private void actualizarCasilla(int casilla) {
+        TablaVecinos tablaVecinos = getLaberinto().getTablaVecinos();
+        int minimo = SIN_COSTE;
+
+        if (casilla == casillaInicial) return;
+
+        for (int m = tablaVecinos.mascara(casilla); m != 0; m &= m - 1)
+            minimo = Math.min(minimo, costes[tablaVecinos.vecino(casilla, Integer.numberOfTrailingZeros(m))]);
+        costesPrevistos[casilla] = minimo == SIN_COSTE ? SIN_COSTE : minimo + getLaberinto().coste(casilla);
+        encolar(casilla);
+    }
+
+    /**
+     * @param casilla Casilla a encolar si su coste y su coste previsto difieren
+     */
+    private void encolar(int casilla) {
+        if (costes[casilla] != costesPrevistos[casilla]) pendientes.insertar(prioridad(casilla), casilla);
+    }
+
+    /**
+     * Las entradas obsoletas de la cola, de casillas sin diferencias o cuya prioridad ha cambiado, se descartan aquí al
+     * llegar a la cabeza
+     *
+     * @return Casilla pendiente de menor prioridad, o {@link ArenaNodos#NINGUNO} si no queda ninguna
+     */
+    private int mejorPendiente() {
+        while (!pendientes.estaVacio()) {
+            int casilla = pendientes.verMinimo();
+
+            if (costes[casilla] != costesPrevistos[casilla] && pendientes.verPrioridadMinima() == prioridad(casilla))
+                return casilla;
+            pendientes.extraerMinimo();
+        }
+
+        return NINGUNO;
+    }
+
+    /**
+     * @param casilla Casilla del laberinto
+     * @return Prioridad de la casilla : el menor entre su coste y su coste previsto más su puntuación heurística,
+     * limitada al mayor entero
+     */
+    private int prioridad(int casilla) {
+        int coste = Math.min(costes[casilla], costesPrevistos[casilla]);
+
+        if (coste == SIN_COSTE) return Integer.MAX_VALUE;
+        // Las heurísticas cuentan como un movimiento la entrada en la casilla objetivo, que no cuesta nada
+        if (estimaciones[casilla] == SIN_ESTIMACION)
+            estimaciones[casilla] = Math.max(0, (int) aplicarHeuristica(casilla) - 1);
+
+        return (int) Math.min(Integer.MAX_VALUE, (long) coste + estimaciones[casilla]);
+    }
+
+    /**
+     * Reconstruye el camino desde la casilla objetivo pasando en cada paso a la vecina de menor coste, y lo copia a la
+     * arena del expansor para mostrarlo
+     *
+     * @param enCamino Casillas visitadas en las que se marcan las del camino
+     * @return Arena con el camino, un nodo por casilla. Su último nodo es el del objetivo
+     * @throws IllegalStateException Si el camino no llega a la casilla inicial
+     */
+    private ArenaNodos caminoEnArena(Visitadas enCamino) {
+        TablaVecinos tablaVecinos = getLaberinto().getTablaVecinos();
+        ArenaNodos arena = getArena();
+        int[] casillas = new int[TablaVecinos.NUM_DIRECCIONES];
+        int numCasillas = 0;
+        int anterior = NINGUNO;
+
+        for (int c = casillaObjetivo; ; ) {
+            int siguiente = NINGUNO;
+
+            if (numCasillas == getLaberinto().getNumCasillas())
+                throw new IllegalStateException("El camino no llega a la casilla inicial");
+            if (numCasillas == casillas.length) casillas = Arrays.copyOf(casillas, casillas.length * 2);
+            casillas[numCasillas++] = c;
+            if (c == casillaInicial) break;
+
+            for (int m = tablaVecinos.mascara(c); m != 0; m &= m - 1) {
+                int vecino = tablaVecinos.vecino(c, Integer.numberOfTrailingZeros(m));
+
+                if (siguiente == NINGUNO || costes[vecino] < costes[siguiente]) siguiente = vecino;
+            }
+            c = siguiente;
+        }
+
+        arena.vaciar();
+        for (int i = numCasillas - 1; i >= 0; i--) {
+            anterior = arena.crear(anterior, casillas[i], anterior == NINGUNO ? 0 :
+                    arena.coste(anterior) + getLaberinto().coste(casillas[i]), 0);
+            enCamino.marcar(casillas[i]);
+        }
+
+        return arena;
+    }
+
+    /**
+     * Muestra si la resolución ha reparado la búsqueda anterior o ha partido de cero, y los nodos expandidos
+     *
+     * @param incremental Si se ha reparado la búsqueda anterior
+     */
+    private void mostrarReplanificacion(boolean incremental) {
+        getSalida().println(incremental ? "Replanificación incremental tras " + numCambios + " cambios de coste" :
+                "Búsqueda completa");
+        getSalida().println("Número de nodos expandidos : " + contNodosExp);
+    }
+
+    /**
+     * @param nodo Nodo Árbol de decisión a evaluar
+     * @return Imposible
+     * @throws UnsupportedOperationException La selección de operandos se realiza mediante otro método
+     */
+    @Override
+    protected Posicion seleccionarOperando(TreeNode<EstadoLaberinto> nodo) {
+        throw new UnsupportedOperationException("La selección de operando se lleva a cabo de otra manera");
+    }
+
+    /**
+     * Muestra la solución al laberinto
+     *
+     * @param arbolDecision Árbol de decicisón que contiene la solución
+     */
+    @Override
+    protected void mostrarSolucion(TreeNode<EstadoLaberinto> arbolDecision) {
+        mostrarSolucionUnaHoja(arbolDecision);
+    }
+
+    /**
+     * @return Número de nodos expandidos en la última resolución
+     */
+    public int getContNodosExp() {
+        return contNodosExp;
+    }
+}
@@ -0,0 +1,289 @@
+package uex.algoritmos;
+
+import uex.durian.TreeNode;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.IntFunction;
+
+/**
+ * Almacén de los nodos de un árbol de búsqueda. Cada nodo se identifica por un índice entero y sus datos (padre,
+ * casilla, coste acumulado y ponderación) se guardan en arrays paralelos de primitivas, por lo que generar un nodo no
+ * reserva memoria. Los arrays crecen por bloques de {@value NODOS_BLOQUE} nodos sin copiar los ya existentes.
+ * <p>
+ * Los hijos de cada nodo se enlazan en orden de inserción, igual que en {@link TreeNode}. Cuando se quiere mostrar el
+ * árbol, {@link ArenaNodos#camino(int, IntFunction)} y {@link ArenaNodos#arbol(IntFunction)} construyen bajo demanda
+ * una vista con {@link TreeNode} y {@link EstadoLaberinto}
+ *
+ * @author Juan Pablo García Plaza Pérez
+ * @author José Ángel Concha Carrasco
+ * @author Sergio Barrantes de la Osa
+ */
+public final class ArenaNodos {
+
+    public static final int NINGUNO = -1;                       // Índice que indica la ausencia de nodo
+
+    private static final int BITS_BLOQUE = 12;
+    private static final int NODOS_BLOQUE = 1 << BITS_BLOQUE;   // Nodos por bloque
+    private static final int MASCARA_BLOQUE = NODOS_BLOQUE - 1;
+
+    private int[][] padres;                 // Nodo padre de cada nodo, o NINGUNO si es la raíz
+    private int[][] casillas;               // Índice de la casilla de cada nodo en orden de filas
+    private int[][] costes;                 // Coste acumulado (umbral) de cada nodo
+    private int[][] ponderaciones;          // Ponderación de cada nodo (coste más estimación heurística)
+    private int[][] primerosHijos;          // Primer hijo de cada nodo, o NINGUNO si no tiene
+    private int[][] siguientesHermanos;     // Siguiente hijo del mismo padre, o NINGUNO si es el último
+    private int numBloques;                 // Número de bloques reservados
+    private int tamanio;                    // Número de nodos creados
+
+    public ArenaNodos() {
+        padres = new int[1][];
+        casillas = new int[1][];
+        costes = new int[1][];
+        ponderaciones = new int[1][];
+        primerosHijos = new int[1][];
+        siguientesHermanos = new int[1][];
+        numBloques = 0;
+        tamanio = 0;
+    }
+
+    /**
+     * Crea un nodo y lo añade como último hijo de su padre
+     *
+     * @param padre       Nodo padre, o {@link ArenaNodos#NINGUNO} si es la raíz
+     * @param casilla     Índice de la casilla del nodo en orden de filas
+     * @param coste       Coste acumulado del nodo
+     * @param ponderacion Ponderación del nodo
+     * @return Índice del nuevo nodo. Los nodos se numeran consecutivamente desde 0 en orden de creación
+     */
+    public int crear(int padre, int casilla, int coste, int ponderacion) {
+        int nodo = tamanio;
+        int bloque = nodo >>> BITS_BLOQUE;
+        int posicion = nodo & MASCARA_BLOQUE;
+
+        if (bloque == numBloques) reservarBloque();
+
+        padres[bloque][posicion] = NINGUNO;
+        casillas[bloque][posicion] = casilla;
+        costes[bloque][posicion] = coste;
+        ponderaciones[bloque][posicion] = ponderacion;
+        primerosHijos[bloque][posicion] = NINGUNO;
+        siguientesHermanos[bloque][posicion] = NINGUNO;
+        tamanio++;
+
+        if (padre != NINGUNO) enlazar(nodo, padre);
+
+        return nodo;
+    }
+
+    /**
+     * Cambia el padre de un nodo, quitándolo de los hijos del padre anterior y añadiéndolo como último hijo del nuevo
+     *
+     * @param nodo       Nodo a mover
+     * @param nuevoPadre Nuevo padre del nodo
+     */
+    public void cambiarPadre(int nodo, int nuevoPadre) {
+        int padre = padre(nodo);
+
+        if (padre != NINGUNO) {
+            if (primerHijo(padre) == nodo) {
+                set(primerosHijos, padre, siguienteHermano(nodo));
+            } else {
+                int hermano = primerHijo(padre);
+
+                while (siguienteHermano(hermano) != nodo) hermano = siguienteHermano(hermano);
+                set(siguientesHermanos, hermano, siguienteHermano(nodo));
+            }
+            set(siguientesHermanos, nodo, NINGUNO);
+        }
+        enlazar(nodo, nuevoPadre);
+    }
+
+    /**
+     * Añade un nodo sin padre como último hijo de otro
+     */
+    private void enlazar(int nodo, int padre) {
+        int hermano = primerHijo(padre);
+
+        set(padres, nodo, padre);
+        if (hermano == NINGUNO) {
+            set(primerosHijos, padre, nodo);
+        } else {
+            while (siguienteHermano(hermano) != NINGUNO) hermano = siguienteHermano(hermano);
+            set(siguientesHermanos, hermano, nodo);
+        }
+    }
+
+    /**
+     * Reserva el siguiente bloque de cada array, reutilizando los de una resolución anterior si existen
+     */
+    private void reservarBloque() {
+        if (numBloques == padres.length) {
+            int longitud = numBloques * 2;
+
+            padres = Arrays.copyOf(padres, longitud);
+            casillas = Arrays.copyOf(casillas, longitud);
+            costes = Arrays.copyOf(costes, longitud);
+            ponderaciones = Arrays.copyOf(ponderaciones, longitud);
+            primerosHijos = Arrays.copyOf(primerosHijos, longitud);
+            siguientesHermanos = Arrays.copyOf(siguientesHermanos, longitud);
+        }
+
+        if (padres[numBloques] == null) {
+            padres[numBloques] = new int[NODOS_BLOQUE];
+            casillas[numBloques] = new int[NODOS_BLOQUE];
+            costes[numBloques] = new int[NODOS_BLOQUE];
+            ponderaciones[numBloques] = new int[NODOS_BLOQUE];
+            primerosHijos[numBloques] = new int[NODOS_BLOQUE];
+            siguientesHermanos[numBloques] = new int[NODOS_BLOQUE];
+        }
+        numBloques++;
+    }
+
+    /**
+     * Elimina todos los nodos. Los bloques reservados se conservan para la siguiente resolución
+     */
+    public void vaciar() {
+        tamanio = 0;
+        numBloques = 0;
+    }
+
+    /**
+     * Construye la vista del camino desde la raíz hasta un nodo
+     *
+     * @param nodo    Último nodo del camino
+     * @param estados Estado del laberinto de cada nodo del camino
+     * @return Nodo final de una cadena de {@link TreeNode} que reproduce el camino. Cada nodo de la vista sólo tiene
+     * como hijo el siguiente nodo del camino
+     */
+    public TreeNode<EstadoLaberinto> camino(int nodo, IntFunction<EstadoLaberinto> estados) {
+        List<Integer> nodos = new ArrayList<>();
+        TreeNode<EstadoLaberinto> vista = null;
+
+        for (int n = nodo; n != NINGUNO; n = padre(n)) nodos.add(n);
+        for (int i = nodos.size() - 1; i >= 0; i--) vista = new TreeNode<>(vista, estados.apply(nodos.get(i)));
+
+        return vista;
+    }
+
+    /**
+     * Construye la vista del árbol completo, con los hijos de cada nodo en el mismo orden que en la arena
+     *
+     * @param estados Estado del laberinto de cada nodo
+     * @return Raíz de un árbol de {@link TreeNode} equivalente, o {@code null} si la arena está vacía
+     */
+    public TreeNode<EstadoLaberinto> arbol(IntFunction<EstadoLaberinto> estados) {
+        List<TreeNode<EstadoLaberinto>> vistas = new ArrayList<>();
+        TreeNode<EstadoLaberinto> raiz;
+        int nodo = 0;
+
+        if (tamanio == 0) return null;
+
+        // Recorrido en preorden sin recursión: baja al primer hijo o avanza al siguiente hermano del ancestro más cercano
+        raiz = new TreeNode<>(null, estados.apply(nodo));
+        vistas.add(raiz);
+        while (nodo != NINGUNO) {
+            if (primerHijo(nodo) != NINGUNO) {
+                nodo = primerHijo(nodo);
+            } else {
+                while (nodo != NINGUNO && siguienteHermano(nodo) == NINGUNO) {
+                    nodo = padre(nodo);
+                    vistas.remove(vistas.size() - 1);
+                }
+                if (nodo == NINGUNO) break;
+                nodo = siguienteHermano(nodo);
+                vistas.remove(vistas.size() - 1);
+            }
+            vistas.add(new TreeNode<>(vistas.get(vistas.size() - 1), estados.apply(nodo)));
+        }
+
+        return raiz;
+    }
+
+    /**
+     * @return Número de nodos creados
+     */
+    public int tamanio() {
+        return tamanio;
+    }
+
+    /**
+     * @return Memoria reservada por la arena, en bytes
+     */
+    public long memoria() {
+        return (long) numBloques * NODOS_BLOQUE * Integer.BYTES * 6;
+    }
+
+    /**
+     * @param nodo Índice del nodo
+     * @return Nodo padre, o {@link ArenaNodos#NINGUNO} si es la raíz
+     */
+    public int padre(int nodo) {
+        return get(padres, nodo);
+    }
+
+    /**
+     * @param nodo Índice del nodo
+     * @return Índice de la casilla del nodo en orden de filas
+     */
+    public int casilla(int nodo) {
+        return get(casillas, nodo);
+    }
+
+    /**
+     * @param nodo Índice del nodo
+     * @return Coste acumulado (umbral) del nodo
+     */
+    public int coste(int nodo) {
+        return get(costes, nodo);
+    }
+
+    /**
+     * @param nodo  Índice del nodo
+     * @param coste Nuevo coste acumulado del nodo
+     */
+    public void setCoste(int nodo, int coste) {
+        set(costes, nodo, coste);
+    }
+
+    /**
+     * @param nodo Índice del nodo
+     * @return Ponderación del nodo
+     */
+    public int ponderacion(int nodo) {
+        return get(ponderaciones, nodo);
+    }
+
+    /**
+     * @param nodo        Índice del nodo
+     * @param ponderacion Nueva ponderación del nodo
+     */
+    public void setPonderacion(int nodo, int ponderacion) {
+        set(ponderaciones, nodo, ponderacion);
+    }
+
+    /**
+     * @param nodo Índice del nodo
+     * @return Primer hijo del nodo, o {@link ArenaNodos#NINGUNO} si no tiene hijos
+     */
+    public int primerHijo(int nodo) {
+        return get(primerosHijos, nodo);
+    }
+
+    /**
+     * @param nodo Índice del nodo
+     * @return Siguiente hijo del mismo padre, o {@link ArenaNodos#NINGUNO} si es el último
+     */
+    public int siguienteHermano(int nodo) {
+        return get(siguientesHermanos, nodo);
+    }
+
+    private static int get(int[][] columna, int nodo) {
+        return columna[nodo >>> BITS_BLOQUE][nodo & MASCARA_BLOQUE];
+    }
+
+    private static void set(int[][] columna, int nodo, int valor) {
+        columna[nodo >>> BITS_BLOQUE][nodo & MASCARA_BLOQUE] = valor;
+    }
+}
@@ -0,0 +1,220 @@
+package uex.algoritmos;
+
+import uex.Laberinto;
+import uex.durian.TreeNode;
+import uex.heuristicas.Heuristica;
+import uex.movimiento.Posicion;
+import uex.movimiento.TablaVecinos;
+
+import static uex.algoritmos.ArenaNodos.NINGUNO;
+
+/**
+ * Clase que implementa el algoritmo de búsqueda en haz
+ * <p>
+ * Avanza por capas: en cada capa expande todos los nodos del haz y, de entre todos sus hijos, conserva como haz de la
+ * siguiente capa los de mejor puntuación heurística, hasta un máximo dado por el ancho del haz. Con ancho 1 se
+ * comporta como la escalada de máxima pendiente sin exigir que cada paso mejore al anterior; con un ancho suficiente,
+ * como una búsqueda en anchura ordenada por la heurística.
+ * <p>
+ * Los candidatos de cada capa se seleccionan con un {@link MonticuloAcotado}, de modo que la memoria empleada por capa
+ * no depende del número de hijos generados, y sólo los conservados se guardan en la arena del expansor. Las casillas
+ * de los nodos conservados no vuelven a generarse en capas posteriores
+ *
+ * @author Juan Pablo García Plaza Pérez
+ * @author José Ángel Concha Carrasco
+ * @author Sergio Barrantes de la Osa
+ */
+public class BusquedaHaz extends ExpansorArbol {
+
+    public static final int DEF_ANCHO_HAZ = 8;                      // Ancho del haz por defecto
+
+    private int anchoHaz;                                           // Número máximo de nodos de cada capa
+    private int[] haz;                                              // Nodos de la capa actual, de mejor a peor
+    private int tamHaz;                                             // Número de nodos de la capa actual
+    private MonticuloAcotado candidatos;                            // Mejores candidatos de la siguiente capa
+    private int[] padresCandidatos;                                 // Nodo padre de cada candidato de la capa
+    private int[] casillasCandidatos;                               // Casilla de cada candidato de la capa
+    private Visitadas cerradas;                                     // Casillas de los nodos conservados en algún haz
+
+    /**
+     * @param heuristica Función heurística a aplicar a los nodos del árbol
+     */
+    public BusquedaHaz(Heuristica heuristica) {
+        this(Laberinto.instancia(), heuristica);
+    }
+
+    /**
+     * @param laberinto  Laberinto a resolver
+     * @param heuristica Función heurística a aplicar a los nodos del árbol
+     */
+    public BusquedaHaz(Laberinto laberinto, Heuristica heuristica) {
+        this(laberinto, heuristica, DEF_ANCHO_HAZ);
+    }
+
+    /**
+     * @param laberinto  Laberinto a resolver
+     * @param heuristica Función heurística a aplicar a los nodos del árbol
+     * @param anchoHaz   Número máximo de nodos que se conservan en cada capa
+     * @throws IllegalArgumentException Si el ancho del haz no es positivo
+     */
+    public BusquedaHaz(Laberinto laberinto, Heuristica heuristica, int anchoHaz) {
+        super(laberinto, heuristica);
+        setAnchoHaz(anchoHaz);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected void resetExpansor() {
+        setArbolDecision(new TreeNode<>(null, EstadoLaberinto.estadoInicial(getLaberinto())));
+        getArena().vaciar();
+        candidatos.vaciar();
+        cerradas = new Visitadas(getLaberinto().getNumCasillas());
+        tamHaz = 0;
+
+        setContNodosGen(0);                                         // Reinicia el número de nodos generados
+        getReloj().reset();                                         // Reinicia el cronómetro
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void resolver() {
+        int casillaInicial;
+        int solucion = NINGUNO;                                     // Nodo del haz que alcanza el objetivo
+
+        // REINICIO DE VARIABLES ENTRE RESOLUCIONES DE LABERINTOS
+        resetExpansor();
+        getReloj().start();
+
+        // La primera capa contiene sólo el estado inicial
+        casillaInicial = getArbolDecision().getContent().getIndice();
+        cerradas.marcar(casillaInicial);
+        haz[tamHaz++] = getArena().crear(NINGUNO, casillaInicial, 0, (int) aplicarHeuristica(casillaInicial));
+
+        // Avanza capa a capa mientras quede algún nodo en el haz y ninguno sea el objetivo
+        while (tamHaz != 0 && (solucion = nodoObjetivo()) == NINGUNO) {
+            generarCandidatos();
+            formarHaz();
+        }
+
+        getReloj().stop();
+
+        if (solucion != NINGUNO) {
+            getSalida().println("SOLUCIÓN ENCONTRADA");
+            mostrarSolucion(vistaCamino(getArena(), solucion, cerradas));
+        } else {
+            getSalida().println("NO ENCONTRÓ SOLUCIÓN\nPosiblemente no tenga solución o el haz descartó todos los " +
+                    "caminos\n");
+        }
+    }
+
+    /**
+     * @return Primer nodo del haz, en orden de puntuación, cuya casilla es el objetivo, o {@link ArenaNodos#NINGUNO}
+     * si no hay ninguno
+     */
+    private int nodoObjetivo() {
+        for (int i = 0; i < tamHaz; i++)
+            if (getLaberinto().esObjetivo(getArena().casilla(haz[i]))) return haz[i];
+
+        return NINGUNO;
+    }
+
+    /**
+     * Genera los hijos de todos los nodos del haz que no superan el umbral ni vuelven a una casilla cerrada, y
+     * conserva en el montículo acotado los de mejor puntuación heurística. Los candidatos con la misma puntuación se
+     * conservan en orden de generación
+     */
+    private void generarCandidatos() {
+        Laberinto laberinto = getLaberinto();
+        ArenaNodos arena = getArena();
+        TablaVecinos tablaVecinos = laberinto.getTablaVecinos();
+        int numCandidatos = 0;                                      // Número de candidatos generados en la capa
+
+        candidatos.vaciar();
+        for (int i = 0; i < tamHaz; i++) {
+            int nodo = haz[i];
+            int casilla = arena.casilla(nodo);
+
+            for (int m = tablaVecinos.mascara(casilla); m != 0; m &= m - 1) {
+                int vecino = tablaVecinos.vecino(casilla, Integer.numberOfTrailingZeros(m));
+
+                if (cerradas.contiene(vecino)) continue;
+
+                setContNodosGen(getContNodosGen() + 1);             // Incrementa en 1 el número de nodos generados
+                if (arena.coste(nodo) + laberinto.coste(vecino) > laberinto.getUmbral()) continue;
+
+                padresCandidatos[numCandidatos] = nodo;
+                casillasCandidatos[numCandidatos] = vecino;
+                candidatos.ofrecer((int) aplicarHeuristica(vecino), numCandidatos++);
+            }
+        }
+    }
+
+    /**
+     * Forma el haz de la siguiente capa con los candidatos conservados, de mejor a peor, y los guarda en la arena. Si
+     * varios candidatos llegan a la misma casilla desde nodos distintos sólo se conserva el mejor
+     */
+    private void formarHaz() {
+        Laberinto laberinto = getLaberinto();
+        ArenaNodos arena = getArena();
+        int numConservados = candidatos.tamanio();
+
+        // El montículo extrae primero el peor candidato, por lo que se colocan desde el final del haz
+        for (int i = numConservados - 1; i >= 0; i--)
+            haz[i] = candidatos.extraerMaximo();
+
+        tamHaz = 0;
+        for (int i = 0; i < numConservados; i++) {
+            int padre = padresCandidatos[haz[i]];
+            int casilla = casillasCandidatos[haz[i]];
+
+            if (cerradas.marcar(casilla))
+                haz[tamHaz++] = arena.crear(padre, casilla, arena.coste(padre) + laberinto.coste(casilla),
+                        (int) aplicarHeuristica(casilla));
+        }
+    }
+
+    /**
+     * @param nodo Nodo Árbol de decisión a evaluar
+     * @return Imposible
+     * @throws UnsupportedOperationException La selección de operandos se realiza mediante otro método
+     */
+    @Override
+    protected Posicion seleccionarOperando(TreeNode<EstadoLaberinto> nodo) {
+        throw new UnsupportedOperationException("La selección de operando se lleva a cabo de otra manera");
+    }
+
+    /**
+     * Muestra la solución al laberinto
+     *
+     * @param arbolDecision Árbol de decicisón que contiene la solución
+     */
+    @Override
+    protected void mostrarSolucion(TreeNode<EstadoLaberinto> arbolDecision) {
+        mostrarSolucionUnaHoja(arbolDecision);
+    }
+
+    /**
+     * @return Número máximo de nodos que se conservan en cada capa
+     */
+    public int getAnchoHaz() {
+        return anchoHaz;
+    }
+
+    /**
+     * @param anchoHaz Nuevo número máximo de nodos que se conservan en cada capa
+     * @throws IllegalArgumentException Si el ancho del haz no es positivo
+     */
+    public void setAnchoHaz(int anchoHaz) {
+        if (anchoHaz <= 0) throw new IllegalArgumentException("El ancho del haz debe ser positivo");
+
+        this.anchoHaz = anchoHaz;
+        haz = new int[anchoHaz];
+        candidatos = new MonticuloAcotado(anchoHaz);
+        padresCandidatos = new int[anchoHaz * TablaVecinos.NUM_DIRECCIONES];
+        casillasCandidatos = new int[anchoHaz * TablaVecinos.NUM_DIRECCIONES];
+    }
+}
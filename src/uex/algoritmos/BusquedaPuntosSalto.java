@@ -0,0 +1,530 @@
+package uex.algoritmos;
+
+import uex.Jugador;
+import uex.Laberinto;
+import uex.durian.TreeNode;
+import uex.heuristicas.Heuristica;
+import uex.movimiento.Direccion;
+import uex.movimiento.Posicion;
+import uex.movimiento.TablaVecinos;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.concurrent.TimeUnit;
+
+import static uex.algoritmos.ArenaNodos.NINGUNO;
+
+/**
+ * Clase que implementa una variante de la búsqueda por puntos de salto (Jump Point Search) para laberintos con
+ * regiones de coste uniforme
+ * <p>
+ * Es un A* en el que las zonas de coste uniforme no se expanden casilla a casilla. Antes de resolver se cubren las
+ * zonas de casillas con el mismo coste positivo con rectángulos disjuntos de al menos 3x3 casillas. Dentro de un
+ * rectángulo todos los caminos monótonos entre dos casillas de su borde cuestan lo mismo, y siempre hay uno que
+ * avanza por el borde y lo cruza en línea recta, por lo que las casillas interiores nunca se expanden: al moverse
+ * desde el borde hacia el interior se salta directamente a la casilla opuesta del borde, que es el punto de salto.
+ * <p>
+ * Fuera de los rectángulos, donde los costes varían, cada nodo se expande como en {@link AEstrella}, y el coste de la
+ * solución es el mismo. Los rectángulos se calculan una sola vez para cada versión del laberinto, como las tablas de
+ * JPS+. Tras la solución se muestran los nodos expandidos y, opcionalmente, los que se ahorran frente a
+ * {@link AEstrella} con la misma heurística
+ *
+ * @author Juan Pablo García Plaza Pérez
+ * @author José Ángel Concha Carrasco
+ * @author Sergio Barrantes de la Osa
+ */
+public class BusquedaPuntosSalto extends ExpansorArbol {
+
+    private MonticuloPrimitivo nodosAbiertos;       // Cola con prioridad de nodos en exploración, por ponderación
+    private int[] nodosPorCasilla;                  // Nodo expandido (abierto o cerrado) de cada casilla
+    private Visitadas cerradas;                     // Casillas cuyo nodo ya ha sido cerrado
+    private TablaSaltos tablaSaltos;                // Rectángulos de coste uniforme del laberinto
+    private int costeSalto;                         // Coste acumulado hasta el último punto de salto encontrado
+    private int contNodosExp;                       // Número de nodos expandidos (cerrados)
+    private boolean compararConAEstrella;           // Si se resuelve también con A* para comparar las expansiones
+
+    /**
+     * @param heuristica Función heurística a aplicar a los nodos del árbol
+     */
+    public BusquedaPuntosSalto(Heuristica heuristica) {
+        this(Laberinto.instancia(), heuristica);
+    }
+
+    /**
+     * @param laberinto  Laberinto a resolver
+     * @param heuristica Función heurística a aplicar a los nodos del árbol
+     */
+    public BusquedaPuntosSalto(Laberinto laberinto, Heuristica heuristica) {
+        super(laberinto, heuristica);
+        nodosAbiertos = new MonticuloPrimitivo();
+        compararConAEstrella = true;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected void resetExpansor() {
+        Laberinto laberinto = getLaberinto();
+        int casillaInicial = laberinto.indice(new Jugador(laberinto).ctrlMovimiento().posicion());
+
+        // La tabla de saltos se construye antes de resolver y sólo si el laberinto ha cambiado
+        if (tablaSaltos == null || !tablaSaltos.de(laberinto, casillaInicial))
+            tablaSaltos = new TablaSaltos(laberinto, casillaInicial);
+
+        setArbolDecision(new TreeNode<>(null, EstadoLaberinto.estadoInicial(laberinto)));
+        getArena().vaciar();
+        nodosAbiertos.vaciar();
+        nodosPorCasilla = new int[laberinto.getNumCasillas()];
+        cerradas = new Visitadas(laberinto.getNumCasillas());
+        Arrays.fill(nodosPorCasilla, NINGUNO);
+
+        // Añade el primer nodo, el estado inicial
+        agregarNodoAbierto(getArena().crear(NINGUNO, casillaInicial, 0, ponderacion(casillaInicial, 0)));
+
+        setContNodosGen(0);                                         // Reinicia el número de nodos generados
+        contNodosExp = 0;                                           // Reinicia el número de nodos expandidos
+        getReloj().reset();                                         // Reinicia el cronómetro
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void resolver() {
+        // REINICIO DE VARIABLES ENTRE RESOLUCIONES DE LABERINTOS
+        resetExpansor();
+
+        // Extracción de variables locales
+        Laberinto laberinto = getLaberinto();
+        ArenaNodos arena = getArena();
+        int[] puntos = new int[TablaVecinos.NUM_DIRECCIONES];       // Puntos de salto alcanzados desde el nodo
+        int[] costes = new int[TablaVecinos.NUM_DIRECCIONES];       // Coste acumulado hasta cada punto de salto
+        int mejorNodo = mejorNodoAbierto();                         // Nodo más prometedor
+        int numPuntos;
+
+        getReloj().start();
+
+        // Comprueba si es la casilla objetivo o si hay suficiente umbral para continuar el algoritmo
+        while (mejorNodo != NINGUNO && !laberinto.esObjetivo(arena.casilla(mejorNodo)) &&
+                arena.coste(mejorNodo) <= laberinto.getUmbral()) {
+            int casilla = arena.casilla(mejorNodo);
+
+            // Cierra el nodo más prometedor y genera el punto de salto de cada dirección
+            nodosAbiertos.extraerMinimo();
+            cerradas.marcar(casilla);
+            contNodosExp++;
+            numPuntos = seleccionarPuntosSalto(casilla, arena.coste(mejorNodo), puntos, costes);
+            for (int i = 0; i < numPuntos; i++) {
+                int nodoEquivalente = nodosPorCasilla[puntos[i]];
+
+                setContNodosGen(getContNodosGen() + 1);             // Incrementa en 1 el número de nodos generados
+                if (nodoEquivalente == NINGUNO) {
+                    agregarNodoAbierto(arena.crear(mejorNodo, puntos[i], costes[i], ponderacion(puntos[i], costes[i])));
+                } else if (costes[i] < arena.coste(nodoEquivalente)) {
+                    // Alternativa mejor: cambia el padre y vuelve a abrir el nodo con su nueva ponderación
+                    arena.cambiarPadre(nodoEquivalente, mejorNodo);
+                    arena.setCoste(nodoEquivalente, costes[i]);
+                    arena.setPonderacion(nodoEquivalente, ponderacion(puntos[i], costes[i]));
+                    cerradas.desmarcar(puntos[i]);
+                    agregarNodoAbierto(nodoEquivalente);
+                } // Si no supone una alternativa mejor se descarta
+            }
+
+            mejorNodo = mejorNodoAbierto();
+        }
+
+        getReloj().stop();
+
+        // Se encontró una solución si el umbral está por debajo del establecido, sino no tiene solución
+        if (mejorNodo != NINGUNO && arena.coste(mejorNodo) <= laberinto.getUmbral()) {
+            Visitadas enCamino = new Visitadas(laberinto.getNumCasillas());
+            ArenaNodos camino = caminoCompleto(mejorNodo, enCamino);
+
+            getSalida().println("SOLUCIÓN ENCONTRADA");
+            mostrarExpansiones();
+            mostrarSolucion(vistaCamino(camino, camino.tamanio() - 1, enCamino));
+        } else {
+            getSalida().println("NO TIENE SOLUCIÓN");
+            mostrarExpansiones();
+        }
+    }
+
+    /**
+     * Obtiene los puntos de salto alcanzados desde una casilla en cada dirección, ordenados por su coste acumulado
+     * como en {@link AEstrella}. Los empates mantienen el orden de las direcciones
+     *
+     * @param casilla Casilla del nodo a expandir
+     * @param coste   Coste acumulado del nodo
+     * @param puntos  Array en el que guardar los puntos de salto
+     * @param costes  Array en el que guardar el coste acumulado hasta cada punto de salto
+     * @return Número de puntos de salto
+     */
+    private int seleccionarPuntosSalto(int casilla, int coste, int[] puntos, int[] costes) {
+        TablaVecinos tablaVecinos = getLaberinto().getTablaVecinos();
+        int numPuntos = 0;
+
+        for (int m = tablaVecinos.mascara(casilla); m != 0; m &= m - 1) {
+            int puntoSalto = saltar(casilla, Integer.numberOfTrailingZeros(m), coste);
+            int i;
+
+            // Inserción ordenada por coste acumulado
+            for (i = numPuntos++; i > 0 && costes[i - 1] > costeSalto; i--) {
+                puntos[i] = puntos[i - 1];
+                costes[i] = costes[i - 1];
+            }
+            puntos[i] = puntoSalto;
+            costes[i] = costeSalto;
+        }
+
+        return numPuntos;
+    }
+
+    /**
+     * Avanza desde una casilla en una dirección. Si la casilla vecina es interior de un rectángulo uniforme lo cruza
+     * hasta la casilla opuesta de su borde; si no, el punto de salto es la propia casilla vecina. Deja en
+     * {@link BusquedaPuntosSalto#costeSalto} el coste acumulado hasta él
+     *
+     * @param casilla   Casilla de partida, que nunca es interior de un rectángulo
+     * @param direccion Ordinal de la dirección del salto. Debe estar en la máscara de la casilla
+     * @param coste     Coste acumulado en la casilla de partida
+     * @return Casilla del punto de salto
+     */
+    private int saltar(int casilla, int direccion, int coste) {
+        Laberinto laberinto = getLaberinto();
+        int vecina = laberinto.getTablaVecinos().vecino(casilla, direccion);
+        int rectangulo = tablaSaltos.rectangulo(vecina);
+        int destino = vecina;
+        int pasos = 1;
+
+        // Todas las casillas del rectángulo, incluida la de destino, tienen el mismo coste
+        if (rectangulo != NINGUNO) {
+            destino = tablaSaltos.salida(rectangulo, vecina, direccion);
+            pasos = Math.abs(destino - casilla) < laberinto.getAncho() ? Math.abs(destino - casilla) :
+                    Math.abs(destino - casilla) / laberinto.getAncho();
+        }
+
+        costeSalto = coste + pasos * laberinto.coste(vecina);
+        return destino;
+    }
+
+    /**
+     * Reconstruye el camino casilla a casilla a partir de los puntos de salto, rellenando las casillas intermedias de
+     * cada salto en línea recta
+     *
+     * @param nodo     Nodo de la arena del expansor que alcanza el objetivo
+     * @param enCamino Casillas visitadas en las que se marcan las del camino
+     * @return Arena con el camino completo, un nodo por casilla. Su último nodo es el del objetivo
+     */
+    private ArenaNodos caminoCompleto(int nodo, Visitadas enCamino) {
+        Laberinto laberinto = getLaberinto();
+        int ancho = laberinto.getAncho();
+        ArenaNodos arena = getArena();
+        ArenaNodos camino = new ArenaNodos();
+        int[] puntos = new int[TablaVecinos.NUM_DIRECCIONES];
+        int numPuntos = 0;
+        int anterior;
+
+        // Puntos de salto desde el objetivo hasta el estado inicial
+        for (int n = nodo; n != NINGUNO; n = arena.padre(n)) {
+            if (numPuntos == puntos.length) puntos = Arrays.copyOf(puntos, puntos.length * 2);
+            puntos[numPuntos++] = arena.casilla(n);
+        }
+
+        anterior = camino.crear(NINGUNO, puntos[numPuntos - 1], 0, 0);
+        enCamino.marcar(puntos[numPuntos - 1]);
+        for (int i = numPuntos - 2; i >= 0; i--) {
+            int casilla = puntos[i + 1];
+            // Los saltos horizontales no cambian de fila
+            int paso = casilla / ancho == puntos[i] / ancho ? Integer.signum(puntos[i] - casilla) :
+                    Integer.signum(puntos[i] - casilla) * ancho;
+
+            while (casilla != puntos[i]) {
+                casilla += paso;
+                anterior = camino.crear(anterior, casilla, camino.coste(anterior) + laberinto.coste(casilla), 0);
+                enCamino.marcar(casilla);
+            }
+        }
+
+        return camino;
+    }
+
+    /**
+     * Muestra los nodos expandidos y, si está activada la comparación, los que se ahorran frente a {@link AEstrella}
+     */
+    private void mostrarExpansiones() {
+        getSalida().println("Tabla de saltos : " + tablaSaltos);
+        getSalida().println("Número de nodos expandidos : " + contNodosExp);
+
+        if (compararConAEstrella) {
+            int expansionesAEstrella = expansionesAEstrella();
+            int ahorradas = expansionesAEstrella - contNodosExp;
+
+            getSalida().println(String.format("Expansiones ahorradas frente a AEstrella : %d de %d (%.1f %%)",
+                    ahorradas, expansionesAEstrella,
+                    expansionesAEstrella == 0 ? 0.0 : 100.0 * ahorradas / expansionesAEstrella));
+        }
+    }
+
+    /**
+     * @return Número de nodos que expande {@link AEstrella} en el mismo laberinto y con la misma heurística. Su salida
+     * se descarta
+     */
+    private int expansionesAEstrella() {
+        AEstrella aEstrella = new AEstrella(getLaberinto(), getHeuristica());
+
+        aEstrella.setSalida(new PrintStream(new OutputStream() {
+            @Override
+            public void write(int b) {
+            }
+        }));
+        aEstrella.resolver();
+
+        return aEstrella.getContNodosExp();
+    }
+
+    /**
+     * @param casilla Casilla del nodo
+     * @param coste   Coste acumulado del nodo
+     * @return Ponderación del nodo : puntuación heurística de la casilla más el coste acumulado
+     */
+    private int ponderacion(int casilla, int coste) {
+        return (int) aplicarHeuristica(casilla) + coste;
+    }
+
+    /**
+     * Añade un nodo a la cola con prioridad de nodos abiertos y lo indexa por la casilla que ocupa
+     *
+     * @param nodo Nodo a añadir
+     */
+    private void agregarNodoAbierto(int nodo) {
+        nodosAbiertos.insertar(getArena().ponderacion(nodo), nodo);
+        nodosPorCasilla[getArena().casilla(nodo)] = nodo;
+    }
+
+    /**
+     * Al mejorar el coste de un nodo se inserta de nuevo en la cola con su nueva ponderación; las entradas anteriores
+     * del nodo se descartan aquí al llegar a la cabeza de la cola
+     *
+     * @return Nodo abierto más prometedor, o {@link ArenaNodos#NINGUNO} si no queda ninguno
+     */
+    private int mejorNodoAbierto() {
+        while (!nodosAbiertos.estaVacio()) {
+            int nodo = nodosAbiertos.verMinimo();
+
+            if (!cerradas.contiene(getArena().casilla(nodo)) &&
+                    nodosAbiertos.verPrioridadMinima() == getArena().ponderacion(nodo))
+                return nodo;
+            nodosAbiertos.extraerMinimo();
+        }
+
+        return NINGUNO;
+    }
+
+    /**
+     * @param nodo Nodo Árbol de decisión a evaluar
+     * @return Imposible
+     * @throws UnsupportedOperationException La selección de operandos se realiza mediante otro método
+     */
+    @Override
+    protected Posicion seleccionarOperando(TreeNode<EstadoLaberinto> nodo) {
+        throw new UnsupportedOperationException("La selección de operando se lleva a cabo de otra manera");
+    }
+
+    /**
+     * Muestra la solución al laberinto
+     *
+     * @param arbolDecision Árbol de decicisón que contiene la solución
+     */
+    @Override
+    protected void mostrarSolucion(TreeNode<EstadoLaberinto> arbolDecision) {
+        mostrarSolucionUnaHoja(arbolDecision);
+    }
+
+    /**
+     * @return Número de nodos expandidos en la última resolución
+     */
+    public int getContNodosExp() {
+        return contNodosExp;
+    }
+
+    /**
+     * @return Si tras cada resolución se resuelve también con {@link AEstrella} para mostrar las expansiones ahorradas
+     */
+    public boolean isCompararConAEstrella() {
+        return compararConAEstrella;
+    }
+
+    /**
+     * @param compararConAEstrella Si tras cada resolución se resuelve también con {@link AEstrella} para mostrar las
+     *                             expansiones ahorradas
+     */
+    public void setCompararConAEstrella(boolean compararConAEstrella) {
+        this.compararConAEstrella = compararConAEstrella;
+    }
+
+    /**
+     * Rectángulos de coste uniforme de una versión de un laberinto
+     */
+    private static final class TablaSaltos {
+
+        private static final int MIN_LADO = 3;              // Lado mínimo de un rectángulo para que tenga interior
+
+        private final Laberinto laberinto;                  // Laberinto de la tabla
+        private final int version;                          // Versión del laberinto de la tabla
+        private final int casillaInicial;                   // Casilla inicial, que nunca es interior
+        private final int[] rectangulos;                    // Rectángulo de cada casilla interior, o NINGUNO
+        private int[] limites;                              // Columnas y filas del borde de cada rectángulo
+        private int numRectangulos;                         // Número de rectángulos
+        private int numInteriores;                          // Número de casillas interiores
+        private final long nanosConstruccion;               // Tiempo empleado en construir la tabla
+
+        /**
+         * Recorre las casillas en orden de filas. Cada casilla libre abre un rectángulo que se extiende primero a la
+         * derecha y después hacia abajo mientras las casillas libres tengan su mismo coste. Sólo se conservan los
+         * rectángulos con interior. Las casillas con coste no positivo, la inicial y la objetivo nunca forman parte de
+         * un rectángulo
+         *
+         * @param laberinto      Laberinto del que construir la tabla
+         * @param casillaInicial Casilla de partida de la resolución
+         */
+        private TablaSaltos(Laberinto laberinto, int casillaInicial) {
+            long inicio = System.nanoTime();
+            int ancho = laberinto.getAncho();
+            int alto = laberinto.getAlto();
+            BitSet ocupadas = new BitSet(laberinto.getNumCasillas());   // Casillas de los rectángulos conservados
+            int[] derecha = new int[laberinto.getNumCasillas()];        // Casillas con el mismo coste hacia la derecha
+
+            this.laberinto = laberinto;
+            version = laberinto.getVersion();
+            this.casillaInicial = casillaInicial;
+            rectangulos = new int[laberinto.getNumCasillas()];
+            limites = new int[4 * MIN_LADO];
+            Arrays.fill(rectangulos, NINGUNO);
+
+            for (int casilla = laberinto.getNumCasillas() - 1; casilla >= 0; casilla--)
+                if (admisible(casilla))
+                    derecha[casilla] = casilla % ancho != ancho - 1 && admisible(casilla + 1) &&
+                            laberinto.coste(casilla + 1) == laberinto.coste(casilla) ? derecha[casilla + 1] + 1 : 1;
+
+            for (int y = 0; y < alto - MIN_LADO + 1; y++) {
+                for (int x = 0; x < ancho - MIN_LADO + 1; x++) {
+                    int casilla = y * ancho + x;
+                    int lado = libres(ocupadas, derecha, casilla, derecha[casilla]);
+                    int filas = 1;
+
+                    if (lado < MIN_LADO) continue;
+                    while (y + filas < alto && libres(ocupadas, derecha, casilla + filas * ancho, lado) == lado &&
+                            laberinto.coste(casilla + filas * ancho) == laberinto.coste(casilla))
+                        filas++;
+                    if (filas < MIN_LADO) continue;
+
+                    agregarRectangulo(ocupadas, x, y, lado, filas);
+                }
+            }
+
+            nanosConstruccion = System.nanoTime() - inicio;
+        }
+
+        /**
+         * @param casilla Casilla a consultar
+         * @return Si la casilla puede formar parte de un rectángulo
+         */
+        private boolean admisible(int casilla) {
+            return laberinto.coste(casilla) > 0 && casilla != casillaInicial && !laberinto.esObjetivo(casilla);
+        }
+
+        /**
+         * @param ocupadas Casillas de los rectángulos ya conservados
+         * @param derecha  Número de casillas con el mismo coste desde cada casilla hacia la derecha
+         * @param casilla  Primera casilla del tramo
+         * @param lado     Longitud máxima del tramo
+         * @return Longitud del tramo de casillas libres con el mismo coste que empieza en la casilla, hasta
+         * {@code lado}
+         */
+        private static int libres(BitSet ocupadas, int[] derecha, int casilla, int lado) {
+            int ocupada = ocupadas.nextSetBit(casilla);
+
+            lado = Math.min(lado, derecha[casilla]);
+            return ocupada == -1 ? lado : Math.min(lado, ocupada - casilla);
+        }
+
+        /**
+         * Conserva un rectángulo: marca sus casillas como ocupadas y asigna el rectángulo a sus casillas interiores
+         *
+         * @param ocupadas Casillas de los rectángulos ya conservados
+         * @param x        Columna izquierda del rectángulo
+         * @param y        Fila superior del rectángulo
+         * @param lado     Número de columnas del rectángulo
+         * @param filas    Número de filas del rectángulo
+         */
+        private void agregarRectangulo(BitSet ocupadas, int x, int y, int lado, int filas) {
+            int ancho = laberinto.getAncho();
+
+            if (4 * numRectangulos == limites.length) limites = Arrays.copyOf(limites, limites.length * 2);
+            limites[4 * numRectangulos] = x;
+            limites[4 * numRectangulos + 1] = y;
+            limites[4 * numRectangulos + 2] = x + lado - 1;
+            limites[4 * numRectangulos + 3] = y + filas - 1;
+
+            for (int fila = y; fila < y + filas; fila++) {
+                ocupadas.set(fila * ancho + x, fila * ancho + x + lado);
+                if (fila != y && fila != y + filas - 1)
+                    Arrays.fill(rectangulos, fila * ancho + x + 1, fila * ancho + x + lado - 1, numRectangulos);
+            }
+
+            numInteriores += (lado - 2) * (filas - 2);
+            numRectangulos++;
+        }
+
+        /**
+         * @param casilla Casilla a consultar
+         * @return Rectángulo del que la casilla es interior, o {@link ArenaNodos#NINGUNO} si no es interior
+         */
+        private int rectangulo(int casilla) {
+            return rectangulos[casilla];
+        }
+
+        /**
+         * @param rectangulo Rectángulo a cruzar
+         * @param casilla    Casilla interior del rectángulo por la que se entra
+         * @param direccion  Ordinal de la dirección en la que se cruza
+         * @return Casilla del borde del rectángulo en la que termina el cruce
+         */
+        private int salida(int rectangulo, int casilla, int direccion) {
+            int ancho = laberinto.getAncho();
+            int x = casilla % ancho;
+            int y = casilla / ancho;
+
+            switch (Direccion.values()[direccion]) {
+                case NORTE:
+                    return limites[4 * rectangulo + 1] * ancho + x;
+                case ESTE:
+                    return y * ancho + limites[4 * rectangulo + 2];
+                case SUR:
+                    return limites[4 * rectangulo + 3] * ancho + x;
+                default:
+                    return y * ancho + limites[4 * rectangulo];
+            }
+        }
+
+        /**
+         * @param laberinto      Laberinto consultado
+         * @param casillaInicial Casilla de partida de la resolución
+         * @return Si la tabla corresponde a la versión actual del laberinto y a la misma casilla inicial
+         */
+        private boolean de(Laberinto laberinto, int casillaInicial) {
+            return this.laberinto == laberinto && version == laberinto.getVersion() &&
+                    this.casillaInicial == casillaInicial;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%d rectángulos uniformes con %d casillas interiores de %d, construida en %.3f ms",
+                    numRectangulos, numInteriores, rectangulos.length,
+                    nanosConstruccion / (double) TimeUnit.MILLISECONDS.toNanos(1));
+        }
+    }
+}
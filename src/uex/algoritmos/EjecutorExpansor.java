@@ -1,6 +1,5 @@
 package uex.algoritmos;
 
-import uex.Laberinto;
 import uex.heuristicas.Heuristica;
 import uex.heuristicas.Heuristicas;
 
@@ -16,7 +15,7 @@ import java.util.Iterator;
 public class EjecutorExpansor {
 
     private final ExpansorArbol expansorArbol;              // Algoritmo a ejecutar
-    private static Iterator<Heuristica> itHeuristicas;      // Iterador de heurísticas implementadas
+    private Iterator<Heuristica> itHeuristicas;             // Iterador de heurísticas implementadas
 
     /**
      * @param expansorArbol Esquema algorítmo a ejecutar
@@ -29,12 +28,11 @@ public class EjecutorExpansor {
      * @return Primera heurística que se va a evaluar
      */
     public static Heuristica heuristicaPorDefecto() {
-        resetItHeuristicas();
-        return itHeuristicas.next();
+        return Heuristicas.itHeuristicas().next();
     }
 
     /**
-     * Ejecuta el esquema algorítmico establecido sobre el laberinto cargado. Emplea todas las heurísticas
+     * Ejecuta el esquema algorítmico establecido sobre el laberinto del expansor. Emplea todas las heurísticas
      * implementadas
      */
     public void ejecutar() {
@@ -43,35 +41,44 @@ public class EjecutorExpansor {
         imprimirCabecera();
         imprimirLaberinto();                                // Muestra el laberinto sin resolver
         // Ejecuta el algoritmo establecido en el laberinto cargado empleando todas las heurísticas
-        while (itHeuristicas.hasNext()) {
-            expansorArbol.setHeuristica(itHeuristicas.next());
-            System.out.println("*\t" + expansorArbol.getHeuristica() + "\t*");
-            expansorArbol.resolver();
-        }
+        while (itHeuristicas.hasNext())
+            ejecutar(itHeuristicas.next());
         imprimirPie();
     }
 
-    private void imprimirCabecera() {
-        System.out.println("ALGORITMO : " + getExpansorArbol().getClass().getSimpleName());
-        System.out.println("*****************************************************************************************");
+    /**
+     * Ejecuta el esquema algorítmico establecido sobre el laberinto del expansor con una única heurística
+     *
+     * @param heuristica Heurística a emplear
+     */
+    public void ejecutar(Heuristica heuristica) {
+        expansorArbol.setHeuristica(heuristica);
+        heuristica.preparar(expansorArbol.getLaberinto());
+        expansorArbol.getSalida().println("*\t" + heuristica.describir(expansorArbol.getLaberinto()) + "\t*");
+        expansorArbol.resolver();
+    }
+
+    void imprimirCabecera() {
+        expansorArbol.getSalida().println("ALGORITMO : " + getExpansorArbol().getClass().getSimpleName());
+        expansorArbol.getSalida().println("*****************************************************************************************");
     }
 
-    private void imprimirPie() {
-        System.out.println("*****************************************************************************************");
+    void imprimirPie() {
+        expansorArbol.getSalida().println("*****************************************************************************************");
     }
 
     /**
      * Reinicia el iterador de heurísticas
      */
-    private static void resetItHeuristicas() {
+    private void resetItHeuristicas() {
         itHeuristicas = Heuristicas.itHeuristicas();
     }
 
     /**
      * Muestra por consola la representación del laberinto
      */
-    private void imprimirLaberinto() {
-        System.out.println(Laberinto.instancia());
+    void imprimirLaberinto() {
+        expansorArbol.getSalida().println(expansorArbol.getLaberinto());
     }
 
     /**
@@ -0,0 +1,186 @@
+package uex.algoritmos;
+
+import uex.Laberinto;
+import uex.heuristicas.Heuristica;
+import uex.heuristicas.Heuristicas;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiFunction;
+
+/**
+ * Ejecuta en paralelo la matriz completa de trabajos laberinto x algoritmo x heurística sobre un
+ * {@link ExecutorService} configurable. Cada trabajo resuelve con su propio expansor y escribe en su propio flujo de
+ * salida, de modo que los resultados se muestran en el mismo orden que en una ejecución secuencial. El número de
+ * laberintos con trabajos sin terminar está acotado: al encolar uno más se espera a que termine alguno de los anteriores,
+ * por lo que un cargador en segundo plano no se adelanta más allá de su propia profundidad de precarga
+ *
+ * @author Juan Pablo García Plaza Pérez
+ * @author José Ángel Concha Carrasco
+ * @author Sergio Barrantes de la Osa
+ */
+public class EjecutorLotes {
+
+    public static final int DEF_MAX_LABERINTOS = 4;         // Laberintos con trabajos sin terminar por defecto
+    private static final int DEF_MAX_PENDIENTES = 1024;     // Trabajos sin mostrar antes de esperar al más antiguo
+
+    private final ExecutorService ejecutor;                 // Hilos en los que se ejecutan los trabajos
+    private final List<BiFunction<Laberinto, Heuristica, ExpansorArbol>> algoritmos;  // Constructores de algoritmos
+    private final PrintStream salida;                       // Flujo en el que se muestran los resultados
+    private final Queue<Future<String>> resultados;         // Salida de cada trabajo en orden de encolado
+    private final Semaphore laberintosLibres;               // Laberintos que pueden encolarse sin esperar
+    private int contLaberintos;                             // Número de laberintos encolados
+    private int contTrabajos;                               // Número de resoluciones encoladas
+
+    /**
+     * @param ejecutor   Hilos en los que se ejecutan los trabajos. Puede ser un grupo fijo de hilos o uno que cree un
+     *                   hilo virtual por trabajo
+     * @param algoritmos Constructores de los algoritmos a ejecutar sobre cada laberinto, en orden de ejecución
+     * @param salida     Flujo en el que se muestran los resultados
+     */
+    public EjecutorLotes(ExecutorService ejecutor, List<BiFunction<Laberinto, Heuristica, ExpansorArbol>> algoritmos,
+                         PrintStream salida) {
+        this(ejecutor, algoritmos, salida, DEF_MAX_LABERINTOS);
+    }
+
+    /**
+     * @param ejecutor      Hilos en los que se ejecutan los trabajos. Puede ser un grupo fijo de hilos o uno que cree
+     *                      un hilo virtual por trabajo
+     * @param algoritmos    Constructores de los algoritmos a ejecutar sobre cada laberinto, en orden de ejecución
+     * @param salida        Flujo en el que se muestran los resultados
+     * @param maxLaberintos Número máximo de laberintos con trabajos sin terminar
+     * @throws IllegalArgumentException Si el número máximo de laberintos no es positivo
+     */
+    public EjecutorLotes(ExecutorService ejecutor, List<BiFunction<Laberinto, Heuristica, ExpansorArbol>> algoritmos,
+                         PrintStream salida, int maxLaberintos) {
+        if (maxLaberintos < 1)
+            throw new IllegalArgumentException("El número máximo de laberintos debe ser positivo : " + maxLaberintos);
+
+        this.ejecutor = ejecutor;
+        this.algoritmos = new ArrayList<>(algoritmos);
+        this.salida = salida;
+        resultados = new ArrayDeque<>();
+        laberintosLibres = new Semaphore(maxLaberintos);
+        contLaberintos = 0;
+        contTrabajos = 0;
+    }
+
+    /**
+     * Encola un trabajo por cada algoritmo y heurística sobre el laberinto suministrado, y muestra los resultados ya
+     * terminados. Si ya hay el número máximo de laberintos con trabajos sin terminar, espera a que termine alguno. El
+     * laberinto no debe modificarse mientras sus trabajos estén pendientes
+     *
+     * @param laberinto Laberinto a resolver
+     * @throws InterruptedException Si se interrumpe la espera de un trabajo pendiente
+     */
+    public void encolar(Laberinto laberinto) throws InterruptedException {
+        List<Heuristica> heuristicas = new ArrayList<>();
+        AtomicInteger trabajosRestantes;                    // Trabajos del laberinto sin terminar
+
+        Heuristicas.itHeuristicas().forEachRemaining(heuristicas::add);
+        trabajosRestantes = new AtomicInteger(algoritmos.size() * heuristicas.size());
+
+        // El permiso del laberinto se devuelve al terminar su último trabajo
+        laberintosLibres.acquire();
+        if (trabajosRestantes.get() == 0) laberintosLibres.release();
+
+        resultados.add(CompletableFuture.completedFuture(
+                "\n\n\t--- LABERINTO " + ++contLaberintos + " ---\n\n" + System.lineSeparator()));
+        for (BiFunction<Laberinto, Heuristica, ExpansorArbol> algoritmo : algoritmos) {
+            for (int i = 0; i < heuristicas.size(); i++) {
+                Heuristica heuristica = heuristicas.get(i);
+                boolean primera = i == 0;
+                boolean ultima = i == heuristicas.size() - 1;
+
+                resultados.add(ejecutor.submit(() -> {
+                    try {
+                        return ejecutarTrabajo(laberinto, algoritmo, heuristica, primera, ultima);
+                    } finally {
+                        if (trabajosRestantes.decrementAndGet() == 0) laberintosLibres.release();
+                    }
+                }));
+                contTrabajos++;
+            }
+        }
+
+        // Limita la memoria retenida por resultados sin mostrar
+        while (resultados.size() > DEF_MAX_PENDIENTES)
+            mostrar(resultados.poll());
+        while (!resultados.isEmpty() && resultados.peek().isDone())
+            mostrar(resultados.poll());
+    }
+
+    /**
+     * Espera a que terminen todos los trabajos encolados y muestra sus resultados en orden
+     *
+     * @throws InterruptedException Si se interrumpe la espera de un trabajo pendiente
+     */
+    public void finalizar() throws InterruptedException {
+        while (!resultados.isEmpty())
+            mostrar(resultados.poll());
+        salida.flush();
+    }
+
+    /**
+     * Resuelve un laberinto con un algoritmo y una heurística, capturando la salida del algoritmo. La primera heurística
+     * de cada algoritmo incluye la cabecera y el laberinto sin resolver, y la última el pie
+     *
+     * @return Salida generada por el trabajo
+     */
+    private static String ejecutarTrabajo(Laberinto laberinto,
+                                          BiFunction<Laberinto, Heuristica, ExpansorArbol> algoritmo,
+                                          Heuristica heuristica, boolean primera, boolean ultima) {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        ExpansorArbol expansor = algoritmo.apply(laberinto, heuristica);
+        EjecutorExpansor ejecutorExpansor = new EjecutorExpansor(expansor);
+
+        expansor.setSalida(new PrintStream(buffer));
+        if (primera) {
+            ejecutorExpansor.imprimirCabecera();
+            ejecutorExpansor.imprimirLaberinto();
+        }
+        ejecutorExpansor.ejecutar(heuristica);
+        if (ultima) ejecutorExpansor.imprimirPie();
+        expansor.getSalida().flush();
+
+        return buffer.toString();
+    }
+
+    /**
+     * Espera a que termine un trabajo y muestra su salida
+     *
+     * @param resultado Resultado pendiente del trabajo
+     * @throws InterruptedException Si se interrumpe la espera
+     */
+    private void mostrar(Future<String> resultado) throws InterruptedException {
+        try {
+            salida.print(resultado.get());
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Error al ejecutar un trabajo del lote", e.getCause());
+        }
+    }
+
+    /**
+     * @return Número de laberintos encolados
+     */
+    public int getContLaberintos() {
+        return contLaberintos;
+    }
+
+    /**
+     * @return Número de resoluciones encoladas, una por cada laberinto, algoritmo y heurística
+     */
+    public int getContTrabajos() {
+        return contTrabajos;
+    }
+}
@@ -1,17 +1,10 @@
 package uex.algoritmos;
 
-import uex.Jugador;
 import uex.Laberinto;
 import uex.durian.TreeNode;
 import uex.heuristicas.Heuristica;
-import uex.movimiento.ControladorMovimiento;
 import uex.movimiento.Posicion;
-
-import java.util.ArrayList;
-import java.util.Collection;
-import java.util.Comparator;
-import java.util.List;
-import java.util.stream.Collectors;
+import uex.movimiento.TablaVecinos;
 
 /**
  * Clase que implementa el algoritmo de Escalada de Máxima Pendiente
@@ -22,16 +15,27 @@ import java.util.stream.Collectors;
  */
 public class EscaladaMaximaPendiente extends ExpansorArbol {
 
+    /**
+     * @param heuristica Función heurística a aplicar a los nodos del árbol
+     */
     public EscaladaMaximaPendiente(Heuristica heuristica) {
         super(heuristica);
     }
 
+    /**
+     * @param laberinto  Laberinto a resolver
+     * @param heuristica Función heurística a aplicar a los nodos del árbol
+     */
+    public EscaladaMaximaPendiente(Laberinto laberinto, Heuristica heuristica) {
+        super(laberinto, heuristica);
+    }
+
     /**
      * {@inheritDoc}
      */
     @Override
     protected void resetExpansor() {
-        setArbolDecision(new TreeNode<>(null, EstadoLaberinto.estadoInicial()));
+        setArbolDecision(new TreeNode<>(null, EstadoLaberinto.estadoInicial(getLaberinto())));
 
         setContNodosGen(0);                                         // Reinicia el número de nodos generados
         getReloj().reset();                                         // Reinicia el cronómetro
@@ -39,79 +43,67 @@ public class EscaladaMaximaPendiente extends ExpansorArbol {
 
     /**
      * {@inheritDoc}
+     * <p>
+     * El camino avanza en un bucle sobre un único conjunto de casillas visitadas y se guarda en la arena, por lo que
+     * la profundidad de la pila no depende de su longitud
      */
     @Override
     public void resolver() {
+        Visitadas visitadas;                                        // Casillas visitadas por el camino
         boolean exito;
+        int nodo;                                                   // Último nodo del camino
 
         // REINICIO DE VARIABLES ENTRE RESOLUCIONES DE LABERINTOS
         resetExpansor();
+        visitadas = new Visitadas(getLaberinto().getNumCasillas());
         getReloj().start();
 
-        exito = resolver(getArbolDecision());
+        nodo = resolver(reiniciarCamino(getArena(), ArenaNodos.NINGUNO, visitadas), visitadas);
+        exito = getLaberinto().esObjetivo(getArena().casilla(nodo));
 
         getReloj().stop();
 
         // Comprueba si se encontró solución o si se agotaron las iteraciones disponibles
         if (exito) {
-            System.out.println("ÉXITO");
-            mostrarSolucion(getArbolDecision());
+            getSalida().println("ÉXITO");
+            mostrarSolucion(vistaCamino(getArena(), nodo, visitadas));
         } else {
-            System.out.println("NO ENCONTRÓ SOLUCIÓN\nPosiblemente no tenga solución\n");
+            getSalida().println("NO ENCONTRÓ SOLUCIÓN\nPosiblemente no tenga solución\n");
         }
     }
 
     /**
-     * Función sumergida para repetir el algoritmo el número de iteraciones que se deseen
+     * Avanza desde la raíz hacia el mejor vecino de cada nodo mientras mejore al nodo actual
      *
-     * @param nodo Árbol de decisión
-     * @return Si se ha alcanzado una solución
+     * @param nodo      Nodo raíz del camino en la arena
+     * @param visitadas Casillas visitadas por el camino, se actualiza en cada paso
+     * @return Último nodo del camino. Se ha encontrado la solución si su casilla es el objetivo
      */
-    private boolean resolver(TreeNode<EstadoLaberinto> nodo) {
-        // Variables del estado del laberinto actual
-        EstadoLaberinto estadoLaberinto = nodo.getContent();
-        ControladorMovimiento cMov = estadoLaberinto.getJugador().ctrlMovimiento();
-
-        // Variables auxiliares
-        EstadoLaberinto estadoExpandido;                            // Estado generado a partir del operando seleccionado
+    private int resolver(int nodo, Visitadas visitadas) {
+        ArenaNodos arena = getArena();
 
-        // Comprueba si la casilla actual es el objetivo, sino expande otro nodo
-        if (!Laberinto.instancia().casilla(cMov.posicion()).esObjetivo()) {
-            // Obtiene el mejor candidato
-            estadoExpandido = mejorEstadoExpandido(nodo);
+        // Expande un nodo en cada paso mientras la casilla actual no sea el objetivo
+        while (!getLaberinto().esObjetivo(arena.casilla(nodo))) {
+            int casilla = arena.casilla(nodo);                      // Casilla del nodo actual
+            int mejorCasilla = mejorCasillaExpandida(casilla, visitadas);
+            int nuevoUmbral;                                        // Umbral actualizado
 
-            // Comprueba si el mejor candidato no es peor que el padre
-            if (estadoExpandido != null &&
-                    getHeuristica().apply(estadoExpandido).floatValue() >= aplicarHeuristica(nodo).floatValue())
-                return false;
+            // Comprueba si hay algún candidato y si el mejor no es peor que el padre. La casilla objetivo se acepta
+            // siempre, aunque la heurística puntúe igual a sus vecinas
+            if (mejorCasilla == ArenaNodos.NINGUNO || !getLaberinto().esObjetivo(mejorCasilla) &&
+                    aplicarHeuristica(mejorCasilla) >= aplicarHeuristica(casilla))
+                return nodo;
 
             // Determina si el nuevo umbral no supera el disponible
-            if (estadoExpandido.getUmbral() <= Laberinto.instancia().getUmbral())
-                return resolver(new TreeNode<>(nodo, estadoExpandido));
-            else return false;
-        } else {
-            return true;                                            // Ha encontrado la solución
+            nuevoUmbral = arena.coste(nodo) + getLaberinto().coste(mejorCasilla);
+            if (nuevoUmbral > getLaberinto().getUmbral()) return nodo;
+
+            // Avanza al mejor hijo. Añade la posición de destino a las visitadas
+            visitadas.marcar(mejorCasilla);
+            nodo = arena.crear(nodo, mejorCasilla, nuevoUmbral, 0);
         }
-    }
 
-    /**
-     * @param nodo Nodo del árbol de decisión del que se desea conocer sus operandos aplicables
-     * @return Colección de operandos aplicables al estado dado
-     */
-    private Collection<Posicion> operandosDisponibles(TreeNode<EstadoLaberinto> nodo) {
-        // Variables del estado del laberinto actual
-        EstadoLaberinto estadoLaberinto = nodo.getContent();
-        List<Posicion> posVisitadas = estadoLaberinto.getPosVisitadas();
-        ControladorMovimiento cMov = estadoLaberinto.getJugador().ctrlMovimiento();
-        /*
-         Obtiene los movimientos posibles a partir de la posición actual y filtra aquellas que no resulten
-         en una posición ya expandida.
-         */
-        return cMov.movimientosPosibles()
-                .stream()
-                .map(cMov::aplicarMovimiento)
-                .filter(posicion -> !posVisitadas.contains(posicion))
-                .collect(Collectors.toList());
+        return nodo;                                                // Ha encontrado la solución
     }
 
     /**
@@ -125,38 +117,36 @@ public class EscaladaMaximaPendiente extends ExpansorArbol {
     }
 
     /**
-     * @param nodo Nodo del que se desea conocer su mejor hijo
-     * @return Mejor estado hijo generado por el nodo especificado
+     * Genera todos los hijos de una casilla y elige el de mejor puntuación heurística. La casilla objetivo se elige
+     * siempre que sea uno de los hijos. Si varios empatan elige el primero en el orden de
+     * {@link uex.movimiento.Direccion}
+     *
+     * @param casilla   Casilla de la que se desea conocer su mejor hijo
+     * @param visitadas Casillas visitadas por el camino
+     * @return Casilla del mejor hijo, o {@link ArenaNodos#NINGUNO} si no tiene hijos
      */
-    private EstadoLaberinto mejorEstadoExpandido(TreeNode<EstadoLaberinto> nodo) {
-        // Variables del estado del laberinto actual
-        EstadoLaberinto estadoLaberinto = nodo.getContent();
-        List<Posicion> posVisitadas = estadoLaberinto.getPosVisitadas();
+    private int mejorCasillaExpandida(int casilla, Visitadas visitadas) {
+        TablaVecinos tablaVecinos = getLaberinto().getTablaVecinos();
 
         // Variables auxiliares
-        List<EstadoLaberinto> estadosExpandidos = new ArrayList<>();// Lista de estados que se pueden expandir
-        Jugador clon;                                               // Copia del jugador para el siguiente nodo del árbol
-        int nuevoUmbral;                                            // Umbral actualizado
-        List<Posicion> visitadas;                                   // Nueva lista de visitados
-
-        for (Posicion operando : operandosDisponibles(nodo)) {
-            nuevoUmbral = estadoLaberinto.getUmbral() + costeAsociado(operando);
-            // El clon realiza el movimiento elegido
-            clon = (Jugador) estadoLaberinto.getJugador().clone();
-            clon.ctrlMovimiento().setPosicionAbsoluta(operando);
-            // Añade la posición de destino a las visitadas
-            visitadas = new ArrayList<>(posVisitadas);
-            visitadas.add(operando);
-
-            // Crea el nuevo estado expandido para evaluarlo
-            estadosExpandidos.add(new EstadoLaberinto(clon, visitadas, nuevoUmbral));
+        int mejorCasilla = ArenaNodos.NINGUNO;                      // Mejor hijo encontrado
+        double mejorPuntuacion = 0;                                 // Puntuación heurística del mejor hijo
+
+        for (int m = tablaVecinos.mascara(casilla); m != 0; m &= m - 1) {
+            int vecino = tablaVecinos.vecino(casilla, Integer.numberOfTrailingZeros(m));
+            double puntuacion;
+
+            if (visitadas.contiene(vecino)) continue;
+
             setContNodosGen(getContNodosGen() + 1);                 // Incrementa en 1 el número de nodos generados
+            puntuacion = getLaberinto().esObjetivo(vecino) ? Double.NEGATIVE_INFINITY : aplicarHeuristica(vecino);
+            if (mejorCasilla == ArenaNodos.NINGUNO || puntuacion < mejorPuntuacion) {
+                mejorCasilla = vecino;
+                mejorPuntuacion = puntuacion;
+            }
         }
 
-        return estadosExpandidos
-                .stream()
-                .min(Comparator.comparing(estadoExpandido -> getHeuristica().apply(estadoExpandido).floatValue()))
-                .orElse(null);
+        return mejorCasilla;
     }
 
     /**
@@ -1,20 +1,26 @@
 package uex.algoritmos;
 
-import uex.Jugador;
 import uex.Laberinto;
 import uex.durian.TreeNode;
 import uex.heuristicas.Heuristica;
-import uex.movimiento.ControladorMovimiento;
 import uex.movimiento.Posicion;
 
 import java.util.ArrayList;
-import java.util.Collection;
-import java.util.Iterator;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+import java.util.function.DoubleSupplier;
 
 /**
  * Clase que implementa el algoritmo de escalada simple
+ * <p>
+ * Por defecto los intentos se realizan uno tras otro con {@link Math#random()} hasta el primero con éxito. En modo
+ * paralelo ({@link EscaladaSimple#setModoParalelo(ForkJoinPool, long)}) los intentos se reparten entre los hilos de un
+ * {@link ForkJoinPool}, cada uno con su propio {@link SplittableRandom} derivado de una semilla maestra, y se conserva
+ * la solución de menor coste. Ambos modos admiten un límite de intentos y un límite de tiempo
  *
  * @author Juan Pablo García Plaza Pérez
  * @author José Ángel Concha Carrasco
@@ -22,137 +28,172 @@ import java.util.stream.Collectors;
  */
 public class EscaladaSimple extends ExpansorArbol {
 
-    private static final int NUM_ITERACIONES = 25;                  // Número máximo de intentos
+    private static final int NUM_ITERACIONES = 25;                  // Número máximo de intentos por defecto
 
+    private int numIntentos = NUM_ITERACIONES;                      // Número máximo de intentos
+    private long nanosMaximos;                                      // Tiempo máximo de resolución, 0 si no hay límite
+    private ForkJoinPool grupoParalelo;                             // Hilos del modo paralelo, o null en modo secuencial
+    private long semilla;                                           // Semilla maestra de los intentos del modo paralelo
+    private int contIntentos;                                       // Número de intentos realizados en la resolución
+
+    /**
+     * @param heuristica Función heurística a aplicar a los nodos del árbol
+     */
     public EscaladaSimple(Heuristica heuristica) {
         super(heuristica);
     }
 
+    /**
+     * @param laberinto  Laberinto a resolver
+     * @param heuristica Función heurística a aplicar a los nodos del árbol
+     */
+    public EscaladaSimple(Laberinto laberinto, Heuristica heuristica) {
+        super(laberinto, heuristica);
+    }
+
     /**
      * {@inheritDoc}
      */
     @Override
     protected void resetExpansor() {
+        setArbolDecision(new TreeNode<>(null, EstadoLaberinto.estadoInicial(getLaberinto())));
         setContNodosGen(0);                                         // Reinicia el número de nodos generados
+        contIntentos = 0;                                           // Reinicia el número de intentos realizados
         getReloj().reset();                                         // Reinicia el cronómetro
     }
 
     /**
      * {@inheritDoc}
+     * <p>
+     * Cada intento avanza en un bucle sobre un único conjunto de casillas visitadas y guarda el camino en una arena,
+     * por lo que la profundidad de la pila no depende de la longitud del camino
      */
     @Override
     public void resolver() {
-        TreeNode<EstadoLaberinto> copiaArbol;                       // Copia del padre para cada iteración del algoritmo
-        boolean exito;                                              // Resultado de la última iteración. Determina el éxito
-        int numIt = 0;                                              // Número de iteración
+        BooleanSupplier plazoVencido;                               // Si se ha agotado el tiempo de resolución
+        Intento solucion;                                           // Intento cuya solución se muestra, o null
 
         // REINICIO DE VARIABLES ENTRE RESOLUCIONES DE LABERINTOS
         resetExpansor();
         getReloj().start();
-        // Realiza hasta un cierto número de iteraciones intentando encontrar una solución
-        do {
-            // REINICIO DE VARIABLES ENTRE ITERACIONES
-            copiaArbol = getArbolDecision().copy();                 // Reinicia la copia del nodo raíz inicial en cada it.
-
-            exito = resolver(copiaArbol);
-            numIt++;
-        } while (!exito && numIt < NUM_ITERACIONES);
+        plazoVencido = plazoVencido(System.nanoTime());
+        solucion = grupoParalelo != null ? resolverParalelo(plazoVencido) : resolverSecuencial(plazoVencido);
         getReloj().stop();
 
         // Comprueba si se encontró solución o si se agotaron las iteraciones disponibles
-        if (exito) {
-            System.out.println("ÉXITO en " + numIt + " intentos");
-            mostrarSolucion(copiaArbol);
+        if (solucion != null) {
+            getSalida().println("ÉXITO en " + contIntentos + " intentos" + (grupoParalelo != null ?
+                    ". Mejor solución en el intento " + (solucion.indice + 1) : ""));
+            mostrarSolucion(vistaCamino(solucion.arena, solucion.nodo, solucion.visitadas));
         } else {
-            System.out.println("NO ENCONTRÓ SOLUCIÓN en " + NUM_ITERACIONES + " intentos\n" +
+            getSalida().println("NO ENCONTRÓ SOLUCIÓN en " + contIntentos + " intentos\n" +
                     "Posiblemente no tenga solución\n");
         }
     }
 
     /**
-     * Función sumergida para repetir el algoritmo el número de iteraciones que se deseen
+     * Realiza los intentos uno tras otro con {@link Math#random()} hasta el primero con éxito, reutilizando la arena
+     * del expansor y un único conjunto de casillas visitadas
      *
-     * @param nodo Árbol de decisión
-     * @return Si se ha alcanzado una solución
-     */
-    private boolean resolver(TreeNode<EstadoLaberinto> nodo) {
-        // Variables del estado del laberinto actual
-        EstadoLaberinto estadoLaberinto = nodo.getContent();
-        List<Posicion> posVisitadas = estadoLaberinto.getPosVisitadas();
-        ControladorMovimiento cMov = estadoLaberinto.getJugador().ctrlMovimiento();
-
-        // Variables auxiliares
-        Jugador clon;                                               // Copia del jugador para el siguiente nodo del árbol
-        int nuevoUmbral;                                            // Umbral actualizado
-        List<Posicion> visitadas;                                   // Nueva lista de visitados
-        Posicion posDestino;                                        // Operando seleccionado
-        boolean hijoSeleccionado;                                   // Si se encontró algún operando candidato viable
-        EstadoLaberinto estadoExpandido = null;                     // Estado generado a partir del operando seleccionado
-
-        // Comprueba si la casilla actual es el objetivo, sino expande otro nodo
-        if (!Laberinto.instancia().casilla(cMov.posicion()).esObjetivo()) {
-            // Recupera los operandos disponibles
-            Collection<Posicion> operandos = operandosDisponibles(nodo);
-            Iterator<Posicion> itOperandos = operandos.iterator();
-            hijoSeleccionado = false;
-            // Busca un hijo tal que su puntuación heurística sea mejor que la del padre
-            while (itOperandos.hasNext() && !hijoSeleccionado) {
-                // Selecciona el siguiente operando
-                posDestino = itOperandos.next();
-
-                /*
-                 * Genera un nuevo estado expandido a partir del padre para evaluarlo según el operando seleccionado
-                 */
-                nuevoUmbral = estadoLaberinto.getUmbral() + costeAsociado(posDestino);
-                // El clon realiza el movimiento elegido
-                clon = (Jugador) estadoLaberinto.getJugador().clone();
-                clon.ctrlMovimiento().setPosicionAbsoluta(posDestino);
-                // Añade la posición de destino a las visitadas
-                visitadas = new ArrayList<>(posVisitadas);
-                visitadas.add(posDestino);
-                // Crea el nuevo estado expandido para evaluarlo
-                estadoExpandido = new EstadoLaberinto(clon, visitadas, nuevoUmbral);
-
-                // Comprueba si es mejor que el padre
-                if (getHeuristica().apply(estadoExpandido).floatValue() < aplicarHeuristica(nodo).floatValue())
-                    hijoSeleccionado = true;
-            }
+     * @param plazoVencido Si se ha agotado el tiempo de resolución
+     * @return Primer intento con éxito, o {@code null} si se agotaron los intentos o el tiempo
+     */
+    private Intento resolverSecuencial(BooleanSupplier plazoVencido) {
+        Visitadas visitadas = new Visitadas(getLaberinto().getNumCasillas());
+        int nodo = ArenaNodos.NINGUNO;                              // Último nodo del camino del último intento
 
-            // Comprueba que e haya elegido algún operando candidato, sino todos eran peor que el padre
-            if (!hijoSeleccionado) return false;
+        // Realiza hasta un cierto número de iteraciones intentando encontrar una solución
+        while (contIntentos < numIntentos && !plazoVencido.getAsBoolean()) {
+            // REINICIO DE VARIABLES ENTRE ITERACIONES. Vuelve al nodo raíz inicial en cada it.
+            Intento intento = new Intento(contIntentos++, getArena(), reiniciarCamino(getArena(), nodo, visitadas),
+                    visitadas, Math::random);
+            boolean exito = intento.resolver(plazoVencido);
 
-            setContNodosGen(getContNodosGen() + 1);                 // Incrementa en 1 el número de nodos generados
+            setContNodosGen(getContNodosGen() + intento.contNodosGen);
+            if (exito) return intento;
+            nodo = intento.nodo;
+        }
 
-            // Determina si el nuevo umbral no supera el disponible
-            if (estadoExpandido.getUmbral() <= Laberinto.instancia().getUmbral())
-                return resolver(new TreeNode<>(nodo, estadoExpandido));
-            else return false;
-        } else {
-            return true;                                            // Ha encontrado la solución
+        return null;
+    }
+
+    /**
+     * Reparte los intentos entre tantas tareas como hilos tenga el grupo del modo paralelo. Cada tarea toma el
+     * siguiente intento pendiente, con un generador aleatorio obtenido de la semilla maestra según el orden del
+     * intento, y reutiliza su arena y sus casillas visitadas mientras no encuentre la mejor solución hasta el momento.
+     * Se realizan todos los intentos y se conserva la solución de menor coste, por lo que sin límite de tiempo el
+     * resultado sólo depende de la semilla y no del número de hilos
+     *
+     * @param plazoVencido Si se ha agotado el tiempo de resolución. Los intentos en curso se detienen y los pendientes
+     *                     no llegan a empezar
+     * @return Intento con la solución de menor coste, o {@code null} si ninguno tuvo éxito
+     */
+    private Intento resolverParalelo(BooleanSupplier plazoVencido) {
+        Reparto reparto = new Reparto(new SplittableRandom(semilla));
+        List<ForkJoinTask<?>> tareas = new ArrayList<>(grupoParalelo.getParallelism());
+
+        for (int i = 0; i < grupoParalelo.getParallelism(); i++)
+            tareas.add(grupoParalelo.submit(() -> realizarIntentos(reparto, plazoVencido)));
+        tareas.forEach(ForkJoinTask::join);
+
+        setContNodosGen(reparto.contNodosGen);
+        contIntentos = reparto.contIntentos;
+        return reparto.mejor;
+    }
+
+    /**
+     * Realiza intentos pendientes del reparto hasta que se agoten o venza el plazo
+     *
+     * @param reparto      Reparto de los intentos del modo paralelo
+     * @param plazoVencido Si se ha agotado el tiempo de resolución
+     */
+    private void realizarIntentos(Reparto reparto, BooleanSupplier plazoVencido) {
+        ArenaNodos arena = new ArenaNodos();
+        Visitadas visitadas = new Visitadas(getLaberinto().getNumCasillas());
+        int nodo = ArenaNodos.NINGUNO;                              // Último nodo del camino del último intento
+        Intento intento;
+
+        while (!plazoVencido.getAsBoolean() &&
+                (intento = reparto.siguiente(arena, reiniciarCamino(arena, nodo, visitadas), visitadas)) != null) {
+            if (reparto.terminar(intento, intento.resolver(plazoVencido))) {
+                // Conserva el camino del mejor intento. Los siguientes emplean una arena nueva
+                arena = new ArenaNodos();
+                visitadas = new Visitadas(getLaberinto().getNumCasillas());
+                nodo = ArenaNodos.NINGUNO;
+            } else {
+                nodo = intento.nodo;
+            }
         }
     }
 
     /**
-     * @param nodo Nodo del árbol del que se desean conocer sus operandos aplicables
-     * @return Todos los operandos aplicables al estado especificado
+     * @param inicio Instante de comienzo de la resolución según {@link System#nanoTime()}
+     * @return Función que indica si se ha agotado el tiempo de resolución desde el instante de comienzo
      */
-    private Collection<Posicion> operandosDisponibles(TreeNode<EstadoLaberinto> nodo) {
-        // Variables del estado del laberinto actual
-        EstadoLaberinto estadoLaberinto = nodo.getContent();
-        List<Posicion> posVisitadas = estadoLaberinto.getPosVisitadas();
-        ControladorMovimiento cMov = estadoLaberinto.getJugador().ctrlMovimiento();
+    private BooleanSupplier plazoVencido(long inicio) {
+        long nanos = nanosMaximos;
+
+        return nanos > 0 ? () -> System.nanoTime() - inicio >= nanos : () -> false;
+    }
+
+    /**
+     * @param casilla   Casilla de la que se desean conocer sus operandos aplicables
+     * @param visitadas Casillas visitadas por el camino
+     * @param aleatorio Generador de números aleatorios en {@code [0, 1)}
+     * @return Todos los operandos aplicables a la casilla, en orden aleatorio
+     */
+    private List<Posicion> operandosDisponibles(int casilla, Visitadas visitadas, DoubleSupplier aleatorio) {
+        // Obtiene las posiciones vecinas a la posición actual que no estén ya expandidas
+        List<Posicion> posPosibles = posicionesNoVisitadas(casilla, visitadas);
+
         /*
-         Obtiene los movimientos posibles a partir de la posición actual y filtra aquellas que no resulten
-         en una posición ya expandida.
+         Reordena aleatoriamente los operadores disponibles para introducir variabilidad en los caminos generados.
+         Algoritmo de Fisher-Yates: todas las ordenaciones son igual de probables
          */
-        //noinspection ComparatorMethodParameterNotUsed
-        return cMov.movimientosPosibles()
-                .stream()
-                .map(cMov::aplicarMovimiento)
-                .filter(posicion -> !posVisitadas.contains(posicion))
-                // Reordena aleatoriamente los operadores disponibles para introducir variabilidad en los caminos generados
-                .sorted((o1, o2) -> (int) (Math.random() * 3) - 1)
-                .collect(Collectors.toList());
+        for (int i = posPosibles.size() - 1; i > 0; i--)
+            posPosibles.set(i, posPosibles.set((int) (aleatorio.getAsDouble() * (i + 1)), posPosibles.get(i)));
+
+        return posPosibles;
     }
 
     /**
@@ -175,4 +216,193 @@ public class EscaladaSimple extends ExpansorArbol {
         mostrarSolucionUnaHoja(arbolDecision);
     }
 
-}
\ No newline at end of file
+    /**
+     * @return Número máximo de intentos
+     */
+    public int getNumIntentos() {
+        return numIntentos;
+    }
+
+    /**
+     * @param numIntentos Nuevo número máximo de intentos, tanto en modo secuencial como paralelo
+     * @throws IllegalArgumentException Si el número de intentos no es positivo
+     */
+    public void setNumIntentos(int numIntentos) {
+        if (numIntentos <= 0) throw new IllegalArgumentException("El número de intentos debe ser positivo");
+
+        this.numIntentos = numIntentos;
+    }
+
+    /**
+     * Limita el tiempo de cada resolución. Al agotarse se detienen los intentos en curso, que cuentan como fallidos, y
+     * no se empiezan más. Con límite de tiempo el resultado depende de la velocidad de ejecución
+     *
+     * @param tiempo Tiempo máximo, {@code 0} para no limitarlo
+     * @param unidad Unidad del tiempo máximo
+     * @throws IllegalArgumentException Si el tiempo es negativo
+     */
+    public void setTiempoMaximo(long tiempo, TimeUnit unidad) {
+        if (tiempo < 0) throw new IllegalArgumentException("El tiempo máximo no puede ser negativo");
+
+        nanosMaximos = unidad.toNanos(tiempo);
+    }
+
+    /**
+     * Activa el modo paralelo. Sin límite de tiempo, dos resoluciones del mismo laberinto con la misma semilla y el
+     * mismo número de intentos obtienen la misma solución
+     *
+     * @param grupoParalelo Hilos en los que se lanzan los intentos, por ejemplo {@link ForkJoinPool#commonPool()}, o
+     *                      {@code null} para volver al modo secuencial
+     * @param semilla       Semilla maestra de la que se obtiene el generador aleatorio de cada intento
+     */
+    public void setModoParalelo(ForkJoinPool grupoParalelo, long semilla) {
+        this.grupoParalelo = grupoParalelo;
+        this.semilla = semilla;
+    }
+
+    /**
+     * Intento del algoritmo. Guarda su camino y cuenta sus nodos generados sin modificar el estado del expansor, por
+     * lo que varios intentos pueden avanzar a la vez
+     */
+    private final class Intento {
+
+        private final int indice;                               // Orden del intento, empezando en 0
+        private final ArenaNodos arena;                         // Arena en la que se guarda el camino
+        private final Visitadas visitadas;                      // Casillas visitadas por el camino
+        private final DoubleSupplier aleatorio;                 // Generador de números aleatorios del intento
+        private int nodo;                                       // Último nodo del camino
+        private int contNodosGen;                               // Número de nodos generados por el intento
+
+        /**
+         * @param indice    Orden del intento, empezando en 0
+         * @param arena     Arena en la que se guarda el camino
+         * @param raiz      Nodo raíz del camino en la arena
+         * @param visitadas Casillas visitadas, con sólo la casilla inicial marcada
+         * @param aleatorio Generador de números aleatorios en {@code [0, 1)}
+         */
+        private Intento(int indice, ArenaNodos arena, int raiz, Visitadas visitadas, DoubleSupplier aleatorio) {
+            this.indice = indice;
+            this.arena = arena;
+            this.visitadas = visitadas;
+            this.aleatorio = aleatorio;
+            nodo = raiz;
+            contNodosGen = 0;
+        }
+
+        /**
+         * Avanza desde la raíz mientras algún vecino mejore al nodo actual
+         *
+         * @param cancelado Indica si el intento debe detenerse. Se consulta antes de cada paso
+         * @return Si el intento encontró una solución
+         */
+        private boolean resolver(BooleanSupplier cancelado) {
+            // Expande un nodo en cada paso mientras la casilla actual no sea el objetivo
+            while (!exito()) {
+                int casilla = arena.casilla(nodo);                  // Casilla del nodo actual
+                double puntuacion = aplicarHeuristica(casilla);     // Puntuación heurística del nodo actual
+                int casillaSeleccionada = ArenaNodos.NINGUNO;       // Casilla del operando candidato viable
+                int nuevoUmbral;                                    // Umbral actualizado
+
+                if (cancelado.getAsBoolean()) return false;
+
+                // Busca un hijo tal que su puntuación heurística sea mejor que la del padre. La casilla objetivo se
+                // acepta siempre, aunque la heurística puntúe igual a sus vecinas
+                for (Posicion posDestino : operandosDisponibles(casilla, visitadas, aleatorio)) {
+                    int destino = getLaberinto().indice(posDestino);
+
+                    if (getLaberinto().esObjetivo(destino) || aplicarHeuristica(destino) < puntuacion) {
+                        casillaSeleccionada = destino;
+                        break;
+                    }
+                }
+
+                // Comprueba que se haya elegido algún operando candidato, sino todos eran peor que el padre
+                if (casillaSeleccionada == ArenaNodos.NINGUNO) return false;
+
+                contNodosGen++;                                     // Incrementa en 1 el número de nodos generados
+
+                // Determina si el nuevo umbral no supera el disponible
+                nuevoUmbral = arena.coste(nodo) + getLaberinto().coste(casillaSeleccionada);
+                if (nuevoUmbral > getLaberinto().getUmbral()) return false;
+
+                // Avanza al hijo seleccionado. Añade la posición de destino a las visitadas
+                visitadas.marcar(casillaSeleccionada);
+                nodo = arena.crear(nodo, casillaSeleccionada, nuevoUmbral, 0);
+            }
+
+            return true;                                            // Ha encontrado la solución
+        }
+
+        /**
+         * @return Si el último nodo del camino es el objetivo
+         */
+        private boolean exito() {
+            return getLaberinto().esObjetivo(arena.casilla(nodo));
+        }
+
+        /**
+         * @param otro Intento con éxito a comparar
+         * @return Si la solución de este intento cuesta menos que la del otro o, con el mismo coste, si se lanzó antes
+         */
+        private boolean mejorQue(Intento otro) {
+            int coste = arena.coste(nodo);
+            int costeOtro = otro.arena.coste(otro.nodo);
+
+            return coste < costeOtro || coste == costeOtro && indice < otro.indice;
+        }
+    }
+
+    /**
+     * Reparto de los intentos del modo paralelo entre las tareas. Numera los intentos en el orden en que se toman y
+     * acumula sus resultados
+     */
+    private final class Reparto {
+
+        private final SplittableRandom maestro;                 // Generador del que se obtiene el de cada intento
+        private int siguiente;                                  // Orden del siguiente intento pendiente
+        private int contIntentos;                               // Número de intentos terminados
+        private int contNodosGen;                               // Número de nodos generados por los intentos terminados
+        private Intento mejor;                                  // Intento con la mejor solución, o null si no hay
+
+        /**
+         * @param maestro Generador del que se obtiene el de cada intento
+         */
+        private Reparto(SplittableRandom maestro) {
+            this.maestro = maestro;
+            siguiente = 0;
+            contIntentos = 0;
+            contNodosGen = 0;
+            mejor = null;
+        }
+
+        /**
+         * @param arena     Arena en la que se guarda el camino
+         * @param raiz      Nodo raíz del camino en la arena
+         * @param visitadas Casillas visitadas, con sólo la casilla inicial marcada
+         * @return Siguiente intento pendiente, o {@code null} si ya se han tomado todos
+         */
+        private synchronized Intento siguiente(ArenaNodos arena, int raiz, Visitadas visitadas) {
+            if (siguiente == numIntentos) return null;
+
+            return new Intento(siguiente++, arena, raiz, visitadas, maestro.split()::nextDouble);
+        }
+
+        /**
+         * Acumula el resultado de un intento terminado
+         *
+         * @param intento Intento terminado
+         * @param exito   Si el intento encontró una solución
+         * @return Si el intento tiene la mejor solución hasta el momento, en cuyo caso su camino debe conservarse
+         */
+        private synchronized boolean terminar(Intento intento, boolean exito) {
+            contIntentos++;
+            contNodosGen += intento.contNodosGen;
+            if (exito && (mejor == null || intento.mejorQue(mejor))) {
+                mejor = intento;
+                return true;
+            }
+
+            return false;
+        }
+    }
+}
@@ -1,6 +1,7 @@
 package uex.algoritmos;
 
 import uex.Jugador;
+import uex.Laberinto;
 import uex.movimiento.Posicion;
 
 import java.util.ArrayList;
@@ -9,8 +10,11 @@ import java.util.List;
 
 /**
  * Clase que modela un estado del laberinto tras realizar una acción sobre él. Mantiene la definición del laberinto
- * estable durante la ejecución de un algoritmo guardando el estado del jugador, una lista de posiciones visitadas y el
- * umbral restante
+ * estable durante la ejecución de un algoritmo guardando el estado del jugador, el conjunto de casillas visitadas y el
+ * umbral restante.
+ * <p>
+ * Los estados que avanzan por un camino ({@link EstadoLaberinto#siguiente(Jugador, int)}) comparten las casillas
+ * visitadas con el estado anterior y lo enlazan, de modo que el camino se reconstruye recorriendo esos enlaces
  *
  * @author Juan Pablo García Plaza Pérez
  * @author José Ángel Concha Carrasco
@@ -19,30 +23,64 @@ import java.util.List;
 public class EstadoLaberinto implements Comparable {
 
     private Jugador jugador;                        // Estado del jugador
-    private List<Posicion> posVisitadas;            // Lista de posiciones visitadas
+    private final Visitadas visitadas;              // Casillas visitadas
+    private final EstadoLaberinto anterior;         // Estado anterior en el camino, o null si no forma parte de uno
     private int umbral;                             // Valor restante del umbral
 
     /**
-     * @param jugador      Estado del jugador
-     * @param posVisitadas Lista de posiciones visitadas
-     * @param umbral       Valor restante del umbral
+     * @param jugador   Estado del jugador
+     * @param visitadas Casillas visitadas
+     * @param umbral    Valor restante del umbral
      */
-    public EstadoLaberinto(Jugador jugador, List<Posicion> posVisitadas, int umbral) {
+    public EstadoLaberinto(Jugador jugador, Visitadas visitadas, int umbral) {
+        this(jugador, visitadas, null, umbral);
+    }
+
+    /**
+     * @param jugador   Estado del jugador
+     * @param visitadas Casillas visitadas
+     * @param anterior  Estado anterior en el camino, o {@code null} si no forma parte de uno
+     * @param umbral    Valor restante del umbral
+     */
+    protected EstadoLaberinto(Jugador jugador, Visitadas visitadas, EstadoLaberinto anterior, int umbral) {
         this.jugador = jugador;
-        this.posVisitadas = posVisitadas;
+        this.visitadas = visitadas;
+        this.anterior = anterior;
         this.umbral = umbral;
     }
 
     /**
-     * @return Estado inicial de un laberinto inexplorado
+     * @return Estado inicial del laberinto por defecto inexplorado
      */
     public static EstadoLaberinto estadoInicial() {
+        return estadoInicial(Laberinto.instancia());
+    }
+
+    /**
+     * @param laberinto Laberinto a explorar
+     * @return Estado inicial de un laberinto inexplorado
+     */
+    public static EstadoLaberinto estadoInicial(Laberinto laberinto) {
         // Nuevo jugador
-        Jugador jugador = new Jugador();
+        Jugador jugador = new Jugador(laberinto);
         // Añade la posición inicial a las visitadas
-        List<Posicion> posVisitadas = new ArrayList<>(Collections.singletonList(jugador.ctrlMovimiento().posicion()));
+        Visitadas visitadas = new Visitadas(laberinto.getNumCasillas());
+
+        visitadas.marcar(laberinto.indice(jugador.ctrlMovimiento().posicion()));
+        return new EstadoLaberinto(jugador, visitadas, 0);
+    }
 
-        return new EstadoLaberinto(jugador, posVisitadas, 0);
+    /**
+     * Avanza por el camino de este estado. El nuevo estado añade la posición del jugador a las casillas visitadas,
+     * compartiendo con este estado el resto, y lo enlaza como estado anterior
+     *
+     * @param jugador Estado del jugador tras el movimiento
+     * @param umbral  Valor restante del umbral tras el movimiento
+     * @return Estado siguiente en el camino
+     */
+    public EstadoLaberinto siguiente(Jugador jugador, int umbral) {
+        return new EstadoLaberinto(jugador, visitadas.con(getLaberinto().indice(jugador.ctrlMovimiento().posicion())),
+                this, umbral);
     }
 
     /**
@@ -53,9 +91,69 @@ public class EstadoLaberinto implements Comparable {
     }
 
     /**
+     * @return Laberinto al que pertenece el estado
+     */
+    public Laberinto getLaberinto() {
+        return getJugador().ctrlMovimiento().getLaberinto();
+    }
+
+    /**
+     * @return Índice en orden de filas de la casilla en la que se encuentra el jugador, ver
+     * {@link Laberinto#indice(Posicion)}
+     */
+    public int getIndice() {
+        return getLaberinto().indice(getJugador().ctrlMovimiento().posicion());
+    }
+
+    /**
+     * @return Casillas visitadas
+     */
+    public Visitadas getVisitadas() {
+        return visitadas;
+    }
+
+    /**
+     * @param posicion Posición a comprobar
+     * @return Si la casilla de la posición ha sido visitada
+     */
+    public boolean visitada(Posicion posicion) {
+        return visitadas.contiene(getLaberinto().indice(posicion));
+    }
+
+    /**
+     * Añade una posición a las casillas visitadas de este estado
+     *
+     * @param posicion Posición visitada
+     */
+    public void marcarVisitada(Posicion posicion) {
+        visitadas.marcar(getLaberinto().indice(posicion));
+    }
+
+    /**
+     * @return Estado anterior en el camino, o {@code null} si no forma parte de uno o es el primero
+     */
+    public EstadoLaberinto getAnterior() {
+        return anterior;
+    }
+
+    /**
+     * Construye una nueva lista con las posiciones visitadas. Si el estado forma parte de un camino, se reconstruye
+     * recorriendo los estados anteriores y queda en el orden en que se visitaron; si no, en orden de filas
+     *
      * @return Lista de posiciones visitadas
      */
     public List<Posicion> getPosVisitadas() {
+        List<Posicion> posVisitadas = new ArrayList<>(visitadas.tamanio());
+
+        if (anterior != null) {
+            for (EstadoLaberinto estado = this; estado != null; estado = estado.anterior)
+                posVisitadas.add(estado.getJugador().ctrlMovimiento().posicion());
+            Collections.reverse(posVisitadas);
+        } else {
+            for (int i = visitadas.siguiente(0); i >= 0; i = visitadas.siguiente(i + 1))
+                posVisitadas.add(getLaberinto().getTablaVecinos().posicion(i));
+        }
+
         return posVisitadas;
     }
 
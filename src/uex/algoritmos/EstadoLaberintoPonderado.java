@@ -1,11 +1,8 @@
 package uex.algoritmos;
 
 import uex.Jugador;
+import uex.Laberinto;
 import uex.heuristicas.Heuristica;
-import uex.movimiento.Posicion;
-
-import java.util.ArrayList;
-import java.util.List;
 
 /**
  * Estado del laberinto ponderado mediante una función de ponderación que devuelve el resultado de sumar la
@@ -22,29 +19,39 @@ public class EstadoLaberintoPonderado extends EstadoLaberinto {
 
     /**
      * @param jugador      Estado del jugador
-     * @param posVisitadas Lista de posiciones visitadas
-     * @param umbral       Valor restante del umbral
-     * @param heuristica   Función empleada para estimar la puntuación heurística del estado
+     * @param visitadas  Casillas visitadas
+     * @param umbral     Valor restante del umbral
+     * @param heuristica Función empleada para estimar la puntuación heurística del estado
      */
-    public EstadoLaberintoPonderado(Jugador jugador, List<Posicion> posVisitadas, int umbral, Heuristica heuristica) {
-        super(jugador, posVisitadas, umbral);
+    public EstadoLaberintoPonderado(Jugador jugador, Visitadas visitadas, int umbral, Heuristica heuristica) {
+        super(jugador, visitadas, umbral);
         this.heuristica = heuristica;
         actualizarPonderacion();
     }
 
     /**
      * @param heuristica Función con la que evaluar el estado inicial
-     * @return Estado inicial de un laberinto inexplorado
+     * @return Estado inicial del laberinto por defecto inexplorado
      */
     public static EstadoLaberintoPonderado estadoInicial(Heuristica heuristica) {
-        return new EstadoLaberintoPonderado(new Jugador(), new ArrayList<>(), 0, heuristica);
+        return estadoInicial(Laberinto.instancia(), heuristica);
+    }
+
+    /**
+     * @param laberinto  Laberinto a explorar
+     * @param heuristica Función con la que evaluar el estado inicial
+     * @return Estado inicial de un laberinto inexplorado
+     */
+    public static EstadoLaberintoPonderado estadoInicial(Laberinto laberinto, Heuristica heuristica) {
+        return new EstadoLaberintoPonderado(new Jugador(laberinto), new Visitadas(laberinto.getNumCasillas()), 0,
+                heuristica);
     }
 
     /**
      * Actualiza el valor de la ponderación del estado
      */
     private void actualizarPonderacion() {
-        setPonderacion(puntHeuristica().intValue() + getUmbral());
+        setPonderacion((int) heuristica.aplicar(getLaberinto(), getIndice()) + getUmbral());
     }
 
     /**
@@ -93,10 +100,18 @@ public class EstadoLaberintoPonderado extends EstadoLaberinto {
      */
     @Override
     public boolean equals(Object obj) {
-        return getJugador().ctrlMovimiento().posicion().equals(
+        return obj instanceof EstadoLaberintoPonderado && getJugador().ctrlMovimiento().posicion().equals(
                 ((EstadoLaberintoPonderado) obj).getJugador().ctrlMovimiento().posicion());
     }
 
+    /**
+     * @return Código hash de la posición del jugador, consistente con {@link EstadoLaberintoPonderado#equals(Object)}
+     */
+    @Override
+    public int hashCode() {
+        return getJugador().ctrlMovimiento().posicion().hashCode();
+    }
+
     @Override
     public String toString() {
         StringBuilder stringBuilder = new StringBuilder();
@@ -1,20 +1,26 @@
 package uex.algoritmos;
 
 import com.google.common.base.Stopwatch;
+import uex.Jugador;
 import uex.Laberinto;
 import uex.durian.TreeDef;
 import uex.durian.TreeNode;
 import uex.durian.TreeStream;
 import uex.heuristicas.Heuristica;
 import uex.movimiento.Posicion;
+import uex.movimiento.TablaVecinos;
 
+import java.io.PrintStream;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.stream.Collectors;
 
 /**
  * Clase que modela un esquema algorítmo para manipular el laberinto. Se basa en un arbol de decisiones formado por
  * {@link EstadoLaberinto} y que aplica una heurística dada por una función que toma como entrada un estado del laberinto
- * y devuelve un entero como resultado de la estimación
+ * y devuelve un entero como resultado de la estimación.
+ * <p>
+ * Cada expansor resuelve su propio laberinto, por lo que varios expansores pueden resolver laberintos distintos a la vez
  *
  * @author Juan Pablo García Plaza Pérez
  * @author José Ángel Concha Carrasco
@@ -22,21 +28,37 @@ import java.util.stream.Collectors;
  */
 public abstract class ExpansorArbol {
 
+    private Laberinto laberinto;                                    // Laberinto a resolver
     private TreeNode<EstadoLaberinto> arbolDecision;                // Arbol de decisión para modelar la expansión del algoritmo
     private Heuristica heuristica;                                  // Función heurística a aplicar a los nodos del árbol
+    private final ArenaNodos arena;                                 // Almacén de nodos de los algoritmos que lo emplean
 
     private int contNodosGen;                                       // Número de nodos generados en memoria
     private Stopwatch reloj;                                        // Medidor del tiempo de ejecución del algoritmo
+    private PrintStream salida;                                     // Flujo en el que se muestran los resultados
 
     /**
+     * Crea un expansor que resuelve el laberinto por defecto {@link Laberinto#instancia()}
+     *
      * @param heuristica Función heurística a aplicar a los nodos del árbol
      */
     public ExpansorArbol(Heuristica heuristica) {
+        this(Laberinto.instancia(), heuristica);
+    }
+
+    /**
+     * @param laberinto  Laberinto a resolver
+     * @param heuristica Función heurística a aplicar a los nodos del árbol
+     */
+    public ExpansorArbol(Laberinto laberinto, Heuristica heuristica) {
+        this.laberinto = laberinto;
         this.heuristica = heuristica;
-        arbolDecision = new TreeNode<>(null, EstadoLaberinto.estadoInicial());
+        arbolDecision = new TreeNode<>(null, EstadoLaberinto.estadoInicial(laberinto));
+        arena = new ArenaNodos();
 
         contNodosGen = 0;
         reloj = Stopwatch.createUnstarted();
+        salida = System.out;
     }
 
     /**
@@ -63,18 +85,123 @@ public abstract class ExpansorArbol {
      * @param nodo Nodo a evaluar
      * @return Resultado de la función heurística de evaluación
      */
-    protected Number aplicarHeuristica(TreeNode<EstadoLaberinto> nodo) {
-        return getHeuristica().apply(nodo.getContent());
+    protected double aplicarHeuristica(TreeNode<EstadoLaberinto> nodo) {
+        return aplicarHeuristica(nodo.getContent());
+    }
+
+    /**
+     * Aplica la función heurística al estado suministrado mediante su versión primitiva
+     * {@link Heuristica#aplicar(Laberinto, int)}
+     *
+     * @param estado Estado a evaluar
+     * @return Resultado de la función heurística de evaluación
+     */
+    protected double aplicarHeuristica(EstadoLaberinto estado) {
+        return aplicarHeuristica(estado.getIndice());
+    }
+
+    /**
+     * Aplica la función heurística a una casilla del laberinto mediante su versión primitiva
+     * {@link Heuristica#aplicar(Laberinto, int)}
+     *
+     * @param casilla Índice de la casilla en orden de filas
+     * @return Resultado de la función heurística de evaluación
+     */
+    protected double aplicarHeuristica(int casilla) {
+        return heuristica.aplicar(laberinto, casilla);
+    }
+
+    /**
+     * Obtiene las posiciones vecinas de la posición del jugador que aún no ha visitado, recorriendo la tabla de vecinos
+     * precalculada del laberinto
+     *
+     * @param estado Estado del laberinto a evaluar
+     * @return Lista modificable de posiciones vecinas sin visitar, en el orden de {@link uex.movimiento.Direccion}
+     */
+    protected List<Posicion> posicionesNoVisitadas(EstadoLaberinto estado) {
+        return posicionesNoVisitadas(estado.getIndice(), estado.getVisitadas());
+    }
+
+    /**
+     * Obtiene las posiciones vecinas de una casilla que no pertenecen al conjunto de visitadas suministrado
+     *
+     * @param casilla   Índice de la casilla en orden de filas
+     * @param visitadas Casillas visitadas
+     * @return Lista modificable de posiciones vecinas sin visitar, en el orden de {@link uex.movimiento.Direccion}
+     */
+    protected List<Posicion> posicionesNoVisitadas(int casilla, Visitadas visitadas) {
+        TablaVecinos tablaVecinos = laberinto.getTablaVecinos();
+        List<Posicion> posiciones = new ArrayList<>(TablaVecinos.NUM_DIRECCIONES);
+
+        for (int m = tablaVecinos.mascara(casilla); m != 0; m &= m - 1) {
+            int vecino = tablaVecinos.vecino(casilla, Integer.numberOfTrailingZeros(m));
+
+            if (!visitadas.contiene(vecino)) posiciones.add(tablaVecinos.posicion(vecino));
+        }
+
+        return posiciones;
+    }
+
+    /**
+     * @param casilla Índice de una casilla del laberinto en orden de filas
+     * @return Nuevo jugador situado en la casilla, para construir el estado de un nodo de la arena al mostrarlo
+     */
+    protected Jugador jugadorEn(int casilla) {
+        Jugador jugador = new Jugador(laberinto);
+
+        jugador.ctrlMovimiento().setPosicionAbsoluta(laberinto.getTablaVecinos().posicion(casilla));
+        return jugador;
+    }
+
+    /**
+     * Deja la arena con sólo el nodo raíz, situado en la casilla inicial del árbol de decisión, y desmarca de las
+     * casillas visitadas las del camino anterior, de modo que sólo quede visitada la casilla inicial. Permite a los
+     * algoritmos que avanzan por un único camino reutilizar la arena y las casillas visitadas entre intentos
+     *
+     * @param arena     Arena en la que se guarda el camino, normalmente {@link ExpansorArbol#getArena()}
+     * @param nodo      Último nodo del camino anterior, o {@link ArenaNodos#NINGUNO} si no hay camino anterior
+     * @param visitadas Casillas visitadas por el camino anterior
+     * @return Nodo raíz del nuevo camino
+     */
+    protected int reiniciarCamino(ArenaNodos arena, int nodo, Visitadas visitadas) {
+        int casillaInicial = arbolDecision.getContent().getIndice();
+
+        for (int n = nodo; n != ArenaNodos.NINGUNO; n = arena.padre(n)) visitadas.desmarcar(arena.casilla(n));
+        visitadas.marcar(casillaInicial);
+
+        arena.vaciar();
+        return arena.crear(ArenaNodos.NINGUNO, casillaInicial, 0, 0);
+    }
+
+    /**
+     * Construye la vista de un camino guardado en la arena como una cadena de nodos con un único hijo, para mostrarlo
+     * con {@link ExpansorArbol#mostrarSolucionUnaHoja(TreeNode)}. La raíz contiene el estado inicial del árbol de
+     * decisión y cada estado siguiente enlaza el anterior, por lo que lista las posiciones del camino hasta él
+     *
+     * @param arena     Arena en la que se guarda el camino
+     * @param nodo      Último nodo del camino en la arena
+     * @param visitadas Casillas visitadas por el camino completo, compartidas por los estados de la vista
+     * @return Raíz de la vista del camino
+     */
+    protected TreeNode<EstadoLaberinto> vistaCamino(ArenaNodos arena, int nodo, Visitadas visitadas) {
+        EstadoLaberinto[] anterior = {null};                        // Último estado construido, empezando por la raíz
+        TreeNode<EstadoLaberinto> vista;
+
+        vista = arena.camino(nodo, n -> anterior[0] = anterior[0] == null ? arbolDecision.getContent() :
+                new EstadoLaberinto(jugadorEn(arena.casilla(n)), visitadas, anterior[0], arena.coste(n)));
+        while (vista.getParent() != null) vista = vista.getParent();
+
+        return vista;
     }
 
     /**
      * @param posicionDestino Posición de destino
-     * @return Coste asociado a la posición de destino, o {@code  Laberinto.instancia().getUmbral()}
+     * @return Coste asociado a la posición de destino, o {@code  getLaberinto().getUmbral()}
      * si la posición de destino es nula
      */
     protected int costeAsociado(Posicion posicionDestino) {
-        return posicionDestino != null ? Laberinto.instancia().casilla(posicionDestino).valor() :
-                Laberinto.instancia().getUmbral();
+        return posicionDestino != null ? laberinto.coste(posicionDestino.getX(), posicionDestino.getY()) :
+                laberinto.getUmbral();
     }
 
     /**
@@ -98,13 +225,31 @@ public abstract class ExpansorArbol {
         TreeNode<EstadoLaberinto> sol = TreeDef.filteredList(collect, nodo -> nodo.getChildren().size() == 0).get(0);
 
         // Imprime tiempo empleado
-        System.out.println("Tiempo empleado : " + getReloj());
+        getSalida().println("Tiempo empleado : " + getReloj());
         // Imprime el número de nodos generados en memoria
-        System.out.println("Número de nodos generados : " + getContNodosGen());
+        getSalida().println("Número de nodos generados : " + getContNodosGen());
         // Representación del camino solución
-        System.out.println(new Laberinto.Solucionado(sol.getContent().getPosVisitadas(), sol.getContent().getUmbral()));
+        getSalida().println(new Laberinto.Solucionado(getLaberinto(), sol.getContent().getPosVisitadas(),
+                sol.getContent().getUmbral()));
         // Secuencia de estados. Representación de la expansión
-        System.out.println(arbolDecision.toStringDeep() + "\n");
+        getSalida().println(arbolDecision.toStringDeep() + "\n");
+    }
+
+    /**
+     * @return Laberinto a resolver
+     */
+    public Laberinto getLaberinto() {
+        return laberinto;
+    }
+
+    /**
+     * Cambia el laberinto a resolver. El estado inicial se recalcula en la siguiente resolución
+     *
+     * @param laberinto Nuevo laberinto a resolver
+     */
+    public void setLaberinto(Laberinto laberinto) {
+        this.laberinto = laberinto;
+        arbolDecision = new TreeNode<>(null, EstadoLaberinto.estadoInicial(laberinto));
     }
 
     /**
@@ -121,6 +266,23 @@ public abstract class ExpansorArbol {
         this.heuristica = heuristica;
     }
 
+    /**
+     * @return Flujo en el que se muestran los resultados del algoritmo. Por defecto la salida estándar
+     */
+    public PrintStream getSalida() {
+        return salida;
+    }
+
+    /**
+     * Cambia el flujo en el que se muestran los resultados. Permite que varios expansores ejecutados a la vez no
+     * mezclen su salida
+     *
+     * @param salida Nuevo flujo de salida
+     */
+    public void setSalida(PrintStream salida) {
+        this.salida = salida;
+    }
+
     /**
      * @return Arbol de decisión para modelar la expansión del algoritmo
      */
@@ -149,6 +311,14 @@ public abstract class ExpansorArbol {
         return reloj;
     }
 
+    /**
+     * @return Almacén de nodos en el que los algoritmos pueden guardar su árbol de búsqueda en lugar de emplear
+     * {@link TreeNode}. Se reutiliza entre resoluciones
+     */
+    protected ArenaNodos getArena() {
+        return arena;
+    }
+
     protected void setArbolDecision(TreeNode<EstadoLaberinto> arbolDecision) {
         this.arbolDecision = arbolDecision;
     }
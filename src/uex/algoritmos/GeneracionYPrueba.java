@@ -1,19 +1,28 @@
 package uex.algoritmos;
 
-import uex.Jugador;
 import uex.Laberinto;
 import uex.durian.TreeNode;
 import uex.heuristicas.Heuristica;
-import uex.movimiento.ControladorMovimiento;
 import uex.movimiento.Posicion;
 
 import java.util.ArrayList;
 import java.util.Comparator;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+import java.util.function.DoubleSupplier;
 
 /**
  * Clase que implementa el algoritmo de Generación y prueba
+ * <p>
+ * Por defecto los intentos se realizan uno tras otro con {@link Math#random()}. En modo paralelo
+ * ({@link GeneracionYPrueba#setModoParalelo(ForkJoinPool, long)}) se lanzan todos a la vez en un
+ * {@link ForkJoinPool}, cada uno con su propio {@link SplittableRandom} derivado de una semilla maestra, y se
+ * cancelan los intentos posteriores al primero con éxito. La solución es siempre la del primer intento con éxito en
+ * orden de lanzamiento, por lo que el resultado sólo depende de la semilla y no del número de hilos
  *
  * @author Juan Pablo García Plaza Pérez
  * @author José Ángel Concha Carrasco
@@ -21,29 +30,42 @@ import java.util.stream.Collectors;
  */
 public class GeneracionYPrueba extends ExpansorArbol {
 
-    private static final int NUM_ITERACIONES = 25;          // Número máximo de intentos
-    private final int NUM_MOV_PRUEBA;                       // Número de movimientos hasta la prueba heurística
-    private final int UMBRAL_HEURISTICO;                    // Umbral para determinar si merece la pena seguir con la iteración
+    private static final int NUM_ITERACIONES = 25;          // Número máximo de intentos por defecto
+    private int numMovPrueba;                               // Número de movimientos hasta la prueba heurística
+    private int umbralHeuristico;                           // Umbral para determinar si merece la pena seguir con la iteración
 
-    private int numMov;                                     // Número de movimientos dados por el algoritmo en un momento dado
+    private int numIntentos = NUM_ITERACIONES;              // Número máximo de intentos
+    private ForkJoinPool grupoParalelo;                     // Hilos del modo paralelo, o null en modo secuencial
+    private long semilla;                                   // Semilla maestra de los intentos del modo paralelo
 
     /**
      * @param heuristica Heurística a emplear
      */
     public GeneracionYPrueba(Heuristica heuristica) {
         super(heuristica);
+    }
 
-        // Ponderado en lo que consume de media el algoritmo en costes cuando ha realizado la mitad de los pasos medios
-        NUM_MOV_PRUEBA = (int) (Laberinto.instancia().getUmbral() / 1.5 / 5);
-        // Ponderado en los pasos que da de media en algoritmo hasta llegar al cuadrante de la posición objetivo
-        UMBRAL_HEURISTICO = Laberinto.instancia().getDimension() / 2;
+    /**
+     * @param laberinto  Laberinto a resolver
+     * @param heuristica Heurística a emplear
+     */
+    public GeneracionYPrueba(Laberinto laberinto, Heuristica heuristica) {
+        super(laberinto, heuristica);
     }
 
     /**
      * {@inheritDoc}
+     * <p>
+     * Recalcula los parámetros de la prueba heurística a partir del umbral y las dimensiones del laberinto cargado
      */
     @Override
     protected void resetExpansor() {
+        setArbolDecision(new TreeNode<>(null, EstadoLaberinto.estadoInicial(getLaberinto())));
+        // Ponderado en lo que consume de media el algoritmo en costes cuando ha realizado la mitad de los pasos medios
+        numMovPrueba = (int) (getLaberinto().getUmbral() / 1.5 / 5);
+        // Ponderado en los pasos que da de media en algoritmo hasta llegar al cuadrante de la posición objetivo
+        umbralHeuristico = (getLaberinto().getAncho() + getLaberinto().getAlto()) / 4;
+
         setContNodosGen(0);                                 // Reinicia el número de nodos generados
         getReloj().reset();                                 // Reinicia el cronómetro
     }
@@ -51,86 +73,103 @@ public class GeneracionYPrueba extends ExpansorArbol {
     /**
      * Implementa el algoritmo de búsqueda con información "Generación y Prueba". Ordena los operadores disponibles
      * por coste. El coste de un movimiento es el valor asociado a la casilla de la posición destino.
+     * <p>
+     * Cada intento avanza en un bucle sobre un único conjunto de casillas visitadas y guarda el camino en una arena,
+     * por lo que la profundidad de la pila no depende de la longitud del camino
      */
     @Override
     public void resolver() {
-        TreeNode<EstadoLaberinto> copiaArbol;               // Copia del padre para cada iteración del algoritmo
-        boolean exito;                                      // Resultado de la última iteración. Determina el éxito
-        int numIt = 0;                                      // Número de iteración
+        Intento solucion;                                   // Primer intento con éxito, o null si no hay ninguno
 
         // REINICIO DE VARIABLES ENTRE RESOLUCIONES DE LABERINTOS
         resetExpansor();
         getReloj().start();
-        // Realiza hasta un cierto número de iteraciones intentando encontrar una solución
-        do {
-            // REINICIO DE VARIABLES ENTRE ITERACIONES
-            setNumMov(0);                                   // Reinicia el número de movimientos realizados en cada it.
-            copiaArbol = getArbolDecision().copy();         // Reinicia la copia del nodo raíz inicial en cada it.
-
-            exito = resolver(copiaArbol);
-            numIt++;
-        } while (!exito && numIt < NUM_ITERACIONES);
+        solucion = grupoParalelo != null ? resolverParalelo() : resolverSecuencial();
         getReloj().stop();
 
         // Comprueba si se encontró solución o si se agotaron las iteraciones disponibles
-        if (exito) {
-            System.out.println("ÉXITO en " + numIt + " intentos");
-            mostrarSolucion(copiaArbol);
+        if (solucion != null) {
+            getSalida().println("ÉXITO en " + (solucion.indice + 1) + " intentos");
+            mostrarSolucion(vistaCamino(solucion.arena, solucion.nodo, solucion.visitadas));
         } else {
-            System.out.println("NO ENCONTRÓ SOLUCIÓN en " + NUM_ITERACIONES + " intentos\n" +
+            getSalida().println("NO ENCONTRÓ SOLUCIÓN en " + numIntentos + " intentos\n" +
                     "Posiblemente no tenga solución o se rechazaron todos los caminos parciales\n");
         }
     }
 
     /**
-     * Función sumergida del método {@link GeneracionYPrueba#resolver()}
+     * Realiza los intentos uno tras otro con {@link Math#random()}, reutilizando la arena del expansor y un único
+     * conjunto de casillas visitadas
      *
-     * @param nodo Árbol de decisión de entrada
-     * @return Si la iteración encontró una solución
+     * @return Primer intento con éxito, o {@code null} si se agotaron los intentos
      */
-    private boolean resolver(TreeNode<EstadoLaberinto> nodo) {
-        // Variables del estado del laberinto actual
-        EstadoLaberinto estadoLaberinto = nodo.getContent();
-        List<Posicion> posVisitadas = estadoLaberinto.getPosVisitadas();
-        ControladorMovimiento cMov = estadoLaberinto.getJugador().ctrlMovimiento();
-
-        // Variables auxiliares
-        Jugador clon;                                       // Copia del jugador para el siguiente nodo del árbol
-        int nuevoUmbral;                                    // Umbral actualizado
-        List<Posicion> visitadas;                           // Nueva lista de visitados
-        Posicion posDestino;                                // Operando seleccionado
-
-        // Comprueba si la casilla actual es el objetivo, sino expande otro nodo
-        if (!Laberinto.instancia().casilla(cMov.posicion()).esObjetivo()) {
-            // Selección de operando
-            posDestino = seleccionarOperando(nodo);
-            /*
-             * Actualización del umbral. Si no hay posición disponible se actualiza a un valor mayor que el umbral
-             * para detener la iteración
-             */
-            nuevoUmbral = estadoLaberinto.getUmbral() + costeAsociado(posDestino);
-            setContNodosGen(getContNodosGen() + 1);         // Incrementa en 1 el número de nodos generados
+    private Intento resolverSecuencial() {
+        Visitadas visitadas = new Visitadas(getLaberinto().getNumCasillas());
+        int nodo = ArenaNodos.NINGUNO;                      // Último nodo del camino del último intento
 
-            // Determina si el nuevo umbral no supera el disponible
-            if (nuevoUmbral <= Laberinto.instancia().getUmbral()) {
-                // Comrprobación heurística de si merece la pena seguir evaluando esta iteración
-                if (!pruebaHeuristica(nodo)) return false;
+        // Realiza hasta un cierto número de iteraciones intentando encontrar una solución
+        for (int i = 0; i < numIntentos; i++) {
+            // REINICIO DE VARIABLES ENTRE ITERACIONES. Vuelve al nodo raíz inicial en cada it.
+            Intento intento = new Intento(i, getArena(), reiniciarCamino(getArena(), nodo, visitadas), visitadas,
+                    Math::random);
+            boolean exito = intento.resolver(() -> false);
 
-                // El clon realiza el movimiento elegido
-                clon = (Jugador) estadoLaberinto.getJugador().clone();
-                clon.ctrlMovimiento().setPosicionAbsoluta(posDestino);
+            setContNodosGen(getContNodosGen() + intento.contNodosGen);
+            if (exito) return intento;
+            nodo = intento.nodo;
+        }
 
-                // Añade la posición de destino a las visitadas
-                visitadas = new ArrayList<>(posVisitadas);
-                visitadas.add(posDestino);
+        return null;
+    }
+
+    /**
+     * Lanza todos los intentos a la vez en el grupo de hilos del modo paralelo. Cada intento tiene su propia arena,
+     * sus casillas visitadas y un generador aleatorio obtenido de la semilla maestra según su orden de lanzamiento.
+     * Cuando un intento tiene éxito se cancelan los posteriores, pero los anteriores continúan hasta terminar, de modo
+     * que la solución y el número de nodos generados coinciden en cualquier ejecución con la misma semilla
+     *
+     * @return Primer intento con éxito en orden de lanzamiento, o {@code null} si ninguno tuvo éxito
+     */
+    private Intento resolverParalelo() {
+        SplittableRandom maestro = new SplittableRandom(semilla);
+        AtomicInteger primerExito = new AtomicInteger(numIntentos);  // Menor índice de los intentos con éxito
+        List<ForkJoinTask<Intento>> tareas = new ArrayList<>(numIntentos);
+        Intento solucion = null;
 
-                setNumMov(getNumMov() + 1);                 // Incrementa el número de movientos realizados
+        for (int i = 0; i < numIntentos; i++) {
+            int indice = i;
+            SplittableRandom aleatorio = maestro.split();
 
-                return resolver(new TreeNode<>(nodo, new EstadoLaberinto(clon, visitadas, nuevoUmbral)));
-            } else return false;
-        } else {
-            return true;                                    // Ha encontrado la solución
+            tareas.add(grupoParalelo.submit(() -> {
+                ArenaNodos arena = new ArenaNodos();
+                Visitadas visitadas = new Visitadas(getLaberinto().getNumCasillas());
+                Intento intento = new Intento(indice, arena, reiniciarCamino(arena, ArenaNodos.NINGUNO, visitadas),
+                        visitadas, aleatorio::nextDouble);
+
+                // Un intento se cancela en cuanto otro anterior tiene éxito
+                if (intento.resolver(() -> primerExito.get() < indice))
+                    primerExito.accumulateAndGet(indice, Math::min);
+                else
+                    intento.descartarCamino();                  // Sólo se conserva el camino de los intentos con éxito
+                return intento;
+            }));
         }
+
+        // Recoge los intentos en orden hasta el primero con éxito y cancela los siguientes
+        for (ForkJoinTask<Intento> tarea : tareas) {
+            if (solucion == null) {
+                Intento intento = tarea.join();
+
+                setContNodosGen(getContNodosGen() + intento.contNodosGen);
+                if (intento.exito()) solucion = intento;
+            } else {
+                tarea.cancel(false);
+            }
+        }
+        // Espera a que los intentos cancelados que ya estuvieran en ejecución se detengan
+        tareas.forEach(ForkJoinTask::quietlyJoin);
+
+        return solucion;
     }
 
     /**
@@ -139,11 +178,12 @@ public class GeneracionYPrueba extends ExpansorArbol {
      * cuadrante de la posición objetivo. El laberinto está dividido en 4 cuadrantes iguales que resultan de dividirlo a
      * la mitad vertical y horizontalmente
      *
-     * @param nodo Nodo parte de la solución siendo evaluado
+     * @param casilla Casilla del nodo parte de la solución siendo evaluado
+     * @param numMov  Número de movimientos realizados en el intento
      * @return Si merece la pena seguir explorando esta solución
      */
-    private boolean pruebaHeuristica(TreeNode<EstadoLaberinto> nodo) {
-        return getNumMov() != NUM_MOV_PRUEBA || aplicarHeuristica(nodo).intValue() <= UMBRAL_HEURISTICO;
+    private boolean pruebaHeuristica(int casilla, int numMov) {
+        return numMov != numMovPrueba || (int) aplicarHeuristica(casilla) <= umbralHeuristico;
     }
 
     /**
@@ -161,23 +201,26 @@ public class GeneracionYPrueba extends ExpansorArbol {
      */
     @Override
     protected Posicion seleccionarOperando(TreeNode<EstadoLaberinto> nodo) {
-        // Variables del estado del laberinto actual
-        EstadoLaberinto estadoLaberinto = nodo.getContent();
-        List<Posicion> posVisitadas = estadoLaberinto.getPosVisitadas();
-        ControladorMovimiento cMov = estadoLaberinto.getJugador().ctrlMovimiento();
+        return seleccionarOperando(nodo.getContent().getIndice(), nodo.getContent().getVisitadas(), Math::random);
+    }
 
+    /**
+     * Selecciona la posición de destino desde una casilla, ver {@link GeneracionYPrueba#seleccionarOperando(TreeNode)}
+     *
+     * @param casilla   Casilla en la que se encuentra el jugador
+     * @param visitadas Casillas visitadas por el camino
+     * @param aleatorio Generador de números aleatorios en {@code [0, 1)}
+     * @return Posición de destino, o {@code null} si todas las vecinas están visitadas
+     */
+    private Posicion seleccionarOperando(int casilla, Visitadas visitadas, DoubleSupplier aleatorio) {
         Posicion posDestino = null;
 
         /*
-         Obtiene los movimientos posibles a partir de la posición actual y filtra aquellas que no resulten
-         en una posición ya visitada. Después ordena los movimientos por costes
+         Obtiene las posiciones vecinas a la posición actual que no estén ya visitadas. Después las ordena por
+         costes
          */
-        List<Posicion> posPosibles = cMov.movimientosPosibles()
-                .stream()
-                .map(cMov::aplicarMovimiento)
-                .filter(posicion -> !posVisitadas.contains(posicion))
-                .sorted(Comparator.comparingInt(this::costeAsociado))
-                .collect(Collectors.toList());
+        List<Posicion> posPosibles = posicionesNoVisitadas(casilla, visitadas);
+        posPosibles.sort(Comparator.comparingInt(this::costeAsociado));
 
         // Comprueba si no se ha encerrado a sí mismo. Sino calcula la siguiente posición
         if (posPosibles.size() != 0)
@@ -190,7 +233,7 @@ public class GeneracionYPrueba extends ExpansorArbol {
             Da prioridad a los elementos del inicio de la lista mapeando una cantidad de valores mayor en el intervalo
             (0, sum(indices+1)] y equivalente a la fórmula nValores = nPosiciones - idx
              */
-            posDestino = posPosibles.get((int) (Math.random() *
+            posDestino = posPosibles.get((int) (aleatorio.getAsDouble() *
                     ((posPosibles.size() * (posPosibles.size() + 1)) / 2) / posPosibles.size()));
 
         return posDestino;
@@ -205,16 +248,122 @@ public class GeneracionYPrueba extends ExpansorArbol {
     }
 
     /**
-     * @return Número de movimientos dados por el algoritmo en un momento dado
+     * @return Número máximo de intentos
      */
-    private int getNumMov() {
-        return numMov;
+    public int getNumIntentos() {
+        return numIntentos;
     }
 
     /**
-     * @param numMov Nuevo número de movimientos
+     * @param numIntentos Nuevo número máximo de intentos, tanto en modo secuencial como paralelo
+     * @throws IllegalArgumentException Si el número de intentos no es positivo
      */
-    private void setNumMov(int numMov) {
-        this.numMov = numMov;
+    public void setNumIntentos(int numIntentos) {
+        if (numIntentos <= 0) throw new IllegalArgumentException("El número de intentos debe ser positivo");
+
+        this.numIntentos = numIntentos;
+    }
+
+    /**
+     * Activa el modo paralelo. Dos resoluciones del mismo laberinto con la misma semilla y el mismo número de
+     * intentos obtienen la misma solución
+     *
+     * @param grupoParalelo Hilos en los que se lanzan los intentos, por ejemplo {@link ForkJoinPool#commonPool()}, o
+     *                      {@code null} para volver al modo secuencial
+     * @param semilla       Semilla maestra de la que se obtiene el generador aleatorio de cada intento
+     */
+    public void setModoParalelo(ForkJoinPool grupoParalelo, long semilla) {
+        this.grupoParalelo = grupoParalelo;
+        this.semilla = semilla;
+    }
+
+    /**
+     * Intento del algoritmo. Guarda su camino y cuenta sus nodos generados y movimientos sin modificar el estado del
+     * expansor, por lo que varios intentos pueden avanzar a la vez
+     */
+    private final class Intento {
+
+        private final int indice;                       // Orden del intento, empezando en 0
+        private ArenaNodos arena;                       // Arena en la que se guarda el camino
+        private Visitadas visitadas;                    // Casillas visitadas por el camino
+        private final DoubleSupplier aleatorio;         // Generador de números aleatorios del intento
+        private int nodo;                               // Último nodo del camino
+        private int numMov;                             // Número de movimientos dados por el intento
+        private int contNodosGen;                       // Número de nodos generados por el intento
+
+        /**
+         * @param indice    Orden del intento, empezando en 0
+         * @param arena     Arena en la que se guarda el camino
+         * @param raiz      Nodo raíz del camino en la arena
+         * @param visitadas Casillas visitadas, con sólo la casilla inicial marcada
+         * @param aleatorio Generador de números aleatorios en {@code [0, 1)}
+         */
+        private Intento(int indice, ArenaNodos arena, int raiz, Visitadas visitadas, DoubleSupplier aleatorio) {
+            this.indice = indice;
+            this.arena = arena;
+            this.visitadas = visitadas;
+            this.aleatorio = aleatorio;
+            nodo = raiz;
+            numMov = 0;
+            contNodosGen = 0;
+        }
+
+        /**
+         * Avanza desde la raíz hasta alcanzar el objetivo, superar el umbral, no superar la prueba heurística o ser
+         * cancelado
+         *
+         * @param cancelado Indica si el intento debe detenerse. Se consulta antes de cada paso
+         * @return Si el intento encontró una solución
+         */
+        private boolean resolver(BooleanSupplier cancelado) {
+            // Expande un nodo en cada paso mientras la casilla actual no sea el objetivo
+            while (!exito()) {
+                int casilla = arena.casilla(nodo);          // Casilla del nodo actual
+                Posicion posDestino;                        // Operando seleccionado
+                int nuevoUmbral;                            // Umbral actualizado
+
+                if (cancelado.getAsBoolean()) return false;
+
+                // Selección de operando
+                posDestino = seleccionarOperando(casilla, visitadas, aleatorio);
+                /*
+                 * Actualización del umbral. Si no hay posición disponible se actualiza a un valor mayor que el umbral
+                 * para detener la iteración
+                 */
+                nuevoUmbral = arena.coste(nodo) + costeAsociado(posDestino);
+                contNodosGen++;                             // Incrementa en 1 el número de nodos generados
+
+                // Determina si el nuevo umbral no supera el disponible
+                if (posDestino == null || nuevoUmbral > getLaberinto().getUmbral()) return false;
+
+                // Comrprobación heurística de si merece la pena seguir evaluando esta iteración
+                if (!pruebaHeuristica(casilla, numMov)) return false;
+
+                numMov++;                                   // Incrementa el número de movientos realizados
+
+                // Avanza a la posición de destino. La añade a las visitadas
+                casilla = getLaberinto().indice(posDestino);
+                visitadas.marcar(casilla);
+                nodo = arena.crear(nodo, casilla, nuevoUmbral, 0);
+            }
+
+            return true;                                    // Ha encontrado la solución
+        }
+
+        /**
+         * @return Si el último nodo del camino es el objetivo
+         */
+        private boolean exito() {
+            return arena != null && getLaberinto().esObjetivo(arena.casilla(nodo));
+        }
+
+        /**
+         * Libera la arena y las casillas visitadas de un intento terminado sin éxito, de modo que los intentos
+         * pendientes de recoger no retengan su camino
+         */
+        private void descartarCamino() {
+            arena = null;
+            visitadas = null;
+        }
     }
 }
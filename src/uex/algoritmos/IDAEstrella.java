@@ -0,0 +1,259 @@
+package uex.algoritmos;
+
+import uex.Laberinto;
+import uex.durian.TreeNode;
+import uex.heuristicas.Heuristica;
+import uex.movimiento.Posicion;
+import uex.movimiento.TablaVecinos;
+
+import java.util.Arrays;
+
+import static uex.algoritmos.ArenaNodos.NINGUNO;
+
+/**
+ * Clase que implementa el algoritmo A* de profundización iterativa (IDA*)
+ * <p>
+ * Realiza búsquedas en profundidad sucesivas limitadas por una cota de la puntuación ponderada f = g + h', donde g es
+ * el coste acumulado y h' la estimación heurística. La primera cota es la puntuación del estado inicial y cada
+ * búsqueda emplea como cota la menor puntuación que superó la anterior. Al igual que en {@link AEstrella} se descartan
+ * los nodos que superan el umbral del laberinto.
+ * <p>
+ * Sólo se guarda el camino actual: para cada nivel la casilla, el coste y sus hijos pendientes ordenados por
+ * puntuación, en arrays que crecen con la profundidad. Las casillas del camino se marcan en un único
+ * {@link Visitadas} para no volver sobre ellas. La memoria es proporcional a la longitud del camino, a cambio de
+ * volver a generar los nodos en cada búsqueda
+ *
+ * @author Juan Pablo García Plaza Pérez
+ * @author José Ángel Concha Carrasco
+ * @author Sergio Barrantes de la Osa
+ */
+public class IDAEstrella extends ExpansorArbol {
+
+    private static final int SIN_COTA = Integer.MAX_VALUE;          // Cota siguiente mientras ningún nodo supere la actual
+    private static final int DEF_PROFUNDIDAD = 64;                  // Capacidad inicial del camino
+
+    private int[] casillas;                                         // Casilla de cada nivel del camino
+    private int[] costes;                                           // Coste acumulado de cada nivel del camino
+    private int[] hijos;                                            // Casillas hijas de cada nivel, NUM_DIRECCIONES por nivel
+    private int[] puntuacionesHijos;                                // Puntuación ponderada de cada casilla hija
+    private int[] numHijos;                                         // Número de hijos de cada nivel
+    private int[] siguientesHijos;                                  // Siguiente hijo pendiente de cada nivel
+    private int profundidad;                                        // Nivel del último nodo del camino
+    private Visitadas enCamino;                                     // Casillas del camino actual
+    private int numIteraciones;                                     // Número de búsquedas en profundidad realizadas
+
+    /**
+     * @param heuristica Función heurística a aplicar a los nodos del árbol
+     */
+    public IDAEstrella(Heuristica heuristica) {
+        this(Laberinto.instancia(), heuristica);
+    }
+
+    /**
+     * @param laberinto  Laberinto a resolver
+     * @param heuristica Función heurística a aplicar a los nodos del árbol
+     */
+    public IDAEstrella(Laberinto laberinto, Heuristica heuristica) {
+        super(laberinto, heuristica);
+        casillas = new int[DEF_PROFUNDIDAD];
+        costes = new int[DEF_PROFUNDIDAD];
+        hijos = new int[DEF_PROFUNDIDAD * TablaVecinos.NUM_DIRECCIONES];
+        puntuacionesHijos = new int[DEF_PROFUNDIDAD * TablaVecinos.NUM_DIRECCIONES];
+        numHijos = new int[DEF_PROFUNDIDAD];
+        siguientesHijos = new int[DEF_PROFUNDIDAD];
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected void resetExpansor() {
+        setArbolDecision(new TreeNode<>(null, EstadoLaberinto.estadoInicial(getLaberinto())));
+        enCamino = new Visitadas(getLaberinto().getNumCasillas());
+        profundidad = -1;
+        numIteraciones = 0;
+
+        setContNodosGen(0);                                         // Reinicia el número de nodos generados
+        getReloj().reset();                                         // Reinicia el cronómetro
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void resolver() {
+        int casillaInicial;
+        int cota;                                                   // Cota de la puntuación de la búsqueda actual
+        boolean exito = false;
+
+        // REINICIO DE VARIABLES ENTRE RESOLUCIONES DE LABERINTOS
+        resetExpansor();
+        getReloj().start();
+
+        casillaInicial = getArbolDecision().getContent().getIndice();
+        cota = (int) aplicarHeuristica(casillaInicial);
+        // Repite la búsqueda en profundidad aumentando la cota mientras algún nodo la haya superado
+        while (!exito && cota != SIN_COTA) {
+            int siguienteCota;
+
+            numIteraciones++;
+            siguienteCota = buscar(casillaInicial, cota);
+            exito = siguienteCota == cota;
+            cota = siguienteCota;
+        }
+
+        getReloj().stop();
+
+        if (exito) {
+            getSalida().println("SOLUCIÓN ENCONTRADA en " + numIteraciones + " iteraciones");
+            mostrarSolucion(vistaCamino(caminoEnArena(), profundidad, enCamino));
+        } else {
+            getSalida().println("NO TIENE SOLUCIÓN");
+        }
+    }
+
+    /**
+     * Búsqueda en profundidad sin recursión limitada por una cota. Si encuentra el objetivo el camino queda en los
+     * arrays del camino hasta {@link IDAEstrella#profundidad}
+     *
+     * @param casillaInicial Casilla del estado inicial
+     * @param cota           Máxima puntuación ponderada de los nodos explorados
+     * @return La propia cota si se ha encontrado el objetivo. Si no, la menor puntuación que superó la cota, o
+     * {@value SIN_COTA} si ningún nodo la superó
+     */
+    private int buscar(int casillaInicial, int cota) {
+        Laberinto laberinto = getLaberinto();
+        int siguienteCota = SIN_COTA;
+
+        profundidad = -1;
+        apilar(casillaInicial, 0);
+        if (laberinto.esObjetivo(casillaInicial)) return cota;
+
+        while (profundidad >= 0) {
+            int hijo;
+            int coste;
+
+            // Si no quedan hijos pendientes vuelve al nivel anterior
+            if (siguientesHijos[profundidad] == numHijos[profundidad]) {
+                enCamino.desmarcar(casillas[profundidad--]);
+                continue;
+            }
+
+            hijo = profundidad * TablaVecinos.NUM_DIRECCIONES + siguientesHijos[profundidad]++;
+            // Los hijos están ordenados por puntuación: si éste supera la cota, también los siguientes
+            if (puntuacionesHijos[hijo] > cota) {
+                siguienteCota = Math.min(siguienteCota, puntuacionesHijos[hijo]);
+                siguientesHijos[profundidad] = numHijos[profundidad];
+                continue;
+            }
+
+            coste = costes[profundidad] + laberinto.coste(hijos[hijo]);
+            apilar(hijos[hijo], coste);
+            if (laberinto.esObjetivo(hijos[hijo])) return cota;
+        }
+
+        return siguienteCota;
+    }
+
+    /**
+     * Añade un nodo al final del camino y genera sus hijos: las casillas vecinas que no están en el camino y no
+     * superan el umbral, ordenadas por puntuación ponderada. Los hijos con la misma puntuación mantienen el orden de
+     * {@link uex.movimiento.Direccion}
+     *
+     * @param casilla Casilla del nodo
+     * @param coste   Coste acumulado del nodo
+     */
+    private void apilar(int casilla, int coste) {
+        Laberinto laberinto = getLaberinto();
+        TablaVecinos tablaVecinos = laberinto.getTablaVecinos();
+        int base;                                                   // Posición del primer hijo del nivel
+        int n = 0;                                                  // Número de hijos generados
+
+        if (++profundidad == casillas.length) crecer();
+        base = profundidad * TablaVecinos.NUM_DIRECCIONES;
+        casillas[profundidad] = casilla;
+        costes[profundidad] = coste;
+        enCamino.marcar(casilla);
+
+        for (int m = tablaVecinos.mascara(casilla); m != 0; m &= m - 1) {
+            int vecino = tablaVecinos.vecino(casilla, Integer.numberOfTrailingZeros(m));
+            int nuevoCoste = coste + laberinto.coste(vecino);
+            int puntuacion;
+            int i;
+
+            if (enCamino.contiene(vecino)) continue;
+
+            setContNodosGen(getContNodosGen() + 1);                 // Incrementa en 1 el número de nodos generados
+            if (nuevoCoste > laberinto.getUmbral()) continue;
+
+            // Inserción ordenada por puntuación
+            puntuacion = nuevoCoste + (int) aplicarHeuristica(vecino);
+            for (i = n; i > 0 && puntuacionesHijos[base + i - 1] > puntuacion; i--) {
+                hijos[base + i] = hijos[base + i - 1];
+                puntuacionesHijos[base + i] = puntuacionesHijos[base + i - 1];
+            }
+            hijos[base + i] = vecino;
+            puntuacionesHijos[base + i] = puntuacion;
+            n++;
+        }
+
+        numHijos[profundidad] = n;
+        siguientesHijos[profundidad] = 0;
+    }
+
+    /**
+     * Duplica la capacidad de los arrays del camino
+     */
+    private void crecer() {
+        int capacidad = casillas.length * 2;
+
+        casillas = Arrays.copyOf(casillas, capacidad);
+        costes = Arrays.copyOf(costes, capacidad);
+        hijos = Arrays.copyOf(hijos, capacidad * TablaVecinos.NUM_DIRECCIONES);
+        puntuacionesHijos = Arrays.copyOf(puntuacionesHijos, capacidad * TablaVecinos.NUM_DIRECCIONES);
+        numHijos = Arrays.copyOf(numHijos, capacidad);
+        siguientesHijos = Arrays.copyOf(siguientesHijos, capacidad);
+    }
+
+    /**
+     * Copia el camino encontrado a la arena del expansor para mostrarlo. El nodo de cada nivel es su profundidad
+     *
+     * @return Arena con el camino
+     */
+    private ArenaNodos caminoEnArena() {
+        ArenaNodos arena = getArena();
+
+        arena.vaciar();
+        for (int i = 0; i <= profundidad; i++)
+            arena.crear(i == 0 ? NINGUNO : i - 1, casillas[i], costes[i], 0);
+
+        return arena;
+    }
+
+    /**
+     * @param nodo Nodo Árbol de decisión a evaluar
+     * @return Imposible
+     * @throws UnsupportedOperationException La selección de operandos se realiza mediante otro método
+     */
+    @Override
+    protected Posicion seleccionarOperando(TreeNode<EstadoLaberinto> nodo) {
+        throw new UnsupportedOperationException("La selección de operando se lleva a cabo de otra manera");
+    }
+
+    /**
+     * Muestra la solución al laberinto
+     *
+     * @param arbolDecision Árbol de decicisón que contiene la solución
+     */
+    @Override
+    protected void mostrarSolucion(TreeNode<EstadoLaberinto> arbolDecision) {
+        mostrarSolucionUnaHoja(arbolDecision);
+    }
+
+    /**
+     * @return Número de búsquedas en profundidad realizadas en la última resolución
+     */
+    public int getNumIteraciones() {
+        return numIteraciones;
+    }
+}
@@ -0,0 +1,148 @@
+package uex.algoritmos;
+
+/**
+ * Montículo binario de máximos de capacidad fija que conserva los pares (prioridad, valor) de enteros de menor
+ * prioridad que se le ofrecen. Al igual que en {@link MonticuloPrimitivo} cada par se guarda como un único
+ * {@code long} con la prioridad en los 32 bits altos, por lo que los pares con la misma prioridad se ordenan por valor
+ * si los valores no son negativos. La memoria se reserva al crearlo y no crece.
+ * <p>
+ * Cuando está lleno, un par nuevo sólo se admite si es menor que el mayor par conservado, que se descarta. Así, tras
+ * ofrecer cualquier número de pares, contiene los {@code capacidad} menores
+ *
+ * @author Juan Pablo García Plaza Pérez
+ * @author José Ángel Concha Carrasco
+ * @author Sergio Barrantes de la Osa
+ */
+public class MonticuloAcotado {
+
+    private final long[] pares;                             // Pares (prioridad, valor) del montículo
+    private int tamanio;                                    // Número de pares en el montículo
+
+    /**
+     * @param capacidad Número máximo de pares que conserva el montículo
+     * @throws IllegalArgumentException Si la capacidad no es positiva
+     */
+    public MonticuloAcotado(int capacidad) {
+        if (capacidad <= 0) throw new IllegalArgumentException("La capacidad del montículo debe ser positiva");
+
+        pares = new long[capacidad];
+        tamanio = 0;
+    }
+
+    /**
+     * Ofrece un par al montículo. Si está lleno y el par es menor que el mayor par conservado, éste se descarta
+     *
+     * @param prioridad Prioridad del par. Se conservan los pares de menor prioridad
+     * @param valor     Valor asociado a la prioridad
+     * @return Si el par se ha conservado
+     */
+    public boolean ofrecer(int prioridad, int valor) {
+        long par = par(prioridad, valor);
+
+        if (tamanio < pares.length) {
+            flotar(tamanio++, par);
+        } else if (par < pares[0]) {
+            hundir(0, par);
+        } else {
+            return false;
+        }
+
+        return true;
+    }
+
+    /**
+     * Extrae el mayor par del montículo
+     *
+     * @return Valor del mayor par
+     * @throws IllegalStateException Si el montículo está vacío
+     */
+    public int extraerMaximo() {
+        int maximo;
+
+        if (tamanio == 0) throw new IllegalStateException("El montículo está vacío");
+
+        maximo = valor(pares[0]);
+        if (--tamanio != 0) hundir(0, pares[tamanio]);
+
+        return maximo;
+    }
+
+    /**
+     * @return Número de pares en el montículo
+     */
+    public int tamanio() {
+        return tamanio;
+    }
+
+    /**
+     * @return Número máximo de pares que conserva el montículo
+     */
+    public int capacidad() {
+        return pares.length;
+    }
+
+    /**
+     * @return Si el montículo está vacío
+     */
+    public boolean estaVacio() {
+        return tamanio == 0;
+    }
+
+    /**
+     * Elimina todos los pares del montículo
+     */
+    public void vaciar() {
+        tamanio = 0;
+    }
+
+    /**
+     * @return Memoria ocupada por los pares del montículo, en bytes
+     */
+    public long memoria() {
+        return (long) pares.length * Long.BYTES;
+    }
+
+    /**
+     * Sube un par hacia la raíz mientras sea mayor que su padre
+     *
+     * @param posicion Hueco inicial del par
+     * @param par      Par a colocar
+     */
+    private void flotar(int posicion, long par) {
+        int padre;
+
+        while (posicion > 0 && par > pares[padre = (posicion - 1) >>> 1]) {
+            pares[posicion] = pares[padre];
+            posicion = padre;
+        }
+        pares[posicion] = par;
+    }
+
+    /**
+     * Baja un par hacia las hojas mientras alguno de sus hijos sea mayor
+     *
+     * @param posicion Hueco inicial del par
+     * @param par      Par a colocar
+     */
+    private void hundir(int posicion, long par) {
+        int hijo;
+
+        while ((hijo = 2 * posicion + 1) < tamanio) {
+            // Elige el hijo mayor
+            if (hijo + 1 < tamanio && pares[hijo + 1] > pares[hijo]) hijo++;
+            if (par >= pares[hijo]) break;
+
+            pares[posicion] = pares[hijo];
+            posicion = hijo;
+        }
+        pares[posicion] = par;
+    }
+
+    private static long par(int prioridad, int valor) {
+        return (long) prioridad << 32 | valor & 0xFFFFFFFFL;
+    }
+
+    private static int valor(long par) {
+        return (int) par;
+    }
+}
@@ -0,0 +1,240 @@
+package uex.algoritmos;
+
+import java.util.Arrays;
+
+/**
+ * Montículo binario de mínimos de pares (prioridad, valor) de enteros. Cada par se guarda como un único {@code long}
+ * con la prioridad en los 32 bits altos y el valor en los 32 bajos, de forma que la comparación de los pares es una
+ * comparación de primitivas y el montículo no reserva memoria salvo al crecer. Los pares con la misma prioridad se
+ * extraen en orden creciente de valor si los valores no son negativos.
+ * <p>
+ * Por defecto no admite la actualización de prioridades: para rebajar la prioridad de un valor se inserta de nuevo y
+ * la entrada antigua se descarta al extraerse, comprobando si su prioridad sigue vigente (eliminación perezosa). Un
+ * montículo indexado ({@link MonticuloPrimitivo#indexado()}) guarda además la posición de cada valor en un array
+ * indexado por el propio valor, por lo que cada valor aparece como mucho una vez y su prioridad se rebaja en su sitio
+ * en O(log n) ({@link MonticuloPrimitivo#rebajarPrioridad(int, int)})
+ *
+ * @author Juan Pablo García Plaza Pérez
+ * @author José Ángel Concha Carrasco
+ * @author Sergio Barrantes de la Osa
+ */
+public class MonticuloPrimitivo {
+
+    private static final int DEF_CAPACIDAD = 16;            // Capacidad inicial por defecto
+    private static final int AUSENTE = -1;                  // Posición de los valores que no están en el montículo
+
+    private long[] pares;                                   // Pares (prioridad, valor) del montículo
+    private int tamanio;                                    // Número de pares en el montículo
+    private int[] posiciones;                               // Posición de cada valor, nulo si no es indexado
+
+    public MonticuloPrimitivo() {
+        this(DEF_CAPACIDAD);
+    }
+
+    /**
+     * @param capacidad Capacidad inicial del montículo
+     */
+    public MonticuloPrimitivo(int capacidad) {
+        pares = new long[Math.max(capacidad, 1)];
+        tamanio = 0;
+    }
+
+    /**
+     * @return Montículo vacío que guarda la posición de cada valor, de modo que admite
+     * {@link MonticuloPrimitivo#contiene(int)} y {@link MonticuloPrimitivo#rebajarPrioridad(int, int)}. Los valores
+     * no pueden ser negativos y cada uno aparece como mucho una vez
+     */
+    public static MonticuloPrimitivo indexado() {
+        MonticuloPrimitivo monticulo = new MonticuloPrimitivo();
+
+        monticulo.posiciones = new int[DEF_CAPACIDAD];
+        Arrays.fill(monticulo.posiciones, AUSENTE);
+
+        return monticulo;
+    }
+
+    /**
+     * Inserta un par en el montículo
+     *
+     * @param prioridad Prioridad del par. El par de menor prioridad es el primero en extraerse
+     * @param valor     Valor asociado a la prioridad
+     * @throws IllegalArgumentException Si el montículo es indexado y el valor es negativo o ya está en el montículo
+     */
+    public void insertar(int prioridad, int valor) {
+        if (posiciones != null) {
+            if (contiene(valor))
+                throw new IllegalArgumentException("El valor " + valor + " ya está en el montículo");
+            if (valor >= posiciones.length) {
+                int capacidad = posiciones.length;
+
+                posiciones = Arrays.copyOf(posiciones, Math.max(valor + 1, capacidad * 2));
+                Arrays.fill(posiciones, capacidad, posiciones.length, AUSENTE);
+            }
+        }
+        if (tamanio == pares.length)
+            pares = Arrays.copyOf(pares, tamanio * 2);
+
+        flotar(tamanio++, par(prioridad, valor));
+    }
+
+    /**
+     * Rebaja la prioridad de un valor del montículo indexado, recolocándolo hacia la raíz en O(log n)
+     *
+     * @param prioridad Nueva prioridad del valor, no mayor que la actual
+     * @param valor     Valor del montículo
+     * @throws UnsupportedOperationException Si el montículo no es indexado
+     * @throws IllegalArgumentException      Si el valor no está en el montículo o la prioridad es mayor que la actual
+     */
+    public void rebajarPrioridad(int prioridad, int valor) {
+        int posicion;
+
+        if (!contiene(valor))
+            throw new IllegalArgumentException("El valor " + valor + " no está en el montículo");
+        posicion = posiciones[valor];
+        if (prioridad > prioridad(pares[posicion]))
+            throw new IllegalArgumentException("La prioridad " + prioridad + " es mayor que la actual : " +
+                    prioridad(pares[posicion]));
+
+        flotar(posicion, par(prioridad, valor));
+    }
+
+    /**
+     * @param valor Valor a buscar
+     * @return Si el valor está en el montículo indexado, en O(1)
+     * @throws UnsupportedOperationException Si el montículo no es indexado
+     * @throws IllegalArgumentException      Si el valor es negativo
+     */
+    public boolean contiene(int valor) {
+        if (posiciones == null)
+            throw new UnsupportedOperationException("El montículo no guarda la posición de sus valores");
+        if (valor < 0)
+            throw new IllegalArgumentException("Los valores de un montículo indexado no pueden ser negativos : " + valor);
+
+        return valor < posiciones.length && posiciones[valor] != AUSENTE;
+    }
+
+    /**
+     * @return Prioridad del par más prioritario sin extraerlo
+     * @throws IllegalStateException Si el montículo está vacío
+     */
+    public int verPrioridadMinima() {
+        if (tamanio == 0) throw new IllegalStateException("El montículo está vacío");
+
+        return prioridad(pares[0]);
+    }
+
+    /**
+     * @return Valor del par más prioritario sin extraerlo
+     * @throws IllegalStateException Si el montículo está vacío
+     */
+    public int verMinimo() {
+        if (tamanio == 0) throw new IllegalStateException("El montículo está vacío");
+
+        return valor(pares[0]);
+    }
+
+    /**
+     * Extrae el par más prioritario del montículo
+     *
+     * @return Valor del par más prioritario
+     * @throws IllegalStateException Si el montículo está vacío
+     */
+    public int extraerMinimo() {
+        int minimo = verMinimo();
+
+        if (posiciones != null) posiciones[minimo] = AUSENTE;
+        if (--tamanio != 0) hundir(0, pares[tamanio]);
+
+        return minimo;
+    }
+
+    /**
+     * @return Número de pares en el montículo
+     */
+    public int tamanio() {
+        return tamanio;
+    }
+
+    /**
+     * @return Si el montículo está vacío
+     */
+    public boolean estaVacio() {
+        return tamanio == 0;
+    }
+
+    /**
+     * Elimina todos los pares del montículo, conservando su capacidad
+     */
+    public void vaciar() {
+        if (posiciones != null)
+            for (int i = 0; i < tamanio; i++)
+                posiciones[valor(pares[i])] = AUSENTE;
+        tamanio = 0;
+    }
+
+    /**
+     * @return Memoria ocupada por los pares del montículo y, si es indexado, por sus posiciones, en bytes
+     */
+    public long memoria() {
+        return (long) pares.length * Long.BYTES + (posiciones != null ? (long) posiciones.length * Integer.BYTES : 0);
+    }
+
+    /**
+     * Sube un par hacia la raíz mientras sea más prioritario que su padre
+     *
+     * @param posicion Hueco inicial del par
+     * @param par      Par a colocar
+     */
+    private void flotar(int posicion, long par) {
+        int padre;
+
+        while (posicion > 0 && par < pares[padre = (posicion - 1) >>> 1]) {
+            colocar(posicion, pares[padre]);
+            posicion = padre;
+        }
+        colocar(posicion, par);
+    }
+
+    /**
+     * Baja un par hacia las hojas mientras alguno de sus hijos sea más prioritario
+     *
+     * @param posicion Hueco inicial del par
+     * @param par      Par a colocar
+     */
+    private void hundir(int posicion, long par) {
+        int hijo;
+
+        while ((hijo = 2 * posicion + 1) < tamanio) {
+            // Elige el hijo más prioritario
+            if (hijo + 1 < tamanio && pares[hijo + 1] < pares[hijo]) hijo++;
+            if (par <= pares[hijo]) break;
+
+            colocar(posicion, pares[hijo]);
+            posicion = hijo;
+        }
+        colocar(posicion, par);
+    }
+
+    /**
+     * Guarda un par en una posición del montículo y, si es indexado, anota la posición de su valor
+     *
+     * @param posicion Posición del montículo
+     * @param par      Par a guardar
+     */
+    private void colocar(int posicion, long par) {
+        pares[posicion] = par;
+        if (posiciones != null) posiciones[valor(par)] = posicion;
+    }
+
+    private static long par(int prioridad, int valor) {
+        return (long) prioridad << 32 | valor & 0xFFFFFFFFL;
+    }
+
+    private static int prioridad(long par) {
+        return (int) (par >> 32);
+    }
+
+    private static int valor(long par) {
+        return (int) par;
+    }
+}
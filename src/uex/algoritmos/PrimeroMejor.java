@@ -4,14 +4,20 @@ import uex.Jugador;
 import uex.Laberinto;
 import uex.durian.TreeNode;
 import uex.heuristicas.Heuristica;
-import uex.movimiento.ControladorMovimiento;
 import uex.movimiento.Posicion;
+import uex.movimiento.TablaVecinos;
 
 import java.util.*;
-import java.util.stream.Collectors;
+
+import static uex.algoritmos.ArenaNodos.NINGUNO;
 
 /**
  * Clase que implementa el algoritmo del Primero mejor
+ * <p>
+ * Los nodos del árbol de decisión se guardan en la arena del expansor ({@link ArenaNodos}) con su coste y su
+ * puntuación heurística, sin crear estados ni nodos {@link TreeNode}; éstos sólo se construyen para mostrar la solución.
+ * Cada casilla tiene un único nodo: si se vuelve a llegar a ella con menor coste, el nodo cambia de padre y vuelve a
+ * los nodos abiertos, de modo que el umbral no descarta caminos que lo cumplen por otra ruta
  *
  * @author Juan Pablo García Plaza Pérez
  * @author José Ángel Concha Carrasco
@@ -19,14 +25,25 @@ import java.util.stream.Collectors;
  */
 public class PrimeroMejor extends ExpansorArbol {
 
-    private ArrayList<TreeNode<EstadoLaberinto>> nodosAbiertos;     // Colección de nodos en exploración
-    private Set<TreeNode<EstadoLaberinto>> nodosCerrados;           // Colección de nodos explorados
+    private MonticuloPrimitivo nodosAbiertos;       // Cola con prioridad de nodos en exploración, por puntuación h'
+    private int[] nodosPorCasilla;                  // Nodo expandido (abierto o cerrado) de cada casilla
+    private Visitadas expandidas;                   // Casillas cuyo nodo ya ha sido expandido
+    private Visitadas abiertas;                     // Casillas cuyo nodo está en la cola de nodos abiertos
 
     /**
      * @param heuristica Función heurística a aplicar a los nodos del árbol
      */
     public PrimeroMejor(Heuristica heuristica) {
-        super(heuristica);
+        this(Laberinto.instancia(), heuristica);
+    }
+
+    /**
+     * @param laberinto  Laberinto a resolver
+     * @param heuristica Función heurística a aplicar a los nodos del árbol
+     */
+    public PrimeroMejor(Laberinto laberinto, Heuristica heuristica) {
+        super(laberinto, heuristica);
+        nodosAbiertos = new MonticuloPrimitivo();
         resetExpansor();
     }
 
@@ -35,10 +52,16 @@ public class PrimeroMejor extends ExpansorArbol {
      */
     @Override
     protected void resetExpansor() {
-        setArbolDecision(new TreeNode<>(null, EstadoLaberinto.estadoInicial()));
-        nodosAbiertos = new ArrayList<>();
-        nodosCerrados = new HashSet<>();
-        nodosAbiertos.add(getArbolDecision());                      // Añade el primer nodo, el estado inicial
+        int numCasillas = getLaberinto().getNumCasillas();
+        int casillaInicial = getLaberinto().indice(new Jugador(getLaberinto()).ctrlMovimiento().posicion());
+
+        getArena().vaciar();
+        nodosAbiertos.vaciar();
+        nodosPorCasilla = new int[numCasillas];
+        expandidas = new Visitadas(numCasillas);
+        abiertas = new Visitadas(numCasillas);
+        Arrays.fill(nodosPorCasilla, NINGUNO);
+        agregarNodoAbierto(NINGUNO, casillaInicial, 0);             // Añade el primer nodo, el estado inicial
 
         setContNodosGen(0);                                         // Reinicia el número de nodos generados
         getReloj().reset();                                         // Reinicia el cronómetro
@@ -51,125 +74,121 @@ public class PrimeroMejor extends ExpansorArbol {
     public void resolver() {
         // REINICIO DE VARIABLES ENTRE RESOLUCIONES DE LABERINTOS
         resetExpansor();
-        Laberinto laberinto = Laberinto.instancia();
-        TreeNode<EstadoLaberinto> mejorNodo = nodosAbiertos.get(0); // Nodo más prometedor
-        Posicion operando;
-        Jugador clon;
-        ArrayList<Posicion> visitadas;
+        Laberinto laberinto = getLaberinto();
+        ArenaNodos arena = getArena();
+        TablaVecinos tablaVecinos = laberinto.getTablaVecinos();
+        int mejorNodo = nodosAbiertos.verMinimo();                  // Nodo más prometedor
 
         getReloj().start();
 
         // Comprueba si es la casilla objetivo o si queda algún nodo para explorar
-        while (nodosAbiertos.size() != 0
-                && !laberinto.casilla(mejorNodo.getContent().getJugador().ctrlMovimiento().posicion()).esObjetivo()) {
-            agregarNodoCerrado(mejorNodo);                          // Cierra el nodo más prometedor
+        while (!nodosAbiertos.estaVacio() && !laberinto.esObjetivo(arena.casilla(mejorNodo))) {
+            nodosAbiertos.extraerMinimo();                          // Cierra el nodo más prometedor
+            abiertas.desmarcar(arena.casilla(mejorNodo));
 
             // Comprueba que el mejor nodo siga siendo solución viable, sino lo descartamos y pasamos al siguiente mejor
-            if (mejorNodo.getContent().getUmbral() <= laberinto.getUmbral()) {
-                // Exploramos el mejor nodo
-                do {
-                    clon = (Jugador) mejorNodo.getContent().getJugador().clone();
-                    visitadas = new ArrayList<>();
-                    operando = seleccionarOperando(mejorNodo);
-
-                    if (operando != null) {
-                        clon.ctrlMovimiento().setPosicionAbsoluta(operando);
-                        visitadas.add(mejorNodo.getContent().getJugador().ctrlMovimiento().posicion());
-
-                        EstadoLaberinto estadoExpandido =
-                                new EstadoLaberinto(clon, visitadas, mejorNodo.getContent().getUmbral() +
-                                        costeAsociado(operando));
+            if (arena.coste(mejorNodo) <= laberinto.getUmbral()) {
+                int casilla = arena.casilla(mejorNodo);
+                int padre = arena.padre(mejorNodo);
+
+                // Exploramos el mejor nodo, sin volver a la casilla del nodo padre
+                expandidas.marcar(casilla);
+                for (int m = tablaVecinos.mascara(casilla); m != 0; m &= m - 1) {
+                    int operando = tablaVecinos.vecino(casilla, Integer.numberOfTrailingZeros(m));
+
+                    if (padre == NINGUNO || operando != arena.casilla(padre)) {
+                        int coste = arena.coste(mejorNodo) + laberinto.coste(operando);
+                        int nodoEquivalente = nodosPorCasilla[operando];
+
                         setContNodosGen(getContNodosGen() + 1);
 
-                        // Comprueba si el nuevo estado ya ha sido expandido
-                        if (!enNodos(estadoExpandido)) {
-                            // Si no ha sido expandido lo añadimos a la lista de nodos abiertos
-                            TreeNode<EstadoLaberinto> nodoExpandido = new TreeNode<>(mejorNodo, estadoExpandido);
-                            agregarNodoAbierto(nodoExpandido);
-                        }
+                        // Comprueba si el nuevo estado ya ha sido expandido. Si no, lo añadimos a los nodos abiertos
+                        if (nodoEquivalente == NINGUNO)
+                            agregarNodoAbierto(mejorNodo, operando, coste);
+                        else if (coste < arena.coste(nodoEquivalente))
+                            reabrirNodo(nodoEquivalente, mejorNodo, coste);
+                        // Si no supone una alternativa mejor se descarta
                     }
-                } while (operando != null);
+                }
             }
 
             // Obtenemos el siguiente nodo más prometedor, si queda alguno
-            if (nodosAbiertos.size() != 0) mejorNodo = nodosAbiertos.get(0);
+            if (!nodosAbiertos.estaVacio()) mejorNodo = nodosAbiertos.verMinimo();
         }
 
         getReloj().stop();
 
         // Se encontró una solución si quedó algún nodo en la listas de abiertos (el primero es la solución), sino no tiene solución
-        if (nodosAbiertos.size() != 0) {
-            System.out.println("SOLUCIÓN ENCONTRADA");
-            mostrarSolucion(mejorNodo);
+        if (!nodosAbiertos.estaVacio()) {
+            getSalida().println("SOLUCIÓN ENCONTRADA");
+            mostrarSolucion(arena.camino(mejorNodo, this::estado));
         } else {
-            System.out.println("NO TIENE SOLUCIÓN");
+            getSalida().println("NO TIENE SOLUCIÓN");
         }
     }
 
     /**
-     * Agrega un nodo a la cola con prioridad de nodos abiertos. No se permiten duplicados
+     * Agrega un nodo a la cola con prioridad de nodos abiertos, ordenada por puntuación heurística h'. Los nodos con
+     * la misma puntuación se exploran en orden de generación
      *
-     * @param nodoExpandido Nuevo nodo a agregar
-     */
-    private void agregarNodoAbierto(TreeNode<EstadoLaberinto> nodoExpandido) {
-        nodosAbiertos.add(nodoExpandido);
-        ordenarNodosAbiertos();
-    }
-
-    /**
-     * Ordena los nodos abiertos por puntuación heurística h'
+     * @param padre   Nodo que genera el nuevo nodo
+     * @param casilla Casilla del nuevo nodo
+     * @param coste   Coste acumulado del nuevo nodo
      */
-    private void ordenarNodosAbiertos() {
-        nodosAbiertos.sort(Comparator.comparingInt(nodo -> aplicarHeuristica(nodo).intValue()));
-    }
+    private void agregarNodoAbierto(int padre, int casilla, int coste) {
+        int puntuacion = (int) getHeuristica().aplicar(getLaberinto(), casilla);
+        int nodo = getArena().crear(padre, casilla, coste, puntuacion);
 
-    /**
-     * @param estadoLaberintoPonderado Estado del que se desea encontrar su equivalencia
-     * @return Nodo equivalente al especificado ya expandido
-     */
-    private TreeNode<EstadoLaberinto> recNodoEquiv(EstadoLaberinto estadoLaberintoPonderado) {
-        return nodosExpandidos()
-                .stream()
-                .filter(nodo -> nodo.getContent().equals(estadoLaberintoPonderado))
-                .collect(Collectors.toList()).get(0);
+        nodosAbiertos.insertar(puntuacion, nodo);
+        nodosPorCasilla[casilla] = nodo;
+        abiertas.marcar(casilla);
     }
 
     /**
-     * Elimina el nodo especificado de la cola de abiertos y lo agrega a la colección de nodos cerrados
+     * Cambia el padre de un nodo ya expandido por otro que llega a su casilla con menor coste, y lo devuelve a la cola
+     * de nodos abiertos si no sigue en ella. Al expandirlo de nuevo sus hijos se generan con el nuevo coste, por lo que
+     * también mejoran y vuelven a explorarse aunque el umbral los hubiera descartado. La puntuación heurística de la
+     * casilla no cambia
      *
-     * @param nodo Nodo abierto a mover a cerrados
-     */
-    private void agregarNodoCerrado(TreeNode<EstadoLaberinto> nodo) {
-        nodosAbiertos.remove(nodo);
-        nodosCerrados.add(nodo);
-    }
-
-    /**
-     * @return Todos los nodos expandidos, tanto en abiertos como en cerrados
+     * @param nodo  Nodo ya expandido de la casilla
+     * @param padre Nuevo padre del nodo
+     * @param coste Nuevo coste acumulado del nodo, menor que el anterior
      */
-    private Collection<TreeNode<EstadoLaberinto>> nodosExpandidos() {
-        Set<TreeNode<EstadoLaberinto>> nodos = new HashSet<>(new HashSet<>(nodosAbiertos));
-        nodos.addAll(nodosCerrados);
+    private void reabrirNodo(int nodo, int padre, int coste) {
+        ArenaNodos arena = getArena();
 
-        return nodos;
+        arena.cambiarPadre(nodo, padre);
+        arena.setCoste(nodo, coste);
+        if (abiertas.marcar(arena.casilla(nodo))) nodosAbiertos.insertar(arena.ponderacion(nodo), nodo);
     }
 
     /**
-     * @param estadoLaberintoPonderado Nodo a comprobar
-     * @return Si el nodo especificado ya tiene un equivalente expandido
+     * Construye el estado de un nodo para mostrarlo. Sus casillas visitadas son las mismas que se acumulan al
+     * seleccionar operandos ({@link PrimeroMejor#seleccionarOperando(TreeNode)}): la casilla del nodo padre y, si el
+     * nodo ha sido expandido, todas sus casillas vecinas
+     *
+     * @param nodo Nodo de la arena
+     * @return Estado equivalente al nodo
      */
-    private boolean enNodos(EstadoLaberinto estadoLaberintoPonderado) {
-        return nodosExpandidos()
-                .stream()
-                .map(TreeNode::getContent)
-                .filter(estadoLaberinto -> estadoLaberinto.equals(estadoLaberintoPonderado))
-                .collect(Collectors.toSet()).size() != 0;
+    private EstadoLaberinto estado(int nodo) {
+        ArenaNodos arena = getArena();
+        TablaVecinos tablaVecinos = getLaberinto().getTablaVecinos();
+        Visitadas visitadas = new Visitadas(getLaberinto().getNumCasillas());
+        int casilla = arena.casilla(nodo);
+
+        // El estado inicial parte con su propia casilla visitada
+        visitadas.marcar(arena.padre(nodo) != NINGUNO ? arena.casilla(arena.padre(nodo)) : casilla);
+        if (expandidas.contiene(casilla))
+            for (int m = tablaVecinos.mascara(casilla); m != 0; m &= m - 1)
+                visitadas.marcar(tablaVecinos.vecino(casilla, Integer.numberOfTrailingZeros(m)));
+
+        return new EstadoLaberinto(jugadorEn(casilla), visitadas, arena.coste(nodo));
     }
 
     /**
-     * Selecciona un operando aplicable a un nodo. La lista de posiciones visitadas en primer lugar contiene la posicion
-     * del nodo que creó el nodo actual, y tras sucesivas llamadas a este método, contendrá cada posicion expandida
-     * hasta que no queden posiciones posibles. Evita que se vuelva hacia atrás por el nodo padre
+     * Selecciona un operando aplicable a un nodo. El conjunto de casillas visitadas en primer lugar contiene la
+     * posicion del nodo que creó el nodo actual, y tras sucesivas llamadas a este método, contendrá cada posicion
+     * expandida hasta que no queden posiciones posibles. Evita que se vuelva hacia atrás por el nodo padre
      *
      * @param nodo Nodo con el estado laberinto para el que seleccionar un operando
      * @return En cada llamada un operando disponible no visitado. Cuando se agoten devolverá nulo
@@ -179,25 +198,16 @@ public class PrimeroMejor extends ExpansorArbol {
         // Variables del estado del laberinto actual
         EstadoLaberinto estadoLaberinto = nodo.getContent();
         /*
-        La lista de posiciones visitadas en primer lugar contiene la posicion del nodo que creó el nodo actual, y tras
+        El conjunto de casillas visitadas en primer lugar contiene la posicion del nodo que creó el nodo actual, y tras
         sucesivas llamadas a este método, contendrá cada posicion expandida hasta que no queden posiciones posibles.
         Evita que se vuelva hacia atrás por el nodo padre
          */
-        List<Posicion> posVisitadas = estadoLaberinto.getPosVisitadas();
-        ControladorMovimiento cMov = estadoLaberinto.getJugador().ctrlMovimiento();
 
-        /*
-         Obtiene los movimientos posibles a partir de la posición actual y filtra aquellas que no resulten
-         en una posición ya expandida
-         */
-        List<Posicion> posPosibles = cMov.movimientosPosibles()
-                .stream()
-                .map(cMov::aplicarMovimiento)
-                .filter(posicion -> !posVisitadas.contains(posicion))
-                .collect(Collectors.toList());
+        // Obtiene las posiciones vecinas a la posición actual que no estén ya expandidas
+        List<Posicion> posPosibles = posicionesNoVisitadas(estadoLaberinto);
 
         // Si queda alguna posición posible la añade a las expandidas
-        if (posPosibles.size() != 0) posVisitadas.add(posPosibles.get(0));
+        if (posPosibles.size() != 0) estadoLaberinto.marcarVisitada(posPosibles.get(0));
         else return null;
 
         // Siguente posición posible elegida
@@ -213,14 +223,14 @@ public class PrimeroMejor extends ExpansorArbol {
     @Override
     protected void mostrarSolucion(TreeNode<EstadoLaberinto> arbolDecision) {
         // Imprime tiempo empleado
-        System.out.println("Tiempo empleado : " + getReloj());
+        getSalida().println("Tiempo empleado : " + getReloj());
         // Imprime el número de nodos generados en memoria
-        System.out.println("Número de nodos generados : " + getContNodosGen());
+        getSalida().println("Número de nodos generados : " + getContNodosGen());
 
         ArrayList<Posicion> camino = new ArrayList<>();
         recuperarCamino(arbolDecision, camino);
-        System.out.println(new Laberinto.Solucionado(camino, arbolDecision.getContent().getUmbral()));
-        System.out.println(arbolDecision.getPath(EstadoLaberinto::toString, ""));
+        getSalida().println(new Laberinto.Solucionado(getLaberinto(), camino, arbolDecision.getContent().getUmbral()));
+        getSalida().println(arbolDecision.getPath(EstadoLaberinto::toString, ""));
     }
 
     /**
@@ -228,8 +238,7 @@ public class PrimeroMejor extends ExpansorArbol {
      * @param camino Camino en el árbol de decisión que representa la solución
      */
     private void recuperarCamino(TreeNode<EstadoLaberinto> nodo, ArrayList<Posicion> camino) {
-        camino.add(nodo.getContent().getJugador().ctrlMovimiento().posicion());
-        if (nodo.getParent() != null)
-            recuperarCamino(nodo.getParent(), camino);
+        for (TreeNode<EstadoLaberinto> actual = nodo; actual != null; actual = actual.getParent())
+            camino.add(actual.getContent().getJugador().ctrlMovimiento().posicion());
     }
 }
@@ -0,0 +1,169 @@
+package uex.algoritmos;
+
+import java.util.Arrays;
+
+/**
+ * Conjunto de casillas visitadas de un laberinto, representado como un mapa de bits indexado por el índice de cada
+ * casilla en orden de filas. La pertenencia se comprueba en O(1).
+ * <p>
+ * Los bits se reparten en bloques que se comparten entre un conjunto y los que se derivan de él
+ * ({@link Visitadas#con(int)}): al añadir una casilla sólo se copia el bloque que la contiene. Un conjunto puede
+ * modificarse también sobre sí mismo ({@link Visitadas#marcar(int)}); los bloques compartidos se copian antes de
+ * modificarse, por lo que ningún otro conjunto se ve afectado. No es seguro para su uso concurrente
+ *
+ * @author Juan Pablo García Plaza Pérez
+ * @author José Ángel Concha Carrasco
+ * @author Sergio Barrantes de la Osa
+ */
+public final class Visitadas {
+
+    private static final int LONGS_BLOQUE = 64;                         // Palabras de 64 bits por bloque
+    private static final int BITS_BLOQUE = LONGS_BLOQUE * Long.SIZE;    // Casillas por bloque
+
+    private final int numCasillas;          // Número de casillas del laberinto
+    private final long[][] bloques;         // Bits de cada bloque. Un bloque nulo no contiene ninguna casilla
+    private final boolean[] propios;        // Si cada bloque pertenece sólo a este conjunto y puede modificarse
+    private int tamanio;                    // Número de casillas visitadas
+
+    /**
+     * Crea un conjunto vacío
+     *
+     * @param numCasillas Número de casillas del laberinto
+     */
+    public Visitadas(int numCasillas) {
+        this.numCasillas = numCasillas;
+        bloques = new long[(numCasillas + BITS_BLOQUE - 1) / BITS_BLOQUE][];
+        propios = new boolean[bloques.length];
+        tamanio = 0;
+    }
+
+    /**
+     * Crea un conjunto que comparte todos los bloques de otro
+     *
+     * @param otro Conjunto a compartir
+     */
+    private Visitadas(Visitadas otro) {
+        numCasillas = otro.numCasillas;
+        bloques = otro.bloques.clone();
+        propios = new boolean[bloques.length];
+        tamanio = otro.tamanio;
+
+        // Los bloques pasan a estar compartidos también para el conjunto original
+        Arrays.fill(otro.propios, false);
+    }
+
+    /**
+     * @param indice Índice de la casilla en orden de filas
+     * @return Si la casilla ha sido visitada
+     */
+    public boolean contiene(int indice) {
+        long[] bloque = bloques[indice / BITS_BLOQUE];
+
+        return bloque != null && (bloque[(indice % BITS_BLOQUE) >>> 6] & (1L << indice)) != 0;
+    }
+
+    /**
+     * Crea un nuevo conjunto con las casillas de este más la suministrada. Ambos comparten todos los bloques salvo el
+     * que contiene la nueva casilla. Este conjunto no se modifica
+     *
+     * @param indice Índice de la casilla a añadir en orden de filas
+     * @return Nuevo conjunto de casillas visitadas
+     */
+    public Visitadas con(int indice) {
+        Visitadas nuevo = new Visitadas(this);
+
+        nuevo.marcar(indice);
+        return nuevo;
+    }
+
+    /**
+     * Añade una casilla a este conjunto. El bloque que la contiene se copia si está compartido
+     *
+     * @param indice Índice de la casilla a añadir en orden de filas
+     * @return Si la casilla no estaba ya en el conjunto
+     */
+    public boolean marcar(int indice) {
+        int numBloque = indice / BITS_BLOQUE;
+        long[] bloque;
+        int palabra = (indice % BITS_BLOQUE) >>> 6;
+
+        if (contiene(indice)) return false;
+
+        bloque = bloquePropio(numBloque);
+        bloque[palabra] |= 1L << indice;
+        tamanio++;
+
+        return true;
+    }
+
+    /**
+     * Elimina una casilla de este conjunto. El bloque que la contiene se copia si está compartido
+     *
+     * @param indice Índice de la casilla a eliminar en orden de filas
+     * @return Si la casilla estaba en el conjunto
+     */
+    public boolean desmarcar(int indice) {
+        int palabra = (indice % BITS_BLOQUE) >>> 6;
+
+        if (!contiene(indice)) return false;
+
+        bloquePropio(indice / BITS_BLOQUE)[palabra] &= ~(1L << indice);
+        tamanio--;
+
+        return true;
+    }
+
+    /**
+     * Permite recorrer las casillas visitadas en orden de filas sin reservar memoria:
+     * {@code for (int i = v.siguiente(0); i >= 0; i = v.siguiente(i + 1))}
+     *
+     * @param desde Índice a partir del cual buscar, incluido
+     * @return Índice de la primera casilla visitada a partir de {@code desde}, o {@code -1} si no hay ninguna
+     */
+    public int siguiente(int desde) {
+        for (int numBloque = desde / BITS_BLOQUE; desde < numCasillas; numBloque++) {
+            long[] bloque = bloques[numBloque];
+
+            if (bloque != null) {
+                for (int palabra = (desde % BITS_BLOQUE) >>> 6; palabra < bloque.length; palabra++) {
+                    // Descarta los bits anteriores a 'desde' en la primera palabra consultada
+                    long bits = bloque[palabra] & (-1L << desde);
+
+                    if (bits != 0)
+                        return numBloque * BITS_BLOQUE + palabra * Long.SIZE + Long.numberOfTrailingZeros(bits);
+                    desde = numBloque * BITS_BLOQUE + (palabra + 1) * Long.SIZE;
+                }
+            }
+            desde = (numBloque + 1) * BITS_BLOQUE;
+        }
+
+        return -1;
+    }
+
+    /**
+     * @return Número de casillas visitadas
+     */
+    public int tamanio() {
+        return tamanio;
+    }
+
+    /**
+     * @param numBloque Número del bloque
+     * @return Bloque modificable por este conjunto, copiándolo o creándolo si es necesario
+     */
+    private long[] bloquePropio(int numBloque) {
+        long[] bloque = bloques[numBloque];
+
+        if (!propios[numBloque]) {
+            // El último bloque sólo reserva las palabras necesarias para las casillas restantes
+            int numLongs = Math.min(LONGS_BLOQUE,
+                    (numCasillas - numBloque * BITS_BLOQUE + Long.SIZE - 1) / Long.SIZE);
+
+            bloque = bloque != null ? bloque.clone() : new long[numLongs];
+            bloques[numBloque] = bloque;
+            propios[numBloque] = true;
+        }
+
+        return bloque;
+    }
+}
@@ -333,11 +333,23 @@ public class TreeQuery {
 	}
 
 	private static <T> void toStringHelper(TreeDef<T> treeDef, T root, Function<? super T, String> toString, String indent, StringBuilder builder, String prefix) {
-		for (T child : treeDef.childrenOf(root)) {
-			builder.append(prefix);
+		// iterative depth-first walk, so that very deep trees don't overflow the stack
+		Deque<Iterator<T>> stack = new ArrayDeque<>();
+		StringBuilder currentPrefix = new StringBuilder(prefix);
+		stack.push(treeDef.childrenOf(root).iterator());
+		while (!stack.isEmpty()) {
+			Iterator<T> children = stack.peek();
+			if (!children.hasNext()) {
+				stack.pop();
+				currentPrefix.setLength(Math.max(currentPrefix.length() - indent.length(), 0));
+				continue;
+			}
+			T child = children.next();
+			builder.append(currentPrefix);
 			builder.append(toString.apply(child));
 			builder.append("\n");
-			toStringHelper(treeDef, child, toString, indent, builder, prefix + indent);
+			stack.push(treeDef.childrenOf(child).iterator());
+			currentPrefix.append(indent);
 		}
 	}
 }
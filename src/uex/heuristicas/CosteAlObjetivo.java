@@ -0,0 +1,189 @@
+package uex.heuristicas;
+
+import uex.Laberinto;
+import uex.algoritmos.EstadoLaberinto;
+import uex.algoritmos.MonticuloPrimitivo;
+import uex.movimiento.Posicion;
+import uex.movimiento.TablaVecinos;
+
+import java.lang.ref.WeakReference;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Heurística : Coste exacto del camino más barato desde la casilla actual hasta la casilla objetivo, sumando el valor
+ * de cada casilla a la que se entra. Es una heurística perfecta: nunca sobreestima ni subestima el coste restante.
+ * <p>
+ * Para cada laberinto se ejecuta una única vez el algoritmo de Dijkstra en sentido inverso, partiendo de la casilla
+ * objetivo, y se guarda el coste de todas las casillas en un array de enteros indexado por casilla. A partir de ese
+ * momento cada consulta, incluida {@link CosteAlObjetivo#coste(Laberinto, Posicion)}, se resuelve en O(1) sin
+ * búsqueda. El tiempo de construcción y la memoria empleada en cada laberinto se muestran en la descripción de la
+ * heurística para ese laberinto ({@link CosteAlObjetivo#describir(Laberinto)}).
+ * <p>
+ * Las tablas se recalculan si se carga otro fichero en el mismo laberinto o cambia el valor de alguna casilla
+ * ({@link Laberinto#getVersion()}) y se descartan cuando el laberinto deja de usarse
+ *
+ * @author Juan Pablo García Plaza Pérez
+ * @author José Ángel Concha Carrasco
+ * @author Sergio Barrantes de la Osa
+ */
+public class CosteAlObjetivo implements Heuristica {
+
+    public static final int INALCANZABLE = Integer.MAX_VALUE / 2;  // Coste de las casillas sin camino al objetivo
+
+    private final Map<Laberinto, Tabla> tablas;     // Tabla de costes de cada laberinto consultado
+    private volatile Tabla ultima;                  // Última tabla consultada, evita buscar en el mapa
+
+    public CosteAlObjetivo() {
+        tablas = Collections.synchronizedMap(new WeakHashMap<>());
+    }
+
+    @Override
+    public double aplicar(Laberinto laberinto, int indice) {
+        return tabla(laberinto).costes[indice];
+    }
+
+    /**
+     * Construye la tabla de costes del laberinto si aún no existe, de modo que no se incluya en la resolución
+     *
+     * @param laberinto Laberinto que se va a resolver
+     */
+    @Override
+    public void preparar(Laberinto laberinto) {
+        tabla(laberinto);
+    }
+
+    /**
+     * El coste hasta el objetivo cambia con el valor de cualquier casilla del camino
+     */
+    @Override
+    public boolean dependeDeLosCostes() {
+        return true;
+    }
+
+    /**
+     * El coste exacto se muestra como un entero
+     */
+    @Override
+    public Number apply(EstadoLaberinto estadoLaberinto) {
+        return tabla(estadoLaberinto.getLaberinto()).costes[estadoLaberinto.getIndice()];
+    }
+
+    /**
+     * @param laberinto Laberinto a consultar
+     * @param posicion  Posición de partida
+     * @return Coste mínimo para llegar desde la posición hasta la casilla objetivo, o {@value INALCANZABLE} si no
+     * existe ningún camino
+     */
+    public int coste(Laberinto laberinto, Posicion posicion) {
+        return tabla(laberinto).costes[laberinto.indice(posicion)];
+    }
+
+    /**
+     * @param laberinto Laberinto consultado
+     * @return Tabla de costes del laberinto, construyéndola si no existe o si el laberinto ha cambiado
+     */
+    private Tabla tabla(Laberinto laberinto) {
+        Tabla tabla = ultima;
+
+        if (tabla == null || !tabla.de(laberinto)) {
+            tabla = tablas.get(laberinto);
+            if (tabla == null || !tabla.de(laberinto)) {
+                tabla = new Tabla(laberinto);
+                tablas.put(laberinto, tabla);
+            }
+            ultima = tabla;
+        }
+
+        return tabla;
+    }
+
+    /**
+     * Incluye el tamaño, el tiempo de construcción y la memoria de la tabla del laberinto suministrado, construyéndola
+     * si aún no existe
+     */
+    @Override
+    public String describir(Laberinto laberinto) {
+        Tabla tabla = tabla(laberinto);
+
+        return String.format("%s (tabla de %d casillas construida en %.3f ms, %d bytes)", this,
+                tabla.costes.length, tabla.nanosConstruccion / (double) TimeUnit.MILLISECONDS.toNanos(1), tabla.memoria);
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName();
+    }
+
+    /**
+     * Costes exactos hasta el objetivo de todas las casillas de una versión de un laberinto
+     */
+    private static final class Tabla {
+
+        private final WeakReference<Laberinto> laberinto;   // Laberinto de la tabla, no impide que se descarte
+        private final int version;                          // Versión del laberinto de la tabla
+        private final int[] costes;                         // Coste hasta el objetivo de cada casilla en orden de filas
+        private final long nanosConstruccion;               // Tiempo empleado en construir la tabla
+        private final long memoria;                         // Memoria empleada en construir la tabla, en bytes
+
+        /**
+         * Ejecuta el algoritmo de Dijkstra desde la casilla objetivo. Moverse de una casilla a otra cuesta el valor de
+         * la casilla de destino, por lo que al recorrer el camino en sentido inverso se suma el valor de la casilla
+         * que se abandona
+         *
+         * @param laberinto Laberinto del que construir la tabla
+         */
+        private Tabla(Laberinto laberinto) {
+            long inicio = System.nanoTime();
+            TablaVecinos tablaVecinos = laberinto.getTablaVecinos();
+            MonticuloPrimitivo abiertos = new MonticuloPrimitivo();
+            int casilla;
+
+            this.laberinto = new WeakReference<>(laberinto);
+            version = laberinto.getVersion();
+            costes = new int[laberinto.getNumCasillas()];
+            Arrays.fill(costes, INALCANZABLE);
+
+            if (laberinto.getPosObjetivc() != null) {
+                casilla = laberinto.indice(laberinto.getPosObjetivc());
+                costes[casilla] = 0;
+                abiertos.insertar(0, casilla);
+            }
+
+            while (!abiertos.estaVacio()) {
+                int coste = abiertos.verPrioridadMinima();
+                int costeEntrada;
+
+                casilla = abiertos.extraerMinimo();
+                costeEntrada = laberinto.coste(casilla);
+
+                // Descarta las entradas obsoletas y las casillas no ocupadas, en las que no se puede entrar
+                if (coste > costes[casilla] || costeEntrada < 0) continue;
+
+                for (int m = tablaVecinos.mascara(casilla); m != 0; m &= m - 1) {
+                    int vecino = tablaVecinos.vecino(casilla, Integer.numberOfTrailingZeros(m));
+                    int nuevoCoste = coste + costeEntrada;
+
+                    if (nuevoCoste < costes[vecino]) {
+                        costes[vecino] = nuevoCoste;
+                        abiertos.insertar(nuevoCoste, vecino);
+                    }
+                }
+            }
+
+            memoria = (long) costes.length * Integer.BYTES + abiertos.memoria();
+            nanosConstruccion = System.nanoTime() - inicio;
+        }
+
+        /**
+         * @param laberinto Laberinto consultado
+         * @return Si la tabla corresponde a la versión actual del laberinto
+         */
+        private boolean de(Laberinto laberinto) {
+            return this.laberinto.get() == laberinto && version == laberinto.getVersion();
+        }
+    }
+}
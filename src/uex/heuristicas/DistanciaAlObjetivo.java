@@ -5,7 +5,8 @@ import uex.algoritmos.EstadoLaberinto;
 import uex.movimiento.Posicion;
 
 /**
- * Heurística : Distancia a la casilla destino desde la casilla actual según distintos métodos de cálculo
+ * Heurística : Distancia a la casilla destino desde la casilla actual según distintos métodos de cálculo.
+ * La casilla destino es la casilla objetivo del laberinto al que pertenece el estado evaluado
  *
  * @see Calculo
  * @see DistanciaAlObjetivo_real
@@ -63,11 +64,19 @@ public abstract class DistanciaAlObjetivo {
         }
 
         @Override
-        public Number apply(EstadoLaberinto estadoLaberinto) {
-            Posicion posActual = estadoLaberinto.getJugador().ctrlMovimiento().posicion();
-            Posicion posDestino = Laberinto.instancia().getPosObjetivc();
+        public double aplicar(Laberinto laberinto, int indice) {
+            Posicion posDestino = laberinto.getPosObjetivc();
+
+            return Math.abs(posDestino.getX() - indice % laberinto.getAncho()) +
+                    Math.abs(posDestino.getY() - indice / laberinto.getAncho());
+        }
 
-            return posActual.distanciaA_discreta(posDestino);
+        /**
+         * La distancia discreta se muestra como un entero
+         */
+        @Override
+        public Number apply(EstadoLaberinto estadoLaberinto) {
+            return (int) aplicar(estadoLaberinto.getLaberinto(), estadoLaberinto.getIndice());
         }
 
     }
@@ -94,11 +103,12 @@ public abstract class DistanciaAlObjetivo {
         }
 
         @Override
-        public Number apply(EstadoLaberinto estadoLaberinto) {
-            Posicion posActual = estadoLaberinto.getJugador().ctrlMovimiento().posicion();
-            Posicion posDestino = Laberinto.instancia().getPosObjetivc();
+        public double aplicar(Laberinto laberinto, int indice) {
+            Posicion posDestino = laberinto.getPosObjetivc();
+            int difX = posDestino.getX() - indice % laberinto.getAncho();
+            int difY = posDestino.getY() - indice / laberinto.getAncho();
 
-            return posActual.distanciaA_real(posDestino);
+            return Math.sqrt(difX * difX + difY * difY);
         }
     }
 }
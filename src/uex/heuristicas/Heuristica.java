@@ -1,5 +1,6 @@
 package uex.heuristicas;
 
+import uex.Laberinto;
 import uex.algoritmos.EstadoLaberinto;
 
 import java.util.function.Function;
@@ -7,10 +8,63 @@ import java.util.function.Function;
 /**
  * Clase para modelar una función heurística que toma como argumento un estado de laberinto {@link EstadoLaberinto} y
  * devuelve un número {@link Number} (evaluable como todas las primitivas de números)
+ * <p>
+ * Las implementaciones evalúan la casilla en la que se encuentra el jugador mediante
+ * {@link Heuristica#aplicar(Laberinto, int)}, que trabaja con primitivas y no reserva memoria. Es la versión que
+ * emplean los algoritmos al expandir nodos; {@link Heuristica#apply(EstadoLaberinto)} se mantiene para mostrar la
+ * puntuación de un estado
  *
  * @author Juan Pablo García Plaza Pérez
  * @author José Ángel Concha Carrasco
  * @author Sergio Barrantes de la Osa
  */
 public interface Heuristica extends Function<EstadoLaberinto, Number> {
+
+    /**
+     * Estima la puntuación heurística de una casilla del laberinto
+     *
+     * @param laberinto Laberinto al que pertenece la casilla
+     * @param indice    Índice de la casilla en orden de filas, ver {@link Laberinto#indice(uex.movimiento.Posicion)}
+     * @return Resultado de la función heurística de evaluación
+     */
+    double aplicar(Laberinto laberinto, int indice);
+
+    /**
+     * Realiza los cálculos previos que necesite la heurística para evaluar las casillas de un laberinto, antes de
+     * comenzar a resolverlo. Por defecto no hace nada
+     *
+     * @param laberinto Laberinto que se va a resolver
+     */
+    default void preparar(Laberinto laberinto) {
+    }
+
+    /**
+     * Indica a los algoritmos que conservan resultados de la heurística entre resoluciones si siguen siendo válidos
+     * cuando cambia el valor de alguna casilla. Por defecto no depende de ellos
+     *
+     * @return Si el resultado depende de los valores de las casillas, además de su posición y de la casilla objetivo
+     */
+    default boolean dependeDeLosCostes() {
+        return false;
+    }
+
+    /**
+     * Describe la heurística tal como se emplea en un laberinto, incluyendo los datos que haya calculado para él. Por
+     * defecto es su representación
+     *
+     * @param laberinto Laberinto que se va a resolver
+     * @return Descripción de la heurística en el laberinto
+     */
+    default String describir(Laberinto laberinto) {
+        return toString();
+    }
+
+    /**
+     * @param estadoLaberinto Estado a evaluar
+     * @return Resultado de la función heurística aplicada a la casilla en la que se encuentra el jugador
+     */
+    @Override
+    default Number apply(EstadoLaberinto estadoLaberinto) {
+        return aplicar(estadoLaberinto.getLaberinto(), estadoLaberinto.getIndice());
+    }
 }
@@ -0,0 +1,125 @@
+package uex.heuristicas;
+
+import uex.Laberinto;
+import uex.algoritmos.EstadoLaberinto;
+
+import java.util.Arrays;
+
+/**
+ * Decorador que guarda los resultados de otra heurística en un campo precalculado por laberinto, un array de
+ * primitivas indexado por el índice de cada casilla. Cada casilla se evalúa con la heurística decorada la primera vez
+ * que se consulta; las siguientes consultas sólo leen el array.
+ * <p>
+ * Sólo es válido para heurísticas cuyo resultado dependa exclusivamente del laberinto y de la casilla evaluada, como
+ * {@link DistanciaAlObjetivo}. El campo se descarta al consultar otro laberinto o cuando se carga otro fichero en el
+ * mismo laberinto ({@link Laberinto#getVersion()}), por lo que conviene resolver cada laberinto de principio a fin
+ * antes de pasar al siguiente. Puede compartirse entre hilos: como mucho una casilla se evalúa varias veces
+ *
+ * @author Juan Pablo García Plaza Pérez
+ * @author José Ángel Concha Carrasco
+ * @author Sergio Barrantes de la Osa
+ */
+public final class HeuristicaCacheada implements Heuristica {
+
+    private final Heuristica heuristica;            // Heurística decorada
+    private volatile Campo campo;                   // Resultados de la heurística en el último laberinto consultado
+
+    /**
+     * @param heuristica Heurística a decorar
+     */
+    private HeuristicaCacheada(Heuristica heuristica) {
+        this.heuristica = heuristica;
+    }
+
+    /**
+     * @param heuristica Heurística a decorar
+     * @return Heurística con sus resultados guardados por laberinto. Si ya estaba decorada se devuelve sin cambios
+     */
+    public static HeuristicaCacheada de(Heuristica heuristica) {
+        if (heuristica == null)
+            throw new IllegalArgumentException("No se puede decorar una heurística nula");
+
+        return heuristica instanceof HeuristicaCacheada ? (HeuristicaCacheada) heuristica :
+                new HeuristicaCacheada(heuristica);
+    }
+
+    @Override
+    public double aplicar(Laberinto laberinto, int indice) {
+        Campo campo = campoDe(laberinto);
+        double valor = campo.valores[indice];
+
+        // Las casillas aún no evaluadas se marcan con NaN
+        if (Double.isNaN(valor)) {
+            valor = heuristica.aplicar(laberinto, indice);
+            campo.valores[indice] = valor;
+        }
+
+        return valor;
+    }
+
+    @Override
+    public void preparar(Laberinto laberinto) {
+        heuristica.preparar(laberinto);
+    }
+
+    @Override
+    public boolean dependeDeLosCostes() {
+        return heuristica.dependeDeLosCostes();
+    }
+
+    @Override
+    public String describir(Laberinto laberinto) {
+        return heuristica.describir(laberinto) + " (cacheada)";
+    }
+
+    /**
+     * La puntuación de un estado se muestra tal como la calcula la heurística decorada
+     */
+    @Override
+    public Number apply(EstadoLaberinto estadoLaberinto) {
+        return heuristica.apply(estadoLaberinto);
+    }
+
+    /**
+     * @param laberinto Laberinto consultado
+     * @return Campo del laberinto, creándolo vacío y descartando el anterior si era de otro laberinto o versión
+     */
+    private Campo campoDe(Laberinto laberinto) {
+        Campo actual = campo;
+
+        if (actual == null || actual.laberinto != laberinto || actual.version != laberinto.getVersion())
+            campo = actual = new Campo(laberinto);
+
+        return actual;
+    }
+
+    /**
+     * @return Heurística decorada
+     */
+    public Heuristica getHeuristica() {
+        return heuristica;
+    }
+
+    @Override
+    public String toString() {
+        return heuristica + " (cacheada)";
+    }
+
+    /**
+     * Resultados de la heurística en una versión concreta de un laberinto
+     */
+    private static final class Campo {
+
+        private final Laberinto laberinto;          // Laberinto evaluado
+        private final int version;                  // Versión del laberinto evaluada
+        private final double[] valores;             // Resultado de cada casilla en orden de filas, NaN si no se conoce
+
+        private Campo(Laberinto laberinto) {
+            this.laberinto = laberinto;
+            version = laberinto.getVersion();
+            valores = new double[laberinto.getNumCasillas()];
+
+            Arrays.fill(valores, Double.NaN);
+        }
+    }
+}
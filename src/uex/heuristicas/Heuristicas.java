@@ -2,6 +2,7 @@ package uex.heuristicas;
 
 import org.reflections.Reflections;
 
+import java.lang.reflect.Modifier;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Iterator;
@@ -32,7 +33,7 @@ public class Heuristicas {
         return Heuristicas.instancia().heuristicas.iterator();
     }
 
-    private static Heuristicas instancia() {
+    private static synchronized Heuristicas instancia() {
         if (instancia == null)
             instancia = new Heuristicas();
 
@@ -50,8 +51,10 @@ public class Heuristicas {
         System.out.println("Obteniendo heurísitcas implementadas...");
         Set<Class<? extends Heuristica>> implHeuristicas = new Reflections().getSubTypesOf(Heuristica.class);
 
-        // Elimina las implementaciones heurísticas añadidas manualmente
+        // Elimina las implementaciones heurísticas añadidas manualmente y las que no pueden instanciarse sin argumentos,
+        // como las abstractas o los decoradores de otras heurísticas
         heuristicas.stream().map(Heuristica::getClass).forEach(implHeuristicas::remove);
+        implHeuristicas.removeIf(implHeuristica -> !instanciable(implHeuristica));
 
         // Añade el resto de implementaciones heurísticas automáticamente
         for (Class<? extends Heuristica> implHeuristica : implHeuristicas) {
@@ -63,11 +66,29 @@ public class Heuristicas {
         }
     }
 
+    /**
+     * @param implHeuristica Implementación heurística
+     * @return Si es una clase concreta y pública con un constructor público sin argumentos
+     */
+    private static boolean instanciable(Class<? extends Heuristica> implHeuristica) {
+        if (implHeuristica.isInterface() || Modifier.isAbstract(implHeuristica.getModifiers()) ||
+                !Modifier.isPublic(implHeuristica.getModifiers()))
+            return false;
+
+        try {
+            implHeuristica.getConstructor();                // Sólo obtiene constructores públicos
+            return true;
+        } catch (NoSuchMethodException e) {
+            return false;
+        }
+    }
+
     /**
      * Inicializaciones manuales de implementaciones heurísticas
      */
     private void inicializarHeuristicas_manualmente() {
         heuristicas.add(DistanciaAlObjetivo.tipo(DistanciaAlObjetivo.Calculo.DISCRETA));
         heuristicas.add(DistanciaAlObjetivo.tipo(DistanciaAlObjetivo.Calculo.REAL));
+        heuristicas.add(new CosteAlObjetivo());
     }
 }
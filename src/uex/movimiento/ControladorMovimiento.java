@@ -3,9 +3,8 @@ package uex.movimiento;
 import uex.Laberinto;
 
 import java.util.ArrayList;
-import java.util.EnumSet;
+import java.util.Collections;
 import java.util.List;
-import java.util.stream.Collectors;
 
 /**
  * Clase que implementa la mecánica de movimiento del jugador
@@ -19,20 +18,41 @@ public class ControladorMovimiento {
     // Coordendas de la posición inicial común a los controladores de movimiento
     private static final int POS_X_INI = 0;
     private static final int POS_Y_INI = 0;
+    // Movimientos unitarios posibles para cada máscara de direcciones de la tabla de vecinos. Son compartidos
+    private static final List<List<Movimiento>> MOVIMIENTOS_POR_MASCARA = movimientosPorMascara();
 
+    private final Laberinto laberinto;          // Laberinto sobre el que se mueve el controlador
     private Posicion posicion;                  // Posición actual del controlador
 
     /**
-     * Instancia un controlador de movimiento en la posición {x:0, y:0}
+     * Instancia un controlador de movimiento en la posición {x:0, y:0} del laberinto por defecto
      */
     public ControladorMovimiento() {
-        posicion = new Posicion(POS_X_INI, POS_Y_INI);
+        this(Laberinto.instancia());
     }
 
     /**
-     * @param posicionInicial Posición inicial
+     * Instancia un controlador de movimiento en la posición {x:0, y:0}
+     *
+     * @param laberinto Laberinto sobre el que se mueve el controlador
+     */
+    public ControladorMovimiento(Laberinto laberinto) {
+        this(laberinto, Posicion.de(POS_X_INI, POS_Y_INI));
+    }
+
+    /**
+     * @param posicionInicial Posición inicial en el laberinto por defecto
      */
     public ControladorMovimiento(Posicion posicionInicial) {
+        this(Laberinto.instancia(), posicionInicial);
+    }
+
+    /**
+     * @param laberinto       Laberinto sobre el que se mueve el controlador
+     * @param posicionInicial Posición inicial
+     */
+    public ControladorMovimiento(Laberinto laberinto, Posicion posicionInicial) {
+        this.laberinto = laberinto;
         this.posicion = posicionInicial;
     }
 
@@ -71,51 +91,62 @@ public class ControladorMovimiento {
      * Suma a las coordenadas de una posición las unidades indicadas por el movimiento en una dirección determinada
      *
      * @param movimiento Movimiento a aplicar
-     * @return Posición destino
+     * @return Posición destino. Es inmutable y compartida, ver {@link Posicion#de(int, int)}
      */
     public Posicion aplicarMovimiento(Movimiento movimiento) {
-        // Copia de la posición actual en la que aplicar el movimiento
-        Posicion posFinal = new Posicion(posicion());
+        // Coordenadas de la posición actual en la que aplicar el movimiento
+        int x = posicion().getX();
+        int y = posicion().getY();
 
         // Aplica el movimiento
         switch (movimiento.getDirMovimiento()) {
             case NORTE:
-                posFinal.setY(posFinal.getY() - movimiento.getUnidades());
+                y -= movimiento.getUnidades();
                 break;
             case ESTE:
-                posFinal.setX(posFinal.getX() + movimiento.getUnidades());
+                x += movimiento.getUnidades();
                 break;
             case SUR:
-                posFinal.setY(posFinal.getY() + movimiento.getUnidades());
+                y += movimiento.getUnidades();
                 break;
             case OESTE:
-                posFinal.setX(posFinal.getX() - movimiento.getUnidades());
+                x -= movimiento.getUnidades();
         }
 
-        return posFinal;
+        return Posicion.de(x, y);
     }
 
     /**
-     * @return Lista de movimientos unitarios que resultan en movimientos posibles
+     * @return Lista no modificable de movimientos unitarios que resultan en movimientos posibles, en el orden de
+     * {@link Direccion}. Se obtiene de la tabla de vecinos del laberinto sin reservar memoria
      */
     public List<Movimiento> movimientosPosibles() {
-        // Lista de direcciones de movimiento válidas
-        List<Direccion> direccionesPosibles = new ArrayList<>(EnumSet.allOf(Direccion.class))
-                .stream()
-                .filter(direccion -> movimientoLegal(aplicarMovimiento(new MovimientoUnitario(direccion))))
-                .collect(Collectors.toList());
-        // Devuelve las direcciones de movimiento válidas como movimientos unitarios
-        return direccionesPosibles
-                .stream()
-                .map(MovimientoUnitario::new)
-                .collect(Collectors.toList());
+        return MOVIMIENTOS_POR_MASCARA.get(laberinto.getTablaVecinos().mascara(laberinto.indice(posicion())));
+    }
+
+    /**
+     * @return Lista de movimientos unitarios posibles para cada máscara de direcciones
+     */
+    private static List<List<Movimiento>> movimientosPorMascara() {
+        List<List<Movimiento>> movimientos = new ArrayList<>();
+        Direccion[] direcciones = Direccion.values();
+
+        for (int mascara = 0; mascara < 1 << TablaVecinos.NUM_DIRECCIONES; mascara++) {
+            List<Movimiento> posibles = new ArrayList<>();
+
+            for (Direccion direccion : direcciones)
+                if ((mascara & TablaVecinos.bit(direccion)) != 0) posibles.add(new MovimientoUnitario(direccion));
+            movimientos.add(Collections.unmodifiableList(posibles));
+        }
+
+        return Collections.unmodifiableList(movimientos);
     }
 
     /**
      * Resetea el controlador a la posición inicial
      */
     public void resetPosicion() {
-        setPosicionAbsoluta(new Posicion(POS_X_INI, POS_Y_INI));
+        setPosicionAbsoluta(Posicion.de(POS_X_INI, POS_Y_INI));
     }
 
     /**
@@ -124,9 +155,16 @@ public class ControladorMovimiento {
      */
     private boolean movimientoLegal(Posicion posicion) {
         return posicion.getX() >= 0 &&
-                posicion.getX() < Laberinto.instancia().getDimension() &&
+                posicion.getX() < laberinto.getAncho() &&
                 posicion.getY() >= 0 &&
-                posicion.getY() < Laberinto.instancia().getDimension();
+                posicion.getY() < laberinto.getAlto();
+    }
+
+    /**
+     * @return Laberinto sobre el que se mueve el controlador
+     */
+    public Laberinto getLaberinto() {
+        return laberinto;
     }
 
     /**
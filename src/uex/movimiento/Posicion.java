@@ -1,7 +1,10 @@
 package uex.movimiento;
 
+import java.util.Arrays;
+
 /**
- * Clase encargada de modelar las distintas posiciones en laberinto siguiendo unos ejes cartesianos XY
+ * Clase encargada de modelar las distintas posiciones en laberinto siguiendo unos ejes cartesianos XY.
+ * Las posiciones obtenidas mediante {@link Posicion#de(int, int)} son inmutables y compartidas (flyweight)
  *
  * @author Juan Pablo García Plaza Pérez
  * @author José Ángel Concha Carrasco
@@ -9,6 +12,9 @@ package uex.movimiento;
  */
 public class Posicion {
 
+    private static final int LIMITE_INTERNADAS = 1 << 10;  // Coordenada máxima (exclusiva) de las posiciones compartidas
+    private static volatile Fija[][] internadas = new Fija[0][];   // Posiciones compartidas, indexadas por [y][x]
+
     private int x;                      // Columna de la posición especificada
     private int y;                      // Fila de la posición especificada
 
@@ -29,6 +35,58 @@ public class Posicion {
         y = posicion.getY();
     }
 
+    /**
+     * Devuelve una posición inmutable. Las posiciones con coordenadas no negativas por debajo de
+     * {@link Posicion#LIMITE_INTERNADAS} se crean una única vez y se comparten entre todas las llamadas
+     *
+     * @param x Posición en el eje X
+     * @param y Posición en el eje Y
+     * @return Posición inmutable con las coordenadas suministradas
+     */
+    public static Posicion de(int x, int y) {
+        Fija[][] tabla = internadas;
+        Fija[] fila;
+        Fija posicion;
+
+        if (x < 0 || y < 0 || x >= LIMITE_INTERNADAS || y >= LIMITE_INTERNADAS)
+            return new Fija(x, y);
+        if (y < tabla.length && (fila = tabla[y]) != null && x < fila.length && (posicion = fila[x]) != null)
+            return posicion;
+
+        return internar(x, y);
+    }
+
+    /**
+     * Crea la posición compartida para unas coordenadas, ampliando la tabla de posiciones compartidas si es necesario
+     *
+     * @param x Posición en el eje X
+     * @param y Posición en el eje Y
+     * @return Posición compartida
+     */
+    private static synchronized Fija internar(int x, int y) {
+        Fija[][] tabla = internadas;
+
+        if (y >= tabla.length)
+            tabla = Arrays.copyOf(tabla, Math.min(LIMITE_INTERNADAS, Math.max(y + 1, tabla.length * 2)));
+        if (tabla[y] == null)
+            tabla[y] = new Fija[0];
+        if (x >= tabla[y].length)
+            tabla[y] = Arrays.copyOf(tabla[y], Math.min(LIMITE_INTERNADAS, Math.max(x + 1, tabla[y].length * 2)));
+        if (tabla[y][x] == null) tabla[y][x] = new Fija(x, y);
+
+        internadas = tabla;                         // Publica la tabla actualizada
+
+        return tabla[y][x];
+    }
+
+    /**
+     * @param clave Clave empaquetada obtenida mediante {@link Posicion#empaquetar()}
+     * @return Posición inmutable correspondiente a la clave
+     */
+    public static Posicion desempaquetar(long clave) {
+        return de((int) clave, (int) (clave >>> 32));
+    }
+
     /**
      * Calcula la distancia real entre dos posiciones
      *
@@ -87,18 +145,81 @@ public class Posicion {
         setY(y);
     }
 
+    /**
+     * @return Coordenadas empaquetadas en un {@code long}: la coordenada Y en los 32 bits altos y la X en los 32
+     * bajos. Identifica la posición independientemente de la dimensión del laberinto
+     */
+    public long empaquetar() {
+        return ((long) getY() << 32) | (getX() & 0xFFFFFFFFL);
+    }
+
+    /**
+     * @param ancho Número de columnas del laberinto
+     * @return Índice de la posición en orden de filas ({@code y * ancho + x})
+     */
+    public int indice(int ancho) {
+        return getY() * ancho + getX();
+    }
+
     /**
      * @param obj Posición a comparar
      * @return Dos posiciones son iguales si coinciden sus coordenadas X e Y
      */
     @Override
     public boolean equals(Object obj) {
+        if (this == obj) return true;
+        if (!(obj instanceof Posicion)) return false;
+
         return getX() == ((Posicion) obj).getX() &&
                 getY() == ((Posicion) obj).getY();
     }
 
+    /**
+     * @return Código hash consistente con {@link Posicion#equals(Object)}
+     */
+    @Override
+    public int hashCode() {
+        return 31 * getY() + getX();
+    }
+
     @Override
     public String toString() {
         return "{ x:" + getX() + ", y:" + getY() + " }";
     }
+
+    /**
+     * Posición inmutable: sus coordenadas sólo se asignan al construirla y los métodos que las modifican lanzan una
+     * excepción. Las posiciones compartidas se publican a través de la tabla volátil de posiciones compartidas, por lo
+     * que pueden usarse desde cualquier hilo sin sincronización
+     */
+    public static final class Fija extends Posicion {
+
+        /**
+         * @param x Posición en el eje X
+         * @param y Posición en el eje Y
+         */
+        private Fija(int x, int y) {
+            super(x, y);
+        }
+
+        /**
+         * No se pueden cambiar las coordenadas de una posición inmutable
+         *
+         * @throws UnsupportedOperationException Imposible
+         */
+        @Override
+        public void setX(int x) {
+            throw new UnsupportedOperationException("No es posible modificar una posición inmutable");
+        }
+
+        /**
+         * No se pueden cambiar las coordenadas de una posición inmutable
+         *
+         * @throws UnsupportedOperationException Imposible
+         */
+        @Override
+        public void setY(int y) {
+            throw new UnsupportedOperationException("No es posible modificar una posición inmutable");
+        }
+    }
 }
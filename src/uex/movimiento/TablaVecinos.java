@@ -0,0 +1,112 @@
+package uex.movimiento;
+
+/**
+ * Tabla precalculada de las casillas vecinas de cada casilla de un laberinto. Para cada casilla guarda una máscara con
+ * un bit por cada {@link Direccion} en la que es posible moverse sin salir de los límites del laberinto (el bit
+ * {@code 1 << direccion.ordinal()}). Se construye una vez por laberinto y sus consultas no reservan memoria.
+ * <p>
+ * Las casillas vecinas de una casilla se recorren con la máscara, en el orden de {@link Direccion}:
+ * <pre>
+ *     for (int m = tabla.mascara(indice); m != 0; m &amp;= m - 1) {
+ *         int vecino = tabla.vecino(indice, Integer.numberOfTrailingZeros(m));
+ *         ...
+ *     }
+ * </pre>
+ *
+ * @author Juan Pablo García Plaza Pérez
+ * @author José Ángel Concha Carrasco
+ * @author Sergio Barrantes de la Osa
+ */
+public final class TablaVecinos {
+
+    public static final int NUM_DIRECCIONES = Direccion.values().length;
+
+    private final int ancho;                    // Número de columnas del laberinto
+    private final int alto;                     // Número de filas del laberinto
+    private final byte[] mascaras;              // Direcciones posibles desde cada casilla, en orden de filas
+    private final int[] desplazamientos;        // Diferencia de índice al moverse en cada dirección
+
+    /**
+     * @param ancho Número de columnas del laberinto
+     * @param alto  Número de filas del laberinto
+     */
+    public TablaVecinos(int ancho, int alto) {
+        this.ancho = ancho;
+        this.alto = alto;
+        mascaras = new byte[ancho * alto];
+        desplazamientos = new int[NUM_DIRECCIONES];
+
+        desplazamientos[Direccion.NORTE.ordinal()] = -ancho;
+        desplazamientos[Direccion.ESTE.ordinal()] = 1;
+        desplazamientos[Direccion.SUR.ordinal()] = ancho;
+        desplazamientos[Direccion.OESTE.ordinal()] = -1;
+
+        for (int y = 0; y < alto; y++) {
+            for (int x = 0; x < ancho; x++) {
+                int mascara = 0;
+
+                if (y > 0) mascara |= bit(Direccion.NORTE);
+                if (x < ancho - 1) mascara |= bit(Direccion.ESTE);
+                if (y < alto - 1) mascara |= bit(Direccion.SUR);
+                if (x > 0) mascara |= bit(Direccion.OESTE);
+
+                mascaras[y * ancho + x] = (byte) mascara;
+            }
+        }
+    }
+
+    /**
+     * @param direccion Dirección de movimiento
+     * @return Bit que representa la dirección en las máscaras de la tabla
+     */
+    public static int bit(Direccion direccion) {
+        return 1 << direccion.ordinal();
+    }
+
+    /**
+     * @param indice Índice de la casilla en orden de filas
+     * @return Máscara de direcciones en las que es posible moverse desde la casilla
+     */
+    public int mascara(int indice) {
+        return mascaras[indice];
+    }
+
+    /**
+     * @param indice    Índice de la casilla en orden de filas
+     * @param direccion Ordinal de la dirección de movimiento. Debe estar en la máscara de la casilla
+     * @return Índice de la casilla vecina en la dirección indicada
+     */
+    public int vecino(int indice, int direccion) {
+        return indice + desplazamientos[direccion];
+    }
+
+    /**
+     * @param indice Índice de la casilla en orden de filas
+     * @return Número de casillas vecinas de la casilla
+     */
+    public int numVecinos(int indice) {
+        return Integer.bitCount(mascaras[indice]);
+    }
+
+    /**
+     * @param indice Índice de la casilla en orden de filas
+     * @return Posición de la casilla. Es inmutable y compartida, ver {@link Posicion#de(int, int)}
+     */
+    public Posicion posicion(int indice) {
+        return Posicion.de(indice % ancho, indice / ancho);
+    }
+
+    /**
+     * @return Número de columnas del laberinto
+     */
+    public int getAncho() {
+        return ancho;
+    }
+
+    /**
+     * @return Número de filas del laberinto
+     */
+    public int getAlto() {
+        return alto;
+    }
+}
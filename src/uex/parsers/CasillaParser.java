@@ -5,14 +5,17 @@ import uex.Laberinto;
 import uex.movimiento.Posicion;
 
 import java.io.File;
+import java.util.Arrays;
 import java.util.Objects;
 import java.util.Scanner;
 
 /**
- * Clase encargada de parsear archivos de laberinto {@code .lab} en colecciones de {@link Casilla} para ser cargados
- * en el Singleton de la clase {@link Laberinto}.
+ * Clase encargada de parsear archivos de laberinto {@code .lab} en los valores de sus casillas {@link Casilla}, en
+ * orden de filas, para ser cargados en el Singleton de la clase {@link Laberinto}.
  * <p>
- * La primera línea del fichero debe contener un entero indicando el umbral.
+ * La primera línea del fichero debe contener un entero indicando el umbral, seguido opcionalmente del ancho y el alto
+ * del laberinto (separados por comas o espacios). Si no se indican, las dimensiones se deducen del número de valores
+ * de la primera fila y del número de filas.
  * Admite valores enteros como representación de casillas separados por comas y cada fila en una nueva línea
  *
  * @author Juan Pablo García Plaza Pérez
@@ -21,12 +24,14 @@ import java.util.Scanner;
  */
 public class CasillaParser {
 
-    protected Casilla[][] laberinto;          // Laberinto parseado
+    protected int[] costes;                   // Valores de las casillas del laberinto parseado en orden de filas
     protected Posicion posObjetivo;           // Posición de la casilla objetivo
     protected int umbral;                     // Umbral asociado al laberinto
+    protected int ancho;                      // Número de columnas del laberinto parseado
+    protected int alto;                       // Número de filas del laberinto parseado
 
     public CasillaParser() {
-        laberinto = new Casilla[Laberinto.instancia().getDimension()][Laberinto.instancia().getDimension()];
+        costes = new int[0];
     }
 
     /**
@@ -35,32 +40,100 @@ public class CasillaParser {
      * @param fichero Fichero de laberinto
      */
     public void parsearFichero(File fichero) {
+        String[] cabecera;                  // Umbral y, opcionalmente, dimensiones del laberinto
         String[] valores;                   // Valores de las casillas de cada fila
+        String linea;
+        int ancho = -1;                     // Dimensiones del laberinto, negativas mientras sean desconocidas
+        int alto = -1;
+        int y = 0;
 
+        setPosObjetivo(null);
         try (Scanner scanner = new Scanner(fichero)) {
-            // Lectura de la primera línea: umbral
-            setUmbral(Integer.parseInt(scanner.nextLine()));
+            // Lectura de la primera línea: umbral y dimensiones opcionales
+            cabecera = scanner.nextLine().trim().split("[,\\s]+");
+            setUmbral(Integer.parseInt(cabecera[0]));
+            if (cabecera.length >= 3) {
+                ancho = Integer.parseInt(cabecera[1]);
+                alto = Integer.parseInt(cabecera[2]);
+            }
+
+            // Cada fichero se parsea en un nuevo array, el anterior puede seguir cargado en el laberinto
+            costes = new int[ancho > 0 && alto > 0 ? ancho * alto : 0];
             // Lectura del resto de líneas: valores separados por comas
-            for (int y = 0; y < Laberinto.instancia().getDimension(); y++) {
-                valores = scanner.nextLine().split(",");
-                for (int x = 0; x < Laberinto.instancia().getDimension(); x++) {
-                    Casilla casilla = new Casilla(Integer.parseInt(valores[x]));
+            while (scanner.hasNextLine() && (alto < 0 || y < alto)) {
+                linea = scanner.nextLine().trim();
+                if (linea.isEmpty()) continue;
+
+                valores = linea.split(",");
+                if (ancho < 0) ancho = valores.length;      // Sin cabecera, la primera fila determina el ancho
+                if (valores.length < ancho)
+                    throw new IllegalArgumentException("La fila " + y + " tiene " + valores.length +
+                            " casillas, se esperaban " + ancho);
+                if (costes.length < (y + 1) * ancho)
+                    costes = Arrays.copyOf(costes, Math.max((y + 1) * ancho, costes.length * 2));
+
+                for (int x = 0; x < ancho; x++) {
+                    int valor = Integer.parseInt(valores[x].trim());
 
-                    laberinto[y][x] = casilla;
+                    costes[y * ancho + x] = valor;
                     // Comprueba si es la casilla objetivo
-                    if (casilla.esObjetivo()) setPosObjetivo(new Posicion(x, y));
+                    if (Casilla.esValorObjetivo(valor)) setPosObjetivo(new Posicion(x, y));
                 }
+                y++;
             }
+
+            if (alto < 0) alto = y;                         // Sin cabecera, el número de filas determina el alto
+            if (y < alto)
+                throw new IllegalArgumentException("El laberinto tiene " + y + " filas, se esperaban " + alto);
+            if (costes.length != ancho * alto) costes = Arrays.copyOf(costes, ancho * alto);
+
+            setAncho(ancho);
+            setAlto(alto);
         } catch (Exception e) {
             e.printStackTrace();
         }
     }
 
     /**
-     * @return Laberinto pareseado
+     * @return Nuevo laberinto con el contenido del último fichero parseado
+     */
+    public Laberinto crearLaberinto() {
+        return new Laberinto(getCostes(), getAncho(), getAlto(), getUmbral(), getPosObjetivo());
+    }
+
+    /**
+     * @return Valores de las casillas del laberinto parseado en orden de filas
+     */
+    public int[] getCostes() {
+        return costes;
+    }
+
+    /**
+     * @return Número de columnas del laberinto parseado
+     */
+    public int getAncho() {
+        return ancho;
+    }
+
+    /**
+     * @param ancho Nuevo número de columnas del laberinto parseado
+     */
+    protected void setAncho(int ancho) {
+        this.ancho = ancho;
+    }
+
+    /**
+     * @return Número de filas del laberinto parseado
+     */
+    public int getAlto() {
+        return alto;
+    }
+
+    /**
+     * @param alto Nuevo número de filas del laberinto parseado
      */
-    public Casilla[][] getLaberinto() {
-        return laberinto;
+    protected void setAlto(int alto) {
+        this.alto = alto;
     }
 
     /**
@@ -0,0 +1,190 @@
+package uex.parsers;
+
+import uex.Laberinto;
+import uex.movimiento.Posicion;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Parser del formato binario de laberinto {@code .labb}. El fichero comienza con una cabecera de
+ * {@value #TAM_CABECERA} bytes, seguida de las casillas en orden de filas empaquetadas con el menor ancho que admiten
+ * sus valores (8, 16 o 32 bits). Todos los valores se almacenan en orden big-endian:
+ * <pre>
+ *     int   número mágico 'LABB'
+ *     byte  versión del formato
+ *     byte  bits por casilla
+ *     short reservado
+ *     int   ancho
+ *     int   alto
+ *     int   umbral
+ *     int   x de la casilla objetivo (-1 si no hay)
+ *     int   y de la casilla objetivo (-1 si no hay)
+ * </pre>
+ * El fichero se proyecta en memoria y las casillas se copian al laberinto sin interpretar texto. Los ficheros que no
+ * comienzan por el número mágico se parsean como ficheros de texto
+ *
+ * @author Juan Pablo García Plaza Pérez
+ * @author José Ángel Concha Carrasco
+ * @author Sergio Barrantes de la Osa
+ */
+public class CasillaParserBinario extends CasillaParserMapeado {
+
+    public static final String EXTENSION = ".labb";         // Extensión de los ficheros en formato binario
+    public static final int MAGICO = 0x4C414242;            // 'LABB'
+    public static final byte VERSION = 1;                   // Versión actual del formato
+    public static final int TAM_CABECERA = 28;              // Tamaño de la cabecera en bytes
+
+    @Override
+    public void parsearFichero(File fichero) {
+        try (FileChannel canal = FileChannel.open(fichero.toPath(), StandardOpenOption.READ)) {
+            ByteBuffer datos;
+
+            if (!esBinario(canal)) {
+                super.parsearFichero(fichero);              // Fichero de texto
+                return;
+            }
+            if (canal.size() > Integer.MAX_VALUE)
+                throw new IllegalArgumentException("El fichero " + fichero + " es demasiado grande para proyectarse");
+
+            setPosObjetivo(null);
+            datos = canal.map(FileChannel.MapMode.READ_ONLY, 0, canal.size());
+            leer(datos);
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Lee la cabecera y las casillas de un laberinto en formato binario
+     *
+     * @param datos Contenido del fichero, posicionado al comienzo de la cabecera
+     */
+    private void leer(ByteBuffer datos) {
+        int version;
+        int bits;
+        int ancho;
+        int alto;
+        int xObjetivo;
+        int yObjetivo;
+        int[] costes;
+
+        datos.getInt();                                     // Número mágico, ya comprobado
+        version = datos.get();
+        bits = datos.get();
+        datos.getShort();                                   // Reservado
+        ancho = datos.getInt();
+        alto = datos.getInt();
+        setUmbral(datos.getInt());
+        xObjetivo = datos.getInt();
+        yObjetivo = datos.getInt();
+
+        if (version != VERSION)
+            throw new IllegalArgumentException("Versión del formato binario no soportada : " + version);
+        if (bits != Byte.SIZE && bits != Short.SIZE && bits != Integer.SIZE)
+            throw new IllegalArgumentException("Ancho de casilla no soportado : " + bits + " bits");
+        if (ancho <= 0 || alto <= 0 || datos.remaining() < (long) ancho * alto * (bits / Byte.SIZE))
+            throw new IllegalArgumentException("El fichero no contiene las " + ancho + " x " + alto + " casillas " +
+                    "indicadas en la cabecera");
+
+        // Cada fichero se lee en un nuevo array, el anterior puede seguir cargado en el laberinto
+        costes = new int[ancho * alto];
+        switch (bits) {
+            case Byte.SIZE:
+                for (int i = 0; i < costes.length; i++) costes[i] = datos.get() & 0xFF;
+                break;
+            case Short.SIZE:
+                for (int i = 0; i < costes.length; i++) costes[i] = datos.getShort() & 0xFFFF;
+                break;
+            default:
+                datos.asIntBuffer().get(costes);            // Copia en bloque
+        }
+
+        this.costes = costes;
+        setAncho(ancho);
+        setAlto(alto);
+        if (xObjetivo >= 0 && yObjetivo >= 0) setPosObjetivo(new Posicion(xObjetivo, yObjetivo));
+    }
+
+    /**
+     * Guarda un laberinto en formato binario, empaquetando las casillas con el menor ancho que admiten sus valores
+     *
+     * @param laberinto Laberinto a guardar
+     * @param fichero   Fichero de destino. Se sobrescribe si existe
+     * @throws IOException Si no se puede escribir el fichero
+     */
+    public static void guardar(Laberinto laberinto, File fichero) throws IOException {
+        int numCasillas = laberinto.getNumCasillas();
+        int bits = bitsPorCasilla(laberinto);
+        Posicion posObjetivo = laberinto.getPosObjetivc();
+        ByteBuffer datos = ByteBuffer.allocate(TAM_CABECERA + numCasillas * (bits / Byte.SIZE));
+
+        datos.putInt(MAGICO)
+                .put(VERSION)
+                .put((byte) bits)
+                .putShort((short) 0)
+                .putInt(laberinto.getAncho())
+                .putInt(laberinto.getAlto())
+                .putInt(laberinto.getUmbral())
+                .putInt(posObjetivo != null ? posObjetivo.getX() : -1)
+                .putInt(posObjetivo != null ? posObjetivo.getY() : -1);
+
+        for (int i = 0; i < numCasillas; i++) {
+            switch (bits) {
+                case Byte.SIZE:
+                    datos.put((byte) laberinto.coste(i));
+                    break;
+                case Short.SIZE:
+                    datos.putShort((short) laberinto.coste(i));
+                    break;
+                default:
+                    datos.putInt(laberinto.coste(i));
+            }
+        }
+        datos.flip();
+
+        try (FileChannel canal = FileChannel.open(fichero.toPath(), StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (datos.hasRemaining()) canal.write(datos);
+        }
+    }
+
+    /**
+     * @param laberinto Laberinto a guardar
+     * @return Menor número de bits por casilla capaz de representar todos los valores del laberinto
+     */
+    private static int bitsPorCasilla(Laberinto laberinto) {
+        int minimo = 0;
+        int maximo = 0;
+
+        for (int i = 0; i < laberinto.getNumCasillas(); i++) {
+            minimo = Math.min(minimo, laberinto.coste(i));
+            maximo = Math.max(maximo, laberinto.coste(i));
+        }
+
+        if (minimo < 0) return Integer.SIZE;                // Los anchos reducidos no tienen signo
+        if (maximo <= 0xFF) return Byte.SIZE;
+        if (maximo <= 0xFFFF) return Short.SIZE;
+
+        return Integer.SIZE;
+    }
+
+    /**
+     * @param canal Canal del fichero a comprobar
+     * @return Si el fichero comienza por el número mágico del formato binario
+     * @throws IOException Si no se puede leer el fichero
+     */
+    private static boolean esBinario(FileChannel canal) throws IOException {
+        ByteBuffer magico = ByteBuffer.allocate(Integer.BYTES);
+        int leidos;
+
+        do {
+            leidos = canal.read(magico, magico.position());
+        } while (leidos > 0 && magico.hasRemaining());
+
+        return !magico.hasRemaining() && magico.getInt(0) == MAGICO;
+    }
+}
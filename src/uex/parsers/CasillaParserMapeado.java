@@ -0,0 +1,174 @@
+package uex.parsers;
+
+import uex.Casilla;
+import uex.movimiento.Posicion;
+
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Parser de ficheros de laberinto que proyecta el fichero en memoria ({@link FileChannel#map}) y convierte sus bytes
+ * directamente en los valores de las casillas. No crea objetos por fila ni por casilla y localiza la casilla objetivo
+ * en la misma pasada, por lo que está pensado para ficheros de gran tamaño.
+ * <p>
+ * Admite el mismo formato que {@link CasillaParser}. Además de comas, acepta espacios y tabuladores como separadores
+ * de valores dentro de una fila
+ *
+ * @author Juan Pablo García Plaza Pérez
+ * @author José Ángel Concha Carrasco
+ * @author Sergio Barrantes de la Osa
+ */
+public class CasillaParserMapeado extends CasillaParser {
+
+    private static final int DEF_CAPACIDAD = 64;            // Capacidad inicial cuando se desconocen las dimensiones
+    private static final int FIN = -1;                      // Marca de fin de fichero
+
+    private ByteBuffer datos;                               // Contenido del fichero que se está parseando
+    private int pos;                                        // Posición de lectura dentro del contenido
+
+    @Override
+    public void parsearFichero(File fichero) {
+        int[] cabecera = new int[3];        // Umbral y, opcionalmente, dimensiones del laberinto
+        int numCabecera = 0;                // Número de valores leídos de la cabecera
+        int ancho = -1;                     // Dimensiones del laberinto, negativas mientras sean desconocidas
+        int alto = -1;
+        int xObjetivo = -1;                 // Coordenadas de la casilla objetivo, negativas si no se ha encontrado
+        int yObjetivo = -1;
+        int y = 0;
+        int x;
+
+        setPosObjetivo(null);
+        try (FileChannel canal = FileChannel.open(fichero.toPath(), StandardOpenOption.READ)) {
+            if (canal.size() > Integer.MAX_VALUE)
+                throw new IllegalArgumentException("El fichero " + fichero + " es demasiado grande para proyectarse");
+
+            datos = canal.map(FileChannel.MapMode.READ_ONLY, 0, canal.size());
+            pos = 0;
+
+            // Lectura de la primera línea: umbral y dimensiones opcionales
+            while (!finDeLinea()) {
+                int valor = leerEntero();
+
+                if (numCabecera < cabecera.length) cabecera[numCabecera++] = valor;
+            }
+            saltarLinea();
+            if (numCabecera == 0) throw new IllegalArgumentException("Falta el umbral en la cabecera");
+            setUmbral(cabecera[0]);
+            if (numCabecera == 3) {
+                ancho = cabecera[1];
+                alto = cabecera[2];
+            }
+
+            // Cada fichero se parsea en un nuevo array, el anterior puede seguir cargado en el laberinto
+            costes = new int[ancho > 0 && alto > 0 ? ancho * alto : DEF_CAPACIDAD];
+            // Lectura del resto de líneas: valores separados por comas
+            while (actual() != FIN && (alto < 0 || y < alto)) {
+                if (finDeLinea()) {                         // Línea vacía
+                    saltarLinea();
+                    continue;
+                }
+
+                for (x = 0; !finDeLinea(); x++) {
+                    int valor = leerEntero();
+                    // Sin cabecera, la primera fila se lee antes de conocer el ancho
+                    int indice = ancho < 0 ? x : y * ancho + x;
+
+                    if (ancho >= 0 && x >= ancho) continue;     // Ignora los valores sobrantes de la fila
+                    if (indice >= costes.length)
+                        costes = Arrays.copyOf(costes, Math.max(indice + 1, costes.length * 2));
+
+                    costes[indice] = valor;
+                    // Comprueba si es la casilla objetivo
+                    if (Casilla.esValorObjetivo(valor)) {
+                        xObjetivo = x;
+                        yObjetivo = y;
+                    }
+                }
+                saltarLinea();
+
+                if (ancho < 0) ancho = x;                   // Sin cabecera, la primera fila determina el ancho
+                if (x < ancho)
+                    throw new IllegalArgumentException("La fila " + y + " tiene " + x +
+                            " casillas, se esperaban " + ancho);
+                y++;
+            }
+
+            if (alto < 0) alto = y;                         // Sin cabecera, el número de filas determina el alto
+            if (y < alto)
+                throw new IllegalArgumentException("El laberinto tiene " + y + " filas, se esperaban " + alto);
+            if (costes.length != ancho * alto) costes = Arrays.copyOf(costes, ancho * alto);
+
+            setAncho(ancho);
+            setAlto(alto);
+            if (xObjetivo >= 0) setPosObjetivo(new Posicion(xObjetivo, yObjetivo));
+        } catch (Exception e) {
+            e.printStackTrace();
+        } finally {
+            datos = null;                                   // Libera la proyección del fichero
+        }
+    }
+
+    /**
+     * Lee un entero, con signo opcional, a partir de la posición actual y avanza hasta el final del mismo
+     *
+     * @return Entero leído
+     * @throws NumberFormatException Si en la posición actual no comienza un entero
+     */
+    private int leerEntero() {
+        boolean negativo = actual() == '-';
+        long valor = 0;
+        int inicio;
+
+        if (negativo) pos++;
+        inicio = pos;
+        while (actual() >= '0' && actual() <= '9') {
+            valor = valor * 10 + (datos.get(pos++) - '0');
+            if (valor > Integer.MAX_VALUE + 1L)
+                throw new NumberFormatException("Valor fuera de rango en la posición " + inicio);
+        }
+        if (pos == inicio)
+            throw new NumberFormatException("Se esperaba un entero en la posición " + pos + " y se encontró '" +
+                    (char) actual() + "'");
+
+        valor = negativo ? -valor : valor;
+        if (valor > Integer.MAX_VALUE)
+            throw new NumberFormatException("Valor fuera de rango en la posición " + inicio);
+
+        return (int) valor;
+    }
+
+    /**
+     * Salta los separadores de valores de la línea actual
+     *
+     * @return Si la posición actual, tras los separadores, es el final de la línea o del fichero
+     */
+    private boolean finDeLinea() {
+        int c;
+
+        while ((c = actual()) == ',' || c == ' ' || c == '\t' || c == '\r') pos++;
+
+        return c == '\n' || c == FIN;
+    }
+
+    /**
+     * Avanza hasta el comienzo de la siguiente línea
+     */
+    private void saltarLinea() {
+        int c;
+
+        while ((c = actual()) != FIN) {
+            pos++;
+            if (c == '\n') break;
+        }
+    }
+
+    /**
+     * @return Byte en la posición actual, o {@link #FIN} si se ha alcanzado el final del fichero
+     */
+    private int actual() {
+        return pos < datos.limit() ? datos.get(pos) : FIN;
+    }
+}